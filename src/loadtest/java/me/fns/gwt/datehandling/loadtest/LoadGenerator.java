@@ -0,0 +1,357 @@
+package me.fns.gwt.datehandling.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Drives concurrent HTTP traffic at a web application and measures it.
+ * </p>
+ * <p>
+ * Each {@link Scenario} is run by its own set of virtual users, each a thread
+ * issuing one request after another (no think time) until the run ends. A
+ * warm-up period lets the JIT and connection pools settle before anything is
+ * measured. Latencies are kept in full, per user, and merged at the end, so
+ * percentiles are exact.
+ * </p>
+ *
+ */
+public class LoadGenerator {
+
+	/**
+	 * One kind of request
+	 */
+	public interface Scenario {
+
+		/**
+		 * @return name for the report
+		 */
+		String getName();
+
+		/**
+		 * Issues one request, reading the whole response
+		 *
+		 * @param user
+		 *            the virtual user (0 to users - 1) issuing it
+		 * @param iteration
+		 *            how many requests the user has issued before
+		 * @return true if the response was the one expected
+		 * @throws IOException
+		 *             counted as an error
+		 */
+		boolean execute(int user, long iteration) throws IOException;
+	}
+
+	/**
+	 * Measurements of one scenario
+	 */
+	public static class Result {
+
+		private final String name;
+
+		private final long[] latencyMicros;
+
+		private final long errors;
+
+		private final long elapsedMillis;
+
+		Result(final String name, final long[] latencyMicros, final long errors, final long elapsedMillis) {
+			this.name = name;
+			this.latencyMicros = latencyMicros;
+			this.errors = errors;
+			this.elapsedMillis = elapsedMillis;
+			Arrays.sort(latencyMicros);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return requests measured, errors included
+		 */
+		public long getCount() {
+			return latencyMicros.length;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		public double getErrorRate() {
+			return latencyMicros.length == 0 ? 0 : (double) errors / latencyMicros.length;
+		}
+
+		/**
+		 * @return requests per second
+		 */
+		public double getThroughput() {
+			return elapsedMillis == 0 ? 0 : latencyMicros.length * 1000.0 / elapsedMillis;
+		}
+
+		/**
+		 * @param percentile
+		 *            0 to 100
+		 * @return the latency, in microseconds, that <code>percentile</code>
+		 *         percent of the requests did not exceed; -1 if none measured
+		 */
+		public long getLatencyMicros(final double percentile) {
+			if (latencyMicros.length == 0) {
+				return -1;
+			}
+			final int rank = (int) Math.ceil(percentile / 100 * latencyMicros.length);
+			return latencyMicros[Math.min(latencyMicros.length - 1, Math.max(0, rank - 1))];
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-14s %9d req %9.1f req/s  p50 %7.2f ms  p90 %7.2f ms  p99 %7.2f ms"
+					+ "  max %8.2f ms  errors %d (%.3f%%)", name, getCount(), getThroughput(),
+					getLatencyMicros(50) / 1000.0, getLatencyMicros(90) / 1000.0, getLatencyMicros(99) / 1000.0,
+					getLatencyMicros(100) / 1000.0, errors, 100 * getErrorRate());
+		}
+	}
+
+	private final int users;
+
+	private final long warmUpMillis;
+
+	private final long runMillis;
+
+	/**
+	 * @param users
+	 *            virtual users per scenario
+	 * @param warmUpSeconds
+	 *            seconds of unmeasured traffic first
+	 * @param runSeconds
+	 *            seconds of measured traffic
+	 */
+	public LoadGenerator(final int users, final int warmUpSeconds, final int runSeconds) {
+		if (users < 1 || warmUpSeconds < 0 || runSeconds < 1) {
+			throw new IllegalArgumentException("Need at least one user and one second of traffic");
+		}
+		this.users = users;
+		warmUpMillis = TimeUnit.SECONDS.toMillis(warmUpSeconds);
+		runMillis = TimeUnit.SECONDS.toMillis(runSeconds);
+	}
+
+	/**
+	 * Runs all scenarios at once
+	 *
+	 * @param scenarios
+	 *            the traffic mix
+	 * @return one result per scenario, in the same order
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the users
+	 */
+	public List<Result> run(final List<Scenario> scenarios) throws InterruptedException {
+		final long started = System.currentTimeMillis();
+		final long measureFrom = started + warmUpMillis;
+		final long stopAt = measureFrom + runMillis;
+		final CountDownLatch done = new CountDownLatch(scenarios.size() * users);
+		final List<User[]> usersByScenario = new ArrayList<User[]>();
+		for (final Scenario scenario : scenarios) {
+			final User[] scenarioUsers = new User[users];
+			for (int i = 0; i < users; i++) {
+				scenarioUsers[i] = new User(scenario, i, measureFrom, stopAt, done);
+				final Thread thread = new Thread(scenarioUsers[i], scenario.getName() + "-" + i);
+				thread.setDaemon(true);
+				thread.start();
+			}
+			usersByScenario.add(scenarioUsers);
+		}
+		done.await();
+
+		final List<Result> results = new ArrayList<Result>();
+		for (int s = 0; s < scenarios.size(); s++) {
+			int count = 0;
+			long errors = 0;
+			for (final User user : usersByScenario.get(s)) {
+				count += user.count;
+				errors += user.errors;
+			}
+			final long[] latencies = new long[count];
+			int position = 0;
+			for (final User user : usersByScenario.get(s)) {
+				System.arraycopy(user.latencies, 0, latencies, position, user.count);
+				position += user.count;
+			}
+			results.add(new Result(scenarios.get(s).getName(), latencies, errors, runMillis));
+		}
+		return results;
+	}
+
+	/**
+	 * Issues a GET
+	 *
+	 * @param url
+	 *            where to
+	 * @return the response status
+	 * @throws IOException
+	 *             if the request fails
+	 */
+	public static int get(final URL url) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		return consume(connection);
+	}
+
+	/**
+	 * Issues a POST
+	 *
+	 * @param url
+	 *            where to
+	 * @param contentType
+	 *            of the body
+	 * @param body
+	 *            the request body
+	 * @return the response status
+	 * @throws IOException
+	 *             if the request fails
+	 */
+	public static int post(final URL url, final String contentType, final byte[] body) throws IOException {
+		return consume(send(url, contentType, new String[0], body));
+	}
+
+	/**
+	 * Issues a POST and reads the response as text
+	 *
+	 * @param url
+	 *            where to
+	 * @param contentType
+	 *            of the body
+	 * @param headers
+	 *            further request headers, name then value
+	 * @param body
+	 *            the request body
+	 * @return the response body (UTF-8), or null unless the status is 200
+	 * @throws IOException
+	 *             if the request fails
+	 */
+	public static String postText(final URL url, final String contentType, final String[] headers, final byte[] body)
+			throws IOException {
+		final HttpURLConnection connection = send(url, contentType, headers, body);
+		if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+			consume(connection);
+			return null;
+		}
+		final InputStream in = connection.getInputStream();
+		try {
+			final ByteArrayOutputStream text = new ByteArrayOutputStream(256);
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				text.write(buffer, 0, read);
+			}
+			return text.toString("UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+
+	private static HttpURLConnection send(final URL url, final String contentType, final String[] headers,
+			final byte[] body) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", contentType);
+		for (int i = 0; i + 1 < headers.length; i += 2) {
+			connection.setRequestProperty(headers[i], headers[i + 1]);
+		}
+		connection.setFixedLengthStreamingMode(body.length);
+		final OutputStream out = connection.getOutputStream();
+		try {
+			out.write(body);
+		} finally {
+			out.close();
+		}
+		return connection;
+	}
+
+	/**
+	 * Reads the whole response, so the connection is kept alive for reuse
+	 */
+	private static int consume(final HttpURLConnection connection) throws IOException {
+		final int status = connection.getResponseCode();
+		final InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+		if (in != null) {
+			try {
+				final byte[] buffer = new byte[8192];
+				while (in.read(buffer) >= 0) {
+					// discard
+				}
+			} finally {
+				in.close();
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * A virtual user, issuing requests back to back
+	 */
+	private static class User implements Runnable {
+
+		private final Scenario scenario;
+
+		private final int index;
+
+		private final long measureFrom;
+
+		private final long stopAt;
+
+		private final CountDownLatch done;
+
+		private long[] latencies = new long[1024];
+
+		private int count;
+
+		private long errors;
+
+		User(final Scenario scenario, final int index, final long measureFrom, final long stopAt,
+				final CountDownLatch done) {
+			this.scenario = scenario;
+			this.index = index;
+			this.measureFrom = measureFrom;
+			this.stopAt = stopAt;
+			this.done = done;
+		}
+
+		@Override
+		public void run() {
+			try {
+				long iteration = 0;
+				long now;
+				while ((now = System.currentTimeMillis()) < stopAt) {
+					final long started = System.nanoTime();
+					boolean ok;
+					try {
+						ok = scenario.execute(index, iteration++);
+					} catch (final IOException e) {
+						ok = false;
+					}
+					final long micros = (System.nanoTime() - started) / 1000;
+					if (now >= measureFrom) {
+						if (count == latencies.length) {
+							latencies = Arrays.copyOf(latencies, count * 2);
+						}
+						latencies[count++] = micros;
+						if (!ok) {
+							errors++;
+						}
+					}
+				}
+			} finally {
+				done.countDown();
+			}
+		}
+	}
+}
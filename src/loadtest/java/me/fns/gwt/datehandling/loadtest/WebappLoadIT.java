@@ -0,0 +1,287 @@
+package me.fns.gwt.datehandling.loadtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.webapp.WebAppContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gwt.user.server.Base64Utils;
+
+/**
+ * <p>
+ * Load test of the exploded WAR, booted in embedded Jetty bound to
+ * 127.0.0.1 only. Run with
+ *
+ * <pre>
+ * mvn clean verify -Pdefault -Plocal -Ploadtest -Dloadtest.users=20 -Dloadtest.seconds=60
+ * </pre>
+ *
+ * System properties (defaults in the <code>loadtest</code> profile):
+ * <ul>
+ * <li><code>loadtest.war</code> - the exploded WAR directory</li>
+ * <li><code>loadtest.users</code> - concurrent users per scenario</li>
+ * <li><code>loadtest.warmUpSeconds</code>, <code>loadtest.seconds</code> -
+ * unmeasured, then measured, traffic</li>
+ * <li><code>loadtest.scenarios</code> - comma separated, any of
+ * <code>hostPage</code>, <code>artifacts</code>, <code>remoteLogging</code>,
+ * <code>startupReports</code>, <code>hourLabels</code></li>
+ * <li><code>loadtest.maxErrorRate</code> - fails the build above it</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The compiled module is found by its <code>*.nocache.js</code> bootstrap
+ * script in the WAR; the test fails if there is none, or no permutations
+ * beside it. <code>remoteLogging</code> sends GWT-RPC log records, encoded
+ * against the serialization policy the compiler wrote for the module.
+ * </p>
+ *
+ */
+public class WebappLoadIT {
+
+	private static final String SERVLETS = "gwt-datehandling-example/";
+
+	private static final String NOCACHE = ".nocache.js";
+
+	private static final String POLICY = ".gwt.rpc";
+
+	private static final String LOG_RECORD = "java.util.logging.LogRecord";
+
+	private Server server;
+
+	private String base;
+
+	/**
+	 * The compiled module's directory in the WAR
+	 */
+	private File moduleDir;
+
+	@Before
+	public void startServer() throws Exception {
+		final File war = new File(System.getProperty("loadtest.war", "target/war"));
+		Assert.assertTrue("No exploded WAR at " + war.getAbsolutePath(), war.isDirectory());
+		moduleDir = moduleDir(war);
+		server = new Server();
+		final SelectChannelConnector connector = new SelectChannelConnector();
+		connector.setHost("127.0.0.1");
+		connector.setPort(0);
+		server.addConnector(connector);
+		final WebAppContext webapp = new WebAppContext();
+		webapp.setContextPath("/");
+		webapp.setWar(war.getAbsolutePath());
+		server.setHandler(webapp);
+		server.start();
+		base = "http://127.0.0.1:" + connector.getLocalPort() + "/";
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		final List<LoadGenerator.Scenario> scenarios = new ArrayList<LoadGenerator.Scenario>();
+		for (final String name : System.getProperty("loadtest.scenarios",
+				"hostPage,artifacts,remoteLogging,startupReports,hourLabels")
+				.split(",")) {
+			scenarios.add(scenario(name.trim()));
+		}
+		final LoadGenerator generator = new LoadGenerator(Integer.getInteger("loadtest.users", 10),
+				Integer.getInteger("loadtest.warmUpSeconds", 5), Integer.getInteger("loadtest.seconds", 30));
+		final List<LoadGenerator.Result> results = generator.run(scenarios);
+
+		final double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.maxErrorRate", "0.001"));
+		System.out.println("Load test of " + base + ", " + Integer.getInteger("loadtest.users", 10)
+				+ " users per scenario");
+		for (final LoadGenerator.Result result : results) {
+			System.out.println(result);
+		}
+		for (final LoadGenerator.Result result : results) {
+			Assert.assertTrue(result.getName() + " made no requests", result.getCount() > 0);
+			Assert.assertTrue(result.toString(), result.getErrorRate() <= maxErrorRate);
+		}
+	}
+
+	private LoadGenerator.Scenario scenario(final String name) throws IOException {
+		if ("hostPage".equals(name)) {
+			final URL page = new URL(base + "Example.html");
+			return new NamedScenario(name) {
+				@Override
+				public boolean execute(final int user, final long iteration) throws IOException {
+					return LoadGenerator.get(page) == 200;
+				}
+			};
+		}
+		if ("artifacts".equals(name)) {
+			final URL[] artifacts = artifacts();
+			return new NamedScenario(name) {
+				@Override
+				public boolean execute(final int user, final long iteration) throws IOException {
+					return LoadGenerator.get(artifacts[(int) ((user + iteration) % artifacts.length)]) == 200;
+				}
+			};
+		}
+		if ("remoteLogging".equals(name)) {
+			final URL logging = new URL(base + SERVLETS + "remote_logging");
+			final String moduleBase = base + moduleDir.getName() + "/";
+			final File policy = policy();
+			final String strongName = policy.getName().substring(0, policy.getName().length() - POLICY.length());
+			final String[] headers = new String[] { "X-GWT-Permutation", strongName, "X-GWT-Module-Base", moduleBase };
+			final String prefix = "7|0|8|" + moduleBase + "|" + strongName
+					+ "|com.google.gwt.logging.shared.RemoteLoggingService|logOnServer|" + typeSignature(policy, LOG_RECORD)
+					+ "|FINE|";
+			return new NamedScenario(name) {
+				@Override
+				public boolean execute(final int user, final long iteration) throws IOException {
+					// logOnServer(LogRecord): a FINE record, below the server
+					// logger's threshold, with no throwable
+					final String request = prefix + "load test record " + iteration + "|loadtest.user" + user
+							+ "|1|2|3|4|1|5|5|6|7|8|" + Base64Utils.toBase64(System.currentTimeMillis()) + "|0|";
+					final String response = LoadGenerator.postText(logging, "text/x-gwt-rpc; charset=utf-8",
+							headers, request.getBytes("UTF-8"));
+					return response != null && response.startsWith("//OK");
+				}
+			};
+		}
+		if ("startupReports".equals(name)) {
+			final URL report = new URL(base + SERVLETS + "startup_report");
+			return new NamedScenario(name) {
+				@Override
+				public boolean execute(final int user, final long iteration) throws IOException {
+					final String body = "bootstrap=" + iteration % 200 + "\ndownload=" + (user * 7 + iteration % 900)
+							+ "\nfirstRender=" + iteration % 90 + "\n";
+					return LoadGenerator.post(report, "text/plain; charset=UTF-8", body.getBytes("UTF-8")) == 204;
+				}
+			};
+		}
+		if ("hourLabels".equals(name)) {
+			final URL labels = new URL(base + SERVLETS + "hour_labels");
+			final MarketTime market = MarketTime.CENTRAL;
+			final long midnight = market.startOfDay(market.epochDay(System.currentTimeMillis()));
+			final StringBuilder day = new StringBuilder();
+			for (int hour = 1; hour <= 24; hour++) {
+				day.append(market.toIsoNoMillis(midnight + hour * MarketTime.MILLIS_PER_HOUR)).append('\n');
+			}
+			final byte[] body = day.toString().getBytes("UTF-8");
+			return new NamedScenario(name) {
+				@Override
+				public boolean execute(final int user, final long iteration) throws IOException {
+					return LoadGenerator.post(labels, "text/plain; charset=UTF-8", body) == 200;
+				}
+			};
+		}
+		throw new IllegalArgumentException("Unknown scenario " + name);
+	}
+
+	/**
+	 * @return the module's bootstrap script and every permutation of the
+	 *         compiled module in the WAR
+	 */
+	private URL[] artifacts() throws IOException {
+		final String module = base + moduleDir.getName() + "/";
+		final List<URL> urls = new ArrayList<URL>();
+		final String[] files = moduleDir.list();
+		Arrays.sort(files);
+		for (final String file : files) {
+			if (file.endsWith(".cache.html") || file.endsWith(".cache.js")) {
+				urls.add(new URL(module + file));
+			}
+		}
+		Assert.assertFalse("No compiled permutations (*.cache.html, *.cache.js) in " + moduleDir, urls.isEmpty());
+		for (final String file : files) {
+			if (file.endsWith(NOCACHE)) {
+				urls.add(0, new URL(module + file));
+			}
+		}
+		return urls.toArray(new URL[urls.size()]);
+	}
+
+	/**
+	 * @return the directory of the WAR holding a module bootstrap script
+	 */
+	private static File moduleDir(final File war) {
+		final File[] dirs = war.listFiles();
+		if (dirs != null) {
+			Arrays.sort(dirs);
+			for (final File dir : dirs) {
+				final String[] files = dir.isDirectory() ? dir.list() : null;
+				if (files != null) {
+					for (final String file : files) {
+						if (file.endsWith(NOCACHE)) {
+							return dir;
+						}
+					}
+				}
+			}
+		}
+		Assert.fail("No compiled GWT module (*" + NOCACHE + ") in " + war.getAbsolutePath());
+		return null;
+	}
+
+	/**
+	 * @return the module's serialization policy covering log records
+	 */
+	private File policy() throws IOException {
+		final File[] files = moduleDir.listFiles();
+		Arrays.sort(files);
+		for (final File file : files) {
+			if (file.getName().endsWith(POLICY) && typeSignature(file, LOG_RECORD) != null) {
+				return file;
+			}
+		}
+		Assert.fail("No serialization policy (*" + POLICY + ") for " + LOG_RECORD + " in " + moduleDir);
+		return null;
+	}
+
+	/**
+	 * @return the signature a policy gives a type, e.g.
+	 *         <code>java.util.logging.LogRecord/2492345967</code>, or null if
+	 *         it has none
+	 */
+	private static String typeSignature(final File policy, final String type) throws IOException {
+		final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(policy), "UTF-8"));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				final String[] fields = line.split(", ");
+				if (fields.length > 5 && fields[0].equals(type)) {
+					return fields[5];
+				}
+			}
+			return null;
+		} finally {
+			in.close();
+		}
+	}
+
+	private abstract static class NamedScenario implements LoadGenerator.Scenario {
+
+		private final String name;
+
+		NamedScenario(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+}
@@ -1,7 +1,12 @@
 package me.fns.gwt.datehandling.client;
 
+import me.fns.gwt.datehandling.client.util.CSTimeUtil;
+import me.fns.gwt.datehandling.shared.StartupTimeline;
+
 import com.google.gwt.cell.client.TextCell;
 import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.user.cellview.client.CellBrowser;
 import com.google.gwt.user.client.ui.RootLayoutPanel;
 import com.google.gwt.view.client.ListDataProvider;
@@ -49,6 +54,12 @@ public class ExampleHome implements EntryPoint {
 
 	@Override
 	public void onModuleLoad() {
+		// Force, and time, CSTimeUtil class initialization
+		StartupMetrics.mark(StartupTimeline.CS_TIME_UTIL_INIT, StartupTimeline.BEGIN);
+		CSTimeUtil.hoursInDay(System.currentTimeMillis());
+		StartupMetrics.mark(StartupTimeline.CS_TIME_UTIL_INIT, StartupTimeline.END);
+
+		StartupMetrics.mark(StartupTimeline.FIRST_RENDER, StartupTimeline.BEGIN);
 		// Create a model for the browser.
 		final TreeViewModel model = new CustomTreeModel();
 
@@ -60,6 +71,15 @@ public class ExampleHome implements EntryPoint {
 
 		// Add the tree to the root layout panel.
 		RootLayoutPanel.get().add(tree);
+
+		// Deferred commands run once the browser has laid out the panel
+		Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+			@Override
+			public void execute() {
+				StartupMetrics.mark(StartupTimeline.FIRST_RENDER, StartupTimeline.END);
+				StartupMetrics.report();
+			}
+		});
 	}
 
 }
@@ -0,0 +1,133 @@
+package me.fns.gwt.datehandling.client;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import me.fns.gwt.datehandling.shared.StartupTimeline;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.storage.client.Storage;
+
+/**
+ * <p>
+ * Startup timeline instrumentation using GWT lightweight metrics.
+ * </p>
+ * <p>
+ * Application phases are marked with {@link #mark(String, String)}, which
+ * raises a <code>__gwtStatsEvent</code> like those GWT raises itself during
+ * bootstrap. The host page collects every event into
+ * <code>window.__gwtStatsEvents</code>; once startup is over
+ * {@link #report()} turns them into a {@link StartupTimeline} report and
+ * POSTs it to the server, once per browser session (every load where
+ * sessionStorage is unsupported).
+ * </p>
+ *
+ */
+public final class StartupMetrics {
+
+	private static final Logger LOG = Logger.getLogger(StartupMetrics.class.getName());
+
+	private static final String REPORTED = "startupReported";
+
+	private StartupMetrics() {
+	}
+
+	/**
+	 * Marks the begin or end of a startup phase
+	 *
+	 * @param phase
+	 *            e.g. {@link StartupTimeline#FIRST_RENDER}
+	 * @param type
+	 *            {@link StartupTimeline#BEGIN} or {@link StartupTimeline#END}
+	 */
+	public static void mark(final String phase, final String type) {
+		fire(GWT.getModuleName(), phase, type);
+	}
+
+	/**
+	 * Sends the startup report, unless already sent this session
+	 */
+	public static void report() {
+		final Storage session = Storage.getSessionStorageIfSupported();
+		if (session != null && session.getItem(REPORTED) != null) {
+			return;
+		}
+		final StartupTimeline timeline = new StartupTimeline();
+		final JsArray<StatsEvent> events = events();
+		for (int i = 0; i < events.length(); i++) {
+			final StatsEvent event = events.get(i);
+			if (event.getGroup() != null && event.getType() != null) {
+				timeline.event(event.getGroup(), event.getType(), event.getMillis());
+			}
+		}
+		final String report = timeline.report();
+		if (report.isEmpty()) {
+			return;
+		}
+		final RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, GWT.getModuleBaseURL()
+				+ "startup_report");
+		builder.setHeader("Content-Type", "text/plain; charset=utf-8");
+		try {
+			builder.sendRequest(report, new RequestCallback() {
+				@Override
+				public void onResponseReceived(final Request request, final Response response) {
+					if (session != null && response.getStatusCode() == Response.SC_NO_CONTENT) {
+						session.setItem(REPORTED, "true");
+					}
+				}
+
+				@Override
+				public void onError(final Request request, final Throwable exception) {
+					LOG.log(Level.FINE, "Startup report not sent", exception);
+				}
+			});
+		} catch (final RequestException e) {
+			LOG.log(Level.FINE, "Startup report not sent", e);
+		}
+	}
+
+	private static native void fire(String moduleName, String group, String type) /*-{
+		if ($wnd.__gwtStatsEvent) {
+			$wnd.__gwtStatsEvent({
+				moduleName : moduleName,
+				sessionId : $wnd.__gwtStatsSessionId,
+				subSystem : 'startup',
+				evtGroup : group,
+				millis : (new Date()).getTime(),
+				type : type
+			});
+		}
+	}-*/;
+
+	private static native JsArray<StatsEvent> events() /*-{
+		return $wnd.__gwtStatsEvents || [];
+	}-*/;
+
+	/**
+	 * Overlay of a lightweight metrics event
+	 */
+	private static final class StatsEvent extends JavaScriptObject {
+
+		protected StatsEvent() {
+		}
+
+		native String getGroup() /*-{
+			return this.evtGroup == null ? null : String(this.evtGroup);
+		}-*/;
+
+		native String getType() /*-{
+			return this.type == null ? null : String(this.type);
+		}-*/;
+
+		native double getMillis() /*-{
+			return Number(this.millis);
+		}-*/;
+	}
+}
@@ -0,0 +1,133 @@
+package me.fns.gwt.datehandling.client.clock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.user.client.Timer;
+
+/**
+ * <p>
+ * Tells listeners when the market hour (or interval of the hour) changes,
+ * e.g. to move a dashboard on to the next hour label.
+ * </p>
+ * <p>
+ * Rather than polling, the clock works out when the current interval ends
+ * (see {@link MarketTime#nextBoundary(long, int)}, which follows the zone's
+ * transitions, the repeated 01:00 included) and schedules a single
+ * <code>Timer</code> for that moment. While no listener is registered no
+ * timer is scheduled at all.
+ * </p>
+ *
+ */
+public class MarketClock {
+
+	/**
+	 * Receives the start of each interval
+	 */
+	public interface Listener {
+
+		/**
+		 * @param instant
+		 *            epoch millis of the boundary just passed
+		 * @param hourLabel
+		 *            the hour label from then on
+		 * @param minuteLabel
+		 *            the minute label from then on, 00 for a new hour
+		 */
+		void onBoundary(long instant, String hourLabel, String minuteLabel);
+	}
+
+	private final MarketTime market;
+
+	private final int intervalsPerHour;
+
+	private final List<Listener> listeners = new ArrayList<Listener>();
+
+	private final Timer timer = new Timer() {
+		@Override
+		public void run() {
+			tick();
+		}
+	};
+
+	/**
+	 * The boundary the timer is scheduled for, 0 while stopped
+	 */
+	private long boundary;
+
+	/**
+	 * @param market
+	 *            the market time rules, e.g. {@link MarketTime#CENTRAL}
+	 * @param intervalsPerHour
+	 *            1 to be told of each hour, e.g. 12 for each 5-minute
+	 *            interval; must divide 60
+	 */
+	public MarketClock(final MarketTime market, final int intervalsPerHour) {
+		if (intervalsPerHour < 1 || 60 % intervalsPerHour != 0) {
+			throw new IllegalArgumentException("Intervals per hour must divide 60: " + intervalsPerHour);
+		}
+		this.market = market;
+		this.intervalsPerHour = intervalsPerHour;
+	}
+
+	/**
+	 * Registers a listener, starting the clock if it is the first
+	 *
+	 * @param listener
+	 *            told of each boundary from now on
+	 * @return removes the listener, stopping the clock if it is the last
+	 */
+	public HandlerRegistration addListener(final Listener listener) {
+		listeners.add(listener);
+		if (boundary == 0) {
+			schedule(System.currentTimeMillis());
+		}
+		return new HandlerRegistration() {
+			@Override
+			public void removeHandler() {
+				listeners.remove(listener);
+				if (listeners.isEmpty()) {
+					timer.cancel();
+					boundary = 0;
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return epoch millis of the next boundary, 0 while no listener is
+	 *         registered
+	 */
+	public long getNextBoundary() {
+		return boundary;
+	}
+
+	private void schedule(final long now) {
+		boundary = market.nextBoundary(now, intervalsPerHour);
+		timer.schedule((int) (boundary - now));
+	}
+
+	private void tick() {
+		final long now = System.currentTimeMillis();
+		if (now < boundary) {
+			// fired early
+			timer.schedule((int) (boundary - now));
+			return;
+		}
+		// after a sleep several boundaries may have passed; report the latest
+		long passed = boundary;
+		for (long next = market.nextBoundary(passed, intervalsPerHour); next <= now; next = market.nextBoundary(
+				next, intervalsPerHour)) {
+			passed = next;
+		}
+		schedule(now);
+		final String hourLabel = market.hourLabel(passed);
+		final String minuteLabel = market.minuteLabel(passed);
+		for (final Listener listener : new ArrayList<Listener>(listeners)) {
+			listener.onBoundary(passed, hourLabel, minuteLabel);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package me.fns.gwt.datehandling.client.feed;
+
+import me.fns.gwt.datehandling.shared.IntervalChanges;
+
+import com.google.gwt.user.client.rpc.RemoteService;
+import com.google.gwt.user.client.rpc.RemoteServiceRelativePath;
+
+/**
+ * <p>
+ * Versioned delta feed of live interval values.
+ * </p>
+ *
+ */
+@RemoteServiceRelativePath("interval_feed")
+public interface IntervalFeedService extends RemoteService {
+
+	/**
+	 * Most days that may be asked about at once
+	 */
+	int MAX_DAYS = 366;
+
+	/**
+	 * @param firstDay
+	 *            the first epoch day of interest
+	 * @param lastDay
+	 *            the last epoch day of interest
+	 * @param since
+	 *            the version last seen, 0 for everything
+	 * @return the slots changed after that version
+	 * @throws IllegalArgumentException
+	 *             if the days are out of order or more than {@link #MAX_DAYS}
+	 */
+	IntervalChanges changesSince(int firstDay, int lastDay, long since);
+}
@@ -0,0 +1,16 @@
+package me.fns.gwt.datehandling.client.feed;
+
+import me.fns.gwt.datehandling.shared.IntervalChanges;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/**
+ * <p>
+ * Asynchronous counterpart of {@link IntervalFeedService}.
+ * </p>
+ *
+ */
+public interface IntervalFeedServiceAsync {
+
+	void changesSince(int firstDay, int lastDay, long since, AsyncCallback<IntervalChanges> callback);
+}
@@ -0,0 +1,136 @@
+package me.fns.gwt.datehandling.client.feed;
+
+import me.fns.gwt.datehandling.shared.IntervalChanges;
+import me.fns.gwt.datehandling.shared.MarketDaySeries;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/**
+ * <p>
+ * Keeps a {@link MarketDaySeries} current from the interval delta feed.
+ * </p>
+ * <p>
+ * The first refresh of a day fetches every value the feed holds for it; each
+ * later refresh fetches only the slots that changed since the version the
+ * previous one returned, and writes them straight into the series, so a
+ * refresh cycle costs in proportion to what changed rather than to the size
+ * of the day. Versions are kept per day: days added to the series with
+ * {@link MarketDaySeries#addDays(int)} start from version 0, so writes made
+ * before they were added are still fetched. Call
+ * {@link #refresh(AsyncCallback)} from a <code>Timer</code>; a refresh
+ * requested while another is in flight is skipped.
+ * </p>
+ *
+ */
+public class IntervalRefresher {
+
+	private final IntervalFeedServiceAsync service;
+
+	private final MarketDaySeries series;
+
+	/**
+	 * Feed version each day held is up to date with, by position in the
+	 * series
+	 */
+	private long[] versions = new long[8];
+
+	private boolean inFlight;
+
+	/**
+	 * @param service
+	 *            the feed, e.g. <code>GWT.create(IntervalFeedService.class)</code>
+	 * @param series
+	 *            the series to keep current, with the feed's number of
+	 *            intervals per hour
+	 */
+	public IntervalRefresher(final IntervalFeedServiceAsync service, final MarketDaySeries series) {
+		this.service = service;
+		this.series = series;
+	}
+
+	/**
+	 * @return the feed version every day of the series is up to date with, 0
+	 *         before the first refresh or while a day has never been
+	 *         refreshed
+	 */
+	public long getVersion() {
+		final int dayCount = series.getDayCount();
+		if (dayCount == 0 || dayCount > versions.length) {
+			return 0;
+		}
+		long version = versions[0];
+		for (int i = 1; i < dayCount; i++) {
+			version = Math.min(version, versions[i]);
+		}
+		return version;
+	}
+
+	/**
+	 * Fetches and applies the changes since the last refresh, in one request
+	 * per run of consecutive days that have, or have not, been refreshed
+	 * before (usually one), of at most {@link IntervalFeedService#MAX_DAYS}
+	 *
+	 * @param callback
+	 *            receives the number of values written, or the failure
+	 * @return false if skipped because a refresh is already in flight
+	 */
+	public boolean refresh(final AsyncCallback<Integer> callback) {
+		if (inFlight) {
+			return false;
+		}
+		final int dayCount = series.getDayCount();
+		if (dayCount > versions.length) {
+			final long[] grown = new long[Math.max(dayCount, versions.length * 2)];
+			System.arraycopy(versions, 0, grown, 0, versions.length);
+			versions = grown;
+		}
+		inFlight = true;
+		refreshFrom(0, dayCount, 0, callback);
+		return true;
+	}
+
+	private void refreshFrom(final int from, final int dayCount, final int applied,
+			final AsyncCallback<Integer> callback) {
+		if (from >= dayCount) {
+			inFlight = false;
+			callback.onSuccess(applied);
+			return;
+		}
+		// days never refreshed are fetched from 0; the rest together, from the
+		// oldest version among them (re-sending a slot rewrites the same value)
+		final boolean fresh = versions[from] == 0;
+		long oldest = versions[from];
+		final int limit = Math.min(dayCount, from + IntervalFeedService.MAX_DAYS);
+		int to = from + 1;
+		while (to < limit && (versions[to] == 0) == fresh) {
+			oldest = Math.min(oldest, versions[to]);
+			to++;
+		}
+		final long since = oldest;
+		final int end = to;
+		final int firstDay = series.getFirstDay();
+		service.changesSince(firstDay + from, firstDay + end - 1, since, new AsyncCallback<IntervalChanges>() {
+			@Override
+			public void onSuccess(final IntervalChanges changes) {
+				final int written;
+				try {
+					written = changes.applyTo(series);
+				} catch (final IllegalArgumentException e) {
+					inFlight = false;
+					callback.onFailure(e);
+					return;
+				}
+				for (int i = from; i < end; i++) {
+					versions[i] = changes.getVersion();
+				}
+				refreshFrom(end, dayCount, applied + written, callback);
+			}
+
+			@Override
+			public void onFailure(final Throwable caught) {
+				inFlight = false;
+				callback.onFailure(caught);
+			}
+		});
+	}
+}
@@ -0,0 +1,137 @@
+package me.fns.gwt.datehandling.client.grid;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+import com.google.gwt.cell.client.AbstractCell;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.safehtml.client.SafeHtmlTemplates;
+import com.google.gwt.safehtml.shared.SafeHtml;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.safehtml.shared.SafeHtmlUtils;
+
+/**
+ * <p>
+ * Cell for hour, minute and interval labels. The set of labels is small and
+ * fixed (25 hour labels, at most a few hundred intervals), so the HTML of
+ * each is built once, when the cell is created, and rendering a label is a
+ * lookup: no escaping and no new Strings however often a table redraws.
+ * Labels outside the set are escaped as {@link com.google.gwt.cell.client.TextCell}
+ * would.
+ * </p>
+ * <p>
+ * Labels of the repeated hour (02*) carry the <code>extraHour</code> style.
+ * Where a layout shows rows for hours a day does not have (e.g. 02 on the
+ * spring transition day in a 25 row layout), override
+ * {@link #isSkipped(Context, String)} and those labels carry the
+ * <code>skippedHour</code> style instead.
+ * </p>
+ *
+ */
+public class LabelCell extends AbstractCell<String> {
+
+	interface Templates extends SafeHtmlTemplates {
+		@Template("<span class=\"{0}\">{1}</span>")
+		SafeHtml styled(String styleName, String label);
+	}
+
+	/**
+	 * Label of the repeated hour, and prefix of its interval labels
+	 */
+	private static final String EXTRA_HOUR = "02*";
+
+	public static final String EXTRA_HOUR_STYLE = "extraHour";
+
+	public static final String SKIPPED_HOUR_STYLE = "skippedHour";
+
+	private static Templates templates;
+
+	private final Map<String, SafeHtml> html = new HashMap<String, SafeHtml>();
+
+	private final Map<String, SafeHtml> skippedHtml = new HashMap<String, SafeHtml>();
+
+	/**
+	 * @param labels
+	 *            the labels to build HTML for
+	 */
+	public LabelCell(final String... labels) {
+		if (templates == null) {
+			templates = GWT.create(Templates.class);
+		}
+		for (final String label : labels) {
+			html.put(label, label.startsWith(EXTRA_HOUR) ? templates.styled(EXTRA_HOUR_STYLE, label)
+					: SafeHtmlUtils.fromString(label));
+			skippedHtml.put(label, templates.styled(SKIPPED_HOUR_STYLE, label));
+		}
+	}
+
+	/**
+	 * @return a cell for the hour labels 01 to 24 and 02*
+	 */
+	public static LabelCell hours() {
+		return new LabelCell(MarketTime.labelsForHours(25));
+	}
+
+	/**
+	 * @param minuteInterval
+	 *            minutes per interval, a divisor of 60
+	 * @return a cell for the minute labels of the intervals starting within an
+	 *         hour, e.g. 00, 05 .. 55
+	 */
+	public static LabelCell minutes(final int minuteInterval) {
+		return new LabelCell(minuteLabels(minuteInterval));
+	}
+
+	/**
+	 * @param minuteInterval
+	 *            minutes per interval, a divisor of 60
+	 * @return a cell for interval labels, an hour label and a minute label
+	 *         joined by a colon, e.g. 02*:05
+	 */
+	public static LabelCell intervals(final int minuteInterval) {
+		final String[] hours = MarketTime.labelsForHours(25);
+		final String[] minutes = minuteLabels(minuteInterval);
+		final String[] labels = new String[hours.length * minutes.length];
+		for (int h = 0; h < hours.length; h++) {
+			for (int m = 0; m < minutes.length; m++) {
+				labels[h * minutes.length + m] = hours[h] + ":" + minutes[m];
+			}
+		}
+		return new LabelCell(labels);
+	}
+
+	@Override
+	public void render(final Context context, final String value, final SafeHtmlBuilder sb) {
+		if (value == null) {
+			return;
+		}
+		final SafeHtml label = (isSkipped(context, value) ? skippedHtml : html).get(value);
+		sb.append(label == null ? SafeHtmlUtils.fromString(value) : label);
+	}
+
+	/**
+	 * @param context
+	 *            the context of the cell being rendered
+	 * @param value
+	 *            its label
+	 * @return whether the label is of an hour the day does not have; false
+	 *         unless overridden
+	 */
+	protected boolean isSkipped(final Context context, final String value) {
+		return false;
+	}
+
+	private static String[] minuteLabels(final int minuteInterval) {
+		if (minuteInterval <= 0 || 60 % minuteInterval != 0) {
+			throw new IllegalArgumentException("Not a divisor of 60: " + minuteInterval);
+		}
+		final String[] labels = new String[60 / minuteInterval];
+		for (int i = 0; i < labels.length; i++) {
+			final int minute = i * minuteInterval;
+			labels[i] = minute < 10 ? "0" + minute : String.valueOf(minute);
+		}
+		return labels;
+	}
+}
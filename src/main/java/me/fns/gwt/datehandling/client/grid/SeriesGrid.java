@@ -0,0 +1,266 @@
+package me.fns.gwt.datehandling.client.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.fns.gwt.datehandling.client.util.CSTimeUtil;
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.MarketDaySeries;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.dom.client.Style.Position;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.dom.client.TableRowElement;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
+import com.google.gwt.i18n.client.NumberFormat;
+import com.google.gwt.user.cellview.client.CellTable;
+import com.google.gwt.user.cellview.client.Column;
+import com.google.gwt.user.cellview.client.TextColumn;
+import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.ScrollPanel;
+
+/**
+ * <p>
+ * Scrolling grid of a {@link MarketDaySeries}, one row per value: day, hour
+ * label, minute label (if more than one value per hour) and value.
+ * </p>
+ * <p>
+ * Only the rows in view, plus {@link #BUFFER} rows either side, are in the
+ * DOM. The {@link CellTable} is a fixed-size window over the series, placed
+ * by absolute position inside a spacer as tall as all rows would be; when
+ * scrolling brings the window's edge within a quarter buffer of the view,
+ * the window moves and the table redraws the same number of rows in its
+ * existing body. Scroll events are coalesced to one update per animation
+ * frame. A row is only the series index; its labels come from
+ * {@link CSTimeUtil} when the row is drawn, so no label is computed for rows
+ * never shown, and {@link LabelCell}s render them from prebuilt HTML.
+ * </p>
+ * <p>
+ * Row height is measured from the first row drawn, so rows must keep to a
+ * single line (see <code>.seriesGrid</code> in Example.css).
+ * </p>
+ *
+ */
+public class SeriesGrid extends Composite {
+
+	/**
+	 * Rows drawn above and below those in view
+	 */
+	private static final int BUFFER = 40;
+
+	/**
+	 * Row height assumed until one has been measured
+	 */
+	private static final int DEFAULT_ROW_HEIGHT = 24;
+
+	private final ScrollPanel scroller = new ScrollPanel();
+
+	private final FlowPanel spacer = new FlowPanel();
+
+	private final CellTable<Integer> table = new CellTable<Integer>(0);
+
+	/**
+	 * Present for series of more than one value per hour
+	 */
+	private Column<Integer, String> minuteColumn;
+
+	private int minuteColumnInterval;
+
+	private MarketDaySeries series;
+
+	private int rowHeight = DEFAULT_ROW_HEIGHT;
+
+	private int headerHeight;
+
+	private boolean measured;
+
+	/**
+	 * Rows drawn: <code>[rangeStart, rangeStart + rangeLength)</code>
+	 */
+	private int rangeStart;
+
+	private int rangeLength;
+
+	private boolean updatePending;
+
+	public SeriesGrid() {
+		final NumberFormat valueFormat = NumberFormat.getDecimalFormat();
+		table.addColumn(new TextColumn<Integer>() {
+			@Override
+			public String getValue(final Integer index) {
+				return formatDay(series.dayAt(index));
+			}
+		}, "Day");
+		table.addColumn(new Column<Integer, String>(LabelCell.hours()) {
+			@Override
+			public String getValue(final Integer index) {
+				return CSTimeUtil.hourLabel(series.instantAt(index));
+			}
+		}, "Hour");
+		table.addColumn(new TextColumn<Integer>() {
+			@Override
+			public String getValue(final Integer index) {
+				final double value = series.valueAt(index);
+				return Double.isNaN(value) ? "-" : valueFormat.format(value);
+			}
+		}, "Value");
+		table.setWidth("100%");
+		table.getElement().getStyle().setPosition(Position.ABSOLUTE);
+		table.getElement().getStyle().setLeft(0, Unit.PX);
+		table.getElement().getStyle().setTop(0, Unit.PX);
+
+		spacer.getElement().getStyle().setPosition(Position.RELATIVE);
+		spacer.add(table);
+		scroller.setWidget(spacer);
+		scroller.addScrollHandler(new ScrollHandler() {
+			@Override
+			public void onScroll(final ScrollEvent event) {
+				scheduleUpdate();
+			}
+		});
+		initWidget(scroller);
+		addStyleName("seriesGrid");
+	}
+
+	/**
+	 * Shows a series from its first row
+	 *
+	 * @param data
+	 *            the series; values changed later show when their rows are
+	 *            next drawn
+	 */
+	public void setData(final MarketDaySeries data) {
+		series = data;
+		final int minuteInterval = 60 / data.getIntervalsPerHour();
+		if (minuteColumn != null && minuteColumnInterval != minuteInterval) {
+			table.removeColumn(minuteColumn);
+			minuteColumn = null;
+		}
+		if (minuteColumn == null && minuteInterval < 60) {
+			minuteColumn = new Column<Integer, String>(LabelCell.minutes(minuteInterval)) {
+				@Override
+				public String getValue(final Integer index) {
+					return CSTimeUtil.minuteLabel(series.instantAt(index));
+				}
+			};
+			minuteColumnInterval = minuteInterval;
+			table.insertColumn(2, minuteColumn, "Minute");
+		}
+		table.setRowCount(data.size(), true);
+		rangeStart = 0;
+		rangeLength = 0;
+		scroller.scrollToTop();
+		update();
+	}
+
+	/**
+	 * Scrolls a row into view, at the top if possible
+	 *
+	 * @param index
+	 *            series index of the row
+	 */
+	public void scrollToRow(final int index) {
+		scroller.setVerticalScrollPosition(headerHeight + index * rowHeight);
+		scheduleUpdate();
+	}
+
+	/**
+	 * @return the series index of the first row in view
+	 */
+	public int getFirstVisibleRow() {
+		return Math.max(0, (scroller.getVerticalScrollPosition() - headerHeight) / rowHeight);
+	}
+
+	@Override
+	protected void onLoad() {
+		super.onLoad();
+		scheduleUpdate();
+	}
+
+	private void scheduleUpdate() {
+		if (updatePending) {
+			return;
+		}
+		updatePending = true;
+		AnimationScheduler.get().requestAnimationFrame(new AnimationCallback() {
+			@Override
+			public void execute(final double timestamp) {
+				updatePending = false;
+				update();
+			}
+		});
+	}
+
+	/**
+	 * Moves the drawn window if the rows in view are no longer well inside it
+	 */
+	private void update() {
+		if (series == null) {
+			return;
+		}
+		final int size = series.size();
+		final int first = Math.min(getFirstVisibleRow(), Math.max(0, size - 1));
+		final int visible = Math.max(1, scroller.getOffsetHeight() / rowHeight + 1);
+		final int rangeEnd = rangeStart + rangeLength;
+		final int margin = BUFFER / 4;
+		if (rangeLength > 0 && first >= rangeStart + (rangeStart == 0 ? 0 : margin)
+				&& first + visible <= rangeEnd - (rangeEnd == size ? 0 : margin)) {
+			return;
+		}
+		rangeStart = Math.max(0, first - BUFFER);
+		rangeLength = Math.min(size, first + visible + BUFFER) - rangeStart;
+		final List<Integer> rows = new ArrayList<Integer>(rangeLength);
+		for (int i = 0; i < rangeLength; i++) {
+			rows.add(Integer.valueOf(rangeStart + i));
+		}
+		table.setVisibleRange(rangeStart, rangeLength);
+		table.setRowData(rangeStart, rows);
+		table.getElement().getStyle().setTop(rangeStart * rowHeight, Unit.PX);
+		spacer.setHeight(headerHeight + size * rowHeight + "px");
+		if (!measured && rangeLength > 0 && isAttached()) {
+			Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+				@Override
+				public void execute() {
+					measure();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Takes the row and header heights from the first row drawn
+	 */
+	private void measure() {
+		if (measured || rangeLength == 0) {
+			return;
+		}
+		final TableRowElement row = table.getRowElement(0);
+		if (row.getOffsetHeight() <= 0) {
+			return;
+		}
+		measured = true;
+		// the header sits above the first drawn row, which lies out of view
+		// (within the buffer) unless the window starts at row 0
+		headerHeight = row.getOffsetTop();
+		rowHeight = row.getOffsetHeight();
+		rangeLength = 0;
+		update();
+	}
+
+	private static String formatDay(final int epochDay) {
+		final int date = CivilDate.fromEpochDay(epochDay);
+		final StringBuilder result = new StringBuilder(10);
+		result.append(CivilDate.year(date)).append('-');
+		appendTwoDigits(result, CivilDate.month(date)).append('-');
+		return appendTwoDigits(result, CivilDate.day(date)).toString();
+	}
+
+	private static StringBuilder appendTwoDigits(final StringBuilder buf, final int value) {
+		return buf.append(value < 10 ? "0" : "").append(value);
+	}
+}
@@ -0,0 +1,242 @@
+package me.fns.gwt.datehandling.client.heatmap;
+
+import me.fns.gwt.datehandling.client.util.CSTimeUtil;
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.MarketDaySeries;
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.canvas.dom.client.CanvasPixelArray;
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.gwt.canvas.dom.client.ImageData;
+import com.google.gwt.event.dom.client.MouseMoveEvent;
+import com.google.gwt.event.dom.client.MouseMoveHandler;
+import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.Label;
+
+/**
+ * <p>
+ * Year-at-a-glance heatmap of hourly values, drawn on a single canvas: one
+ * column per day, one row per hour label.
+ * </p>
+ * <p>
+ * Rows follow the 25 labels of the longest day (see
+ * {@link MarketTime#alignedRow(int, int)}), so an hour sits on the same row
+ * every day; a 24 hour day leaves the 02* row empty and a 23 hour day the 02
+ * and 02* rows too. Day lengths come from {@link CSTimeUtil#dayProfile(int)}.
+ * </p>
+ * <p>
+ * The whole year is written into one ImageData and put in a single call.
+ * Pointer positions map back to day and hour label by arithmetic alone (see
+ * {@link #dayAt(int)} and {@link #labelAt(int, int)}); hovering shows the
+ * cell's day, label and value as the canvas title.
+ * </p>
+ *
+ */
+public class HourlyHeatmap extends Composite {
+
+	/**
+	 * Rows, one per label of the longest day
+	 */
+	private static final int ROWS = 25;
+
+	private static final String[] ROW_LABELS = MarketTime.labelsForHours(ROWS);
+
+	/**
+	 * Colour of hours without a value
+	 */
+	private static final int MISSING = 0xdddddd;
+
+	/**
+	 * Colour ramp from lowest (index 0) to highest (index 255) value
+	 */
+	private static final int[] RAMP = new int[256];
+
+	static {
+		// blue through pale yellow to red
+		final int[] low = new int[] { 49, 54, 149 };
+		final int[] mid = new int[] { 255, 255, 191 };
+		final int[] high = new int[] { 165, 0, 38 };
+		for (int i = 0; i < RAMP.length; i++) {
+			final int[] from = i < 128 ? low : mid;
+			final int[] to = i < 128 ? mid : high;
+			final int step = i < 128 ? i : i - 128;
+			int rgb = 0;
+			for (int c = 0; c < 3; c++) {
+				rgb = rgb << 8 | from[c] + (to[c] - from[c]) * step / 127;
+			}
+			RAMP[i] = rgb;
+		}
+	}
+
+	private final Canvas canvas;
+
+	private final int cellWidth;
+
+	private final int cellHeight;
+
+	private int firstDay;
+
+	private int dayCount;
+
+	private MarketDaySeries series;
+
+	/**
+	 * @param cellWidth
+	 *            pixels per day
+	 * @param cellHeight
+	 *            pixels per hour
+	 */
+	public HourlyHeatmap(final int cellWidth, final int cellHeight) {
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+		canvas = Canvas.createIfSupported();
+		if (canvas == null) {
+			initWidget(new Label("Your browser does not support the HTML5 canvas."));
+			return;
+		}
+		initWidget(canvas);
+		canvas.addMouseMoveHandler(new MouseMoveHandler() {
+			@Override
+			public void onMouseMove(final MouseMoveEvent event) {
+				canvas.setTitle(describe(event.getRelativeX(canvas.getElement()),
+						event.getRelativeY(canvas.getElement())));
+			}
+		});
+	}
+
+	/**
+	 * Draws a calendar year of hourly values, coloured from the lowest to the
+	 * highest value the series holds
+	 *
+	 * @param year
+	 *            the calendar year
+	 * @param hourly
+	 *            the values, one per hour; days it does not hold are drawn as
+	 *            missing
+	 * @throws IllegalArgumentException
+	 *             if the series is not hourly
+	 */
+	public void setData(final int year, final MarketDaySeries hourly) {
+		if (hourly.getIntervalsPerHour() != 1) {
+			throw new IllegalArgumentException("Not an hourly series: " + hourly.getIntervalsPerHour()
+					+ " intervals per hour");
+		}
+		firstDay = CivilDate.toEpochDay(year, 1, 1);
+		dayCount = CivilDate.toEpochDay(year + 1, 1, 1) - firstDay;
+		series = hourly;
+		if (canvas == null) {
+			return;
+		}
+		final int width = dayCount * cellWidth;
+		final int height = ROWS * cellHeight;
+		canvas.setCoordinateSpaceWidth(width);
+		canvas.setCoordinateSpaceHeight(height);
+		canvas.setPixelSize(width, height);
+
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < hourly.size(); i++) {
+			final double value = hourly.valueAt(i);
+			if (!Double.isNaN(value)) {
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+		}
+		final double scale = max > min ? (RAMP.length - 1) / (max - min) : 0;
+
+		final Context2d context = canvas.getContext2d();
+		final ImageData image = context.createImageData(width, height);
+		final CanvasPixelArray pixels = image.getData();
+		for (int column = 0; column < dayCount; column++) {
+			final int day = firstDay + column;
+			final int hours = CSTimeUtil.dayProfile(day).getHours();
+			final int index = indexOf(day);
+			for (int slot = 0; slot < hours; slot++) {
+				final double value = index < 0 ? Double.NaN : hourly.valueAt(index + slot);
+				final int rgb = Double.isNaN(value) ? MISSING : RAMP[(int) ((value - min) * scale)];
+				fill(pixels, width, column * cellWidth, MarketTime.alignedRow(hours, slot) * cellHeight, rgb);
+			}
+		}
+		context.putImageData(image, 0, 0);
+	}
+
+	/**
+	 * @param x
+	 *            pixels from the left edge
+	 * @return the epoch day drawn at a position, or
+	 *         <code>Integer.MIN_VALUE</code> if none is
+	 */
+	public int dayAt(final int x) {
+		final int column = x < 0 ? -1 : x / cellWidth;
+		return column < 0 || column >= dayCount ? Integer.MIN_VALUE : firstDay + column;
+	}
+
+	/**
+	 * @param x
+	 *            pixels from the left edge
+	 * @param y
+	 *            pixels from the top edge
+	 * @return the hour label drawn at a position, or null if none is (e.g.
+	 *         the 02* row of a 24 hour day)
+	 */
+	public String labelAt(final int x, final int y) {
+		final int day = dayAt(x);
+		final int row = y < 0 ? -1 : y / cellHeight;
+		if (day == Integer.MIN_VALUE || row >= ROWS
+				|| MarketTime.alignedSlot(CSTimeUtil.dayProfile(day).getHours(), row) < 0) {
+			return null;
+		}
+		return ROW_LABELS[row];
+	}
+
+	/**
+	 * @return <code>yyyy-MM-dd HH: value</code> of the cell at a position, or
+	 *         "" if there is none
+	 */
+	private String describe(final int x, final int y) {
+		final String label = labelAt(x, y);
+		if (label == null) {
+			return "";
+		}
+		final int day = dayAt(x);
+		final int date = CivilDate.fromEpochDay(day);
+		final StringBuilder result = new StringBuilder(32);
+		result.append(CivilDate.year(date)).append('-');
+		appendTwoDigits(result, CivilDate.month(date)).append('-');
+		appendTwoDigits(result, CivilDate.day(date)).append(' ').append(label).append(": ");
+		final int index = indexOf(day);
+		final DayProfile profile = CSTimeUtil.dayProfile(day);
+		final double value = index < 0 ? Double.NaN : series.valueAt(index + profile.slotOf(label));
+		return result.append(Double.isNaN(value) ? "-" : String.valueOf(value)).toString();
+	}
+
+	/**
+	 * @return the series index of a day's first hour, or -1 if not held
+	 */
+	private int indexOf(final int day) {
+		return series == null || day < series.getFirstDay()
+				|| day >= series.getFirstDay() + series.getDayCount() ? -1 : series.indexOf(day);
+	}
+
+	private void fill(final CanvasPixelArray pixels, final int width, final int left, final int top, final int rgb) {
+		final int red = rgb >> 16 & 0xff;
+		final int green = rgb >> 8 & 0xff;
+		final int blue = rgb & 0xff;
+		for (int y = top; y < top + cellHeight; y++) {
+			int offset = (y * width + left) * 4;
+			for (int x = 0; x < cellWidth; x++) {
+				pixels.set(offset, red);
+				pixels.set(offset + 1, green);
+				pixels.set(offset + 2, blue);
+				pixels.set(offset + 3, 255);
+				offset += 4;
+			}
+		}
+	}
+
+	private static StringBuilder appendTwoDigits(final StringBuilder buf, final int value) {
+		return buf.append(value < 10 ? "0" : "").append(value);
+	}
+}
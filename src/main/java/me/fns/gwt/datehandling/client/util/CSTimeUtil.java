@@ -2,15 +2,14 @@ package me.fns.gwt.datehandling.client.util;
 
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
-import com.google.gwt.core.client.GWT;
-import com.google.gwt.i18n.client.TimeZone;
-import com.google.gwt.i18n.client.constants.TimeZoneConstants;
-import com.google.gwt.i18n.shared.DateTimeFormat;
-import com.google.gwt.user.datepicker.client.CalendarUtil;
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.DayProfileCache;
+import me.fns.gwt.datehandling.shared.IsoNoMillis;
+import me.fns.gwt.datehandling.shared.MarketTime;
 
 
 /**
@@ -41,8 +40,14 @@ import com.google.gwt.user.datepicker.client.CalendarUtil;
  * .
  * </p>
  * <p>
- * Works with GWT's DateTimeFormat, TimeZone, and TimeZoneConstants
- * infrastructure to format and parse inputs.
+ * Each java.util.Date method has an epoch millis (<code>long</code>)
+ * overload, e.g. {@link #hourLabel(long)}, {@link #hoursInDay(long)} and
+ * {@link #shiftHours(long, int)}, which allocates nothing on the hot path; the
+ * java.util.Date methods are thin wrappers around them.
+ * </p>
+ * <p>
+ * Works with the shared {@link MarketTime} rules (US Central Time, "market
+ * time") to format and parse inputs.
  * </p>
  * 
  * @author cphillipson
@@ -51,83 +56,30 @@ import com.google.gwt.user.datepicker.client.CalendarUtil;
 public class CSTimeUtil {
 
 	/**
-	 * Instantiates an instance of TimeZoneContants via deferred binding
-	 * mechanism.
-	 */
-	private static final TimeZoneConstants TZ_CONSTANTS_INSTANCE = GWT.create(TimeZoneConstants.class);
-
-	/**
-	 * TimeZone instance used to coerce browser client time zone to be
-	 * "Market time".
-	 */
-	private static final TimeZone TZ = TimeZone.createTimeZone(TZ_CONSTANTS_INSTANCE.americaChicago());
-
-	/**
-	 * ISO8601 formatter yyyy-MM-ddTHH:mm:ss.SZZZZ, where hours are represented
-	 * 0-23, where 0 is midnight (12:00AM) and 23 is 11:00PM
-	 */
-	private static DateTimeFormat isoFormat = DateTimeFormat.getFormat("yyyy-MM-ddTHH:mm:ss.SZZZZ");
-
-	/**
-	 * Day formatter (day of month, where first day of month is 1)
-	 */
-	private static DateTimeFormat dayFormat = DateTimeFormat.getFormat("dd");
-
-	/**
-	 * Month formatter (where 1 = January and 12 = December)
+	 * "Market time" rules used to coerce browser client time zone to be US
+	 * Central Time.
 	 */
-	private static DateTimeFormat monthFormat = DateTimeFormat.getFormat("MM");
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
 
 	/**
-	 * Year format (4-digit representation)
+	 * Day profiles, persisted in localStorage (where supported) so that warm
+	 * reloads skip recomputing transition days.
 	 */
-	private static DateTimeFormat yearFormat = DateTimeFormat.getFormat("yyyy");
-
-	/**
-	 * Padded hour format (first hour of day is 0, last hour of day is 23)
-	 */
-	private static DateTimeFormat paddedHourFormat = DateTimeFormat.getFormat("HH");
-
-	/**
-	 * Padded minute format (ranged from 00-59)
-	 */
-	private static DateTimeFormat minuteFormat = DateTimeFormat.getFormat("mm");
-
-	/**
-	 * The number of days in each month of the year.
-	 */
-	private static int[] daysInMonth = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
-
-	/**
-	 * Hour labels for a 24 hour day, regardless of Daylight Savings or Standard
-	 * Time time zone offset. Hour 1 is 1:00AM, Hour 24 is 12:00AM of the
-	 * following day.
-	 */
-	private static String[] normalDayLabels = new String[] { "01", "02", "03", "04", "05", "06", "07", "08", "09",
-		"10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "23", "24" };
-
-	/**
-	 * Hour labels for 23 hour day, where day is a "transition day" from
-	 * Standard Time to Daylight Savings. Hour 1 is 1:00AM, Hour 23 is 12:00AM
-	 * of the following day. 2:00AM is skipped.
-	 */
-	private static String[] shortDayLabels = new String[] { "01", "03", "04", "05", "06", "07", "08", "09", "10", "11",
-		"12", "13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "23", "24" };
-
-	/**
-	 * Hour labels for 25 hour day, where day is a "transition day" from
-	 * Daylight Savings to Standard Time. Hour 1 is 1:00AM, Hour 25 is 12:00AM
-	 * of the following day. 2:00AM is repeated.
-	 */
-	private static String[] longDayLabels = new String[] { "01", "02", "02*", "03", "04", "05", "06", "07", "08", "09",
-		"10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "23", "24" };
+	private static final DayProfileCache PROFILES = new DayProfileCache(MARKET, StorageProfileStore.localStorage(),
+			DayProfileCache.DEFAULT_MAX_YEARS);
+
+	static {
+		// years inlined into the host page by the server need not be computed
+		final MarketCalendarData hostPageCalendar = MarketCalendarData.get();
+		if (hostPageCalendar != null) {
+			hostPageCalendar.preload(PROFILES, MARKET.getZone());
+		}
+	}
 
 
 	/**
 	 * Calculates a java.util.Date from an ISO8601 formatted String (with no
-	 * millis) If the String does not contain a "GMT" prefix for the time zone
-	 * offset hours it is added to the String before being parsed by
-	 * <code>isoFormat</code>.
+	 * millis). The time zone offset may or may not carry a "GMT" prefix.
 	 * 
 	 * @param iso
 	 *            an IS601 formatted String
@@ -136,23 +88,25 @@ public class CSTimeUtil {
 	public static Date isoNoMillisToDate(final String iso) {
 		Date result = null;
 		if (iso != null) {
-			final String part1 = iso.substring(0, 19);
-			final String part2 = iso.substring(19);
-			final StringBuffer buf = new StringBuffer();
-			// yyyy-MM-ddTHH:mm:ss
-			buf.append(part1);
-			// millis
-			buf.append(".000");
-			// coerce offset to be GMT +/-
-			if (!part2.contains("GMT")) {
-				buf.append("GMT");
-			}
-			buf.append(part2);
-			result = isoFormat.parse(buf.toString());
+			result = new Date(isoNoMillisToMillis(iso));
 		}
 		return result;
 	}
 
+	/**
+	 * Calculates epoch millis from an ISO8601 formatted String (with no
+	 * millis). The time zone offset may or may not carry a "GMT" prefix.
+	 * 
+	 * @param iso
+	 *            an IS601 formatted String
+	 * @return epoch millis
+	 * @throws IllegalArgumentException
+	 *             if iso is not well formed
+	 */
+	public static long isoNoMillisToMillis(final String iso) {
+		return MarketTime.parseIsoNoMillis(iso);
+	}
+
 	/**
 	 * Determines the hour label corresponding to a java.util.Date
 	 * 
@@ -164,45 +118,51 @@ public class CSTimeUtil {
 	public static String dateToHourLabel(final Date date) {
 		String hour = null;
 		if (date != null) {
-			hour = paddedHourFormat.format(date, TZ);
-			final String tz = determineTimezoneOffset(date, 0);
-			if (hour != null) {
-				// midnight is the 24th hour!
-				if (hour.equals("00")) {
-					hour = "24";
-				}
-				if (hour.equals("01")) {
-					final Date piorHourAsDate = generateHour(date, -1);
-					final String priorTz = determineTimezoneOffset(piorHourAsDate, 0);
-					if (!tz.equals(priorTz)) {
-						hour = "02";
-					}
-				}
-				if (isExtraHour(date)) {
-					hour = "02*";
-				}
-			}
+			hour = hourLabel(date.getTime());
 		}
 		return hour;
 	}
 
+	/**
+	 * Determines the hour label corresponding to epoch millis
+	 * 
+	 * @param instant
+	 *            epoch millis (typically a whole hour)
+	 * @return an hour label where 01 represents 1:00AM and 24 represents
+	 *         12:00AM of the following day
+	 */
+	public static String hourLabel(final long instant) {
+		return MARKET.hourLabel(instant);
+	}
+
 	/**
 	 * Determines the minute label corresponding to a java.util.Date
 	 * 
 	 * @param date
 	 *            a java.util.Date (with minutes)
-	 * @return a minute interval label where 01 represents the 5th minute and 12
-	 *         represents the 0th minute of the following day
+	 * @return the minute of the hour, 00-59, in market time; null if date is
+	 *         null
 	 */
 	public static String dateToMinuteLabel(final Date date) {
 		String minute = null;
 		if (date != null) {
-			// FIXME not exactly what we need!
-			minute = minuteFormat.format(date, TZ);
+			minute = minuteLabel(date.getTime());
 		}
 		return minute;
 	}
 
+	/**
+	 * Determines the minute label corresponding to epoch millis
+	 * 
+	 * @param instant
+	 *            epoch millis (with minutes)
+	 * @return the minute of the hour, 00-59, in market time (see
+	 *         {@link MarketTime#minuteLabel(long)})
+	 */
+	public static String minuteLabel(final long instant) {
+		return MARKET.minuteLabel(instant);
+	}
+
 
 	/**
 	 * Determines whether current hour is an "extra hour" when transitioning
@@ -213,16 +173,20 @@ public class CSTimeUtil {
 	 * @return true if the date is a "transition day"; false otherwise
 	 */
 	public static boolean isExtraHour(final Date date) {
-		boolean result = false;
-		final Date twoHoursBefore = generateHour(date, -2);
-		final Date oneHourBefore = generateHour(date, -1);
-		final Date currentDate = generateHour(date, 0);
-
-		if (TZ.isDaylightTime(twoHoursBefore) && !TZ.isDaylightTime(oneHourBefore) && !TZ.isDaylightTime(currentDate)) {
-			result = true;
-		}
+		return isExtraHour(date.getTime());
+	}
 
-		return result;
+	/**
+	 * Determines whether current hour is an "extra hour" when transitioning
+	 * from Daylight Savings to Standard Time
+	 * 
+	 * @param instant
+	 *            epoch millis
+	 * @return true if the hour is the repeated hour of a "transition day";
+	 *         false otherwise
+	 */
+	public static boolean isExtraHour(final long instant) {
+		return MARKET.isExtraHour(instant);
 	}
 
 	/**
@@ -238,124 +202,26 @@ public class CSTimeUtil {
 	 *         offset from date
 	 */
 	public static Date generateHour(final Date date, final int offset) {
-
-		final int year = Integer.valueOf(yearFormat.format(date, TZ));
-		final int month = Integer.valueOf(monthFormat.format(date, TZ));
-		final int day = Integer.valueOf(dayFormat.format(date, TZ));
-		final int hour = Integer.valueOf(paddedHourFormat.format(date, TZ));
-		String tz = null;
-
 		// This algorithm is limited... offset value must therefore be between
 		// -/+ 24 hours
 		if (offset > 24 || offset < -24) {
 			throw new IllegalArgumentException("Offset value must be between -/+ 24 hours!");
 		}
-
-		// Note: an IllegalArgumentException will be thrown when year, month,
-		// day and hour combination does not represent a real calendar day/time.
-
-		int newYear = year;
-		int newMonth = month;
-		int newDay = day;
-		int newHour = hour + offset;
-		// yesterday
-		if (newHour <= 0) {
-			tz = determineTimezoneOffset(date, -1);
-			newHour = 24 + newHour;
-			newDay--;
-			if (newDay == 0) {
-				newMonth--;
-				if (newMonth == 0) {
-					newMonth = 12;
-					newYear--;
-				}
-				newDay = daysInMonth[newMonth - 1];
-				// Adjust for leap year
-				if (newMonth == 2) {
-					if (newYear % 400 == 0 || newYear % 4 == 0 && newYear % 100 != 0) {
-						newDay++;
-					}
-				}
-			}
-		} else
-			// same day
-			if (newHour >= 0 && newHour <= 23) {
-				tz = determineTimezoneOffset(date, 0);
-				int numDays = daysInMonth[month - 1];
-				// Adjust for leap year
-				if (month == 2) {
-					if (year % 400 == 0 || year % 4 == 0 && year % 100 != 0) {
-						numDays++;
-					}
-				}
-				if (newDay > numDays) {
-					newDay = 1;
-					newMonth++;
-					if (newMonth > 12) {
-						newMonth = 1;
-						newYear++;
-					}
-				}
-			} else
-				// tomorrow
-				if (newHour > 23) {
-					tz = determineTimezoneOffset(date, 1);
-					newHour = 0 + offset - 1;
-					newDay++;
-					int numDays = daysInMonth[month - 1];
-					// Adjust for leap year
-					if (month == 2) {
-						if (year % 400 == 0 || year % 4 == 0 && year % 100 != 0) {
-							numDays++;
-						}
-					}
-					if (newDay > numDays) {
-						newDay = 1;
-						newMonth++;
-						if (newMonth > 12) {
-							newMonth = 1;
-							newYear++;
-						}
-					}
-				}
-
-		final StringBuffer buf = new StringBuffer();
-		buf.append(newYear).append("-").append(newMonth).append("-").append(newDay);
-		buf.append("T").append(newHour).append(":00:00.000").append(tz);
-		final Date newDate = isoFormat.parse(buf.toString());
-		return newDate;
+		return new Date(shiftHours(date.getTime(), offset));
 	}
 
-	private static String determineTimezoneOffset(final Date date, final int days) {
-		return determineTimezoneOffset(date, days, true);
-	}
-
-	@SuppressWarnings("deprecation")
-	private static String determineTimezoneOffset(final Date date, final int days, final boolean addOffsetFromGMT) {
-		String isoTz = null;
-		if (date != null) {
-			final Date copy = CalendarUtil.copyDate(date);
-			copy.setDate(copy.getDate() + days);
-			final StringBuffer buf = new StringBuffer();
-			if (addOffsetFromGMT) {
-				buf.append("GMT");
-			}
-			buf.append(TZ.getISOTimeZoneString(copy));
-			isoTz = buf.toString();
-		}
-		return isoTz;
-	}
-
-	private static String tomorrowAsYMDString(final Date tomorrow) {
-		final StringBuffer result = new StringBuffer();
-		if (tomorrow != null) {
-			result.append(yearFormat.format(tomorrow, TZ));
-			result.append("-");
-			result.append(monthFormat.format(tomorrow, TZ));
-			result.append("-");
-			result.append(dayFormat.format(tomorrow, TZ));
-		}
-		return result.toString();
+	/**
+	 * Determine the whole hour a number of hours before or after an instant
+	 * 
+	 * @param instant
+	 *            epoch millis
+	 * @param hours
+	 *            a positive of negative number of hours to increment or
+	 *            decrement the instant by respectively
+	 * @return epoch millis at minute 0 of the resulting hour
+	 */
+	public static long shiftHours(final long instant, final int hours) {
+		return MARKET.truncateToHour(instant) + hours * MarketTime.MILLIS_PER_HOUR;
 	}
 
 	/**
@@ -371,62 +237,27 @@ public class CSTimeUtil {
 	 *         offset from date
 	 */
 	public static Date generateDay(final Date date, final int offset) {
-
-		final int year = Integer.valueOf(yearFormat.format(date, TZ));
-		final int month = Integer.valueOf(monthFormat.format(date, TZ));
-		final int day = Integer.valueOf(dayFormat.format(date, TZ));
-		final String tz = determineTimezoneOffset(date, offset);
-
 		// This algorithm is limited... offset value must therefore be between
 		// -/+ 20 days
 		if (offset > 20 || offset < -20) {
 			throw new IllegalArgumentException("Offset value must be between -/+ 20 days!");
 		}
+		return new Date(shiftDays(date.getTime(), offset));
+	}
 
-		// Note: an IllegalArgumentException will be thrown when year, month,
-		// and day combination does not represent a real calendar day.
-
-		int newYear = year;
-		int newMonth = month;
-		int newDay = day + offset;
-
-		if (newDay < 0) {
-			newMonth--;
-			if (newMonth == 0) {
-				newMonth = 12;
-				newYear--;
-			}
-			newDay = daysInMonth[newMonth - 1] + offset + 1;
-			// Adjust for leap year
-			if (newMonth == 2) {
-				if (newYear % 400 == 0 || newYear % 4 == 0 && newYear % 100 != 0) {
-					newDay++;
-				}
-			}
-		} else {
-
-			int numDays = daysInMonth[month - 1];
-			// Adjust for leap year
-			if (month == 2) {
-				if (year % 400 == 0 || year % 4 == 0 && year % 100 != 0) {
-					numDays++;
-				}
-			}
-			if (newDay > numDays) {
-				newDay = newDay - numDays;
-				newMonth++;
-				if (newMonth > 12) {
-					newMonth = 1;
-					newYear++;
-				}
-			}
-		}
-
-		final StringBuffer buf = new StringBuffer();
-		buf.append(newYear).append("-").append(newMonth).append("-").append(newDay);
-		buf.append("T").append("00:00:00.000").append(tz);
-		final Date newDate = isoFormat.parse(buf.toString());
-		return newDate;
+	/**
+	 * Determine midnight of the market day a number of days before or after
+	 * an instant
+	 * 
+	 * @param instant
+	 *            epoch millis
+	 * @param days
+	 *            a positive of negative number of days to increment or
+	 *            decrement the instant by respectively
+	 * @return epoch millis at 12:00AM of the resulting day
+	 */
+	public static long shiftDays(final long instant, final int days) {
+		return PROFILES.dayProfile(MARKET.epochDay(instant) + days).getStart();
 	}
 
 	/**
@@ -441,30 +272,178 @@ public class CSTimeUtil {
 	public static int hoursInDay(final Date date) {
 		int result = -1;
 		if (date != null) {
-			final Date currentDate = generateDay(date, 0);
-			final Date nextDate = generateDay(date, 1);
+			result = hoursInDay(date.getTime());
+		}
+		return result;
+	}
+
+	/**
+	 * Determine whether the day of an instant is a 23, 24, or 25 hour day.
+	 * 
+	 * @param instant
+	 *            epoch millis
+	 * @return 23 if day is transition from Standard Time to Daylight Savings,
+	 *         24 if either a regular Standard Time or Daylight Savings day, or
+	 *         25 if day is a transition from Daylight Savings to Standard Time
+	 */
+	public static int hoursInDay(final long instant) {
+		return PROFILES.hoursInDay(MARKET.epochDay(instant));
+	}
+
+	/**
+	 * Determine the profile (midnight, length, offsets) of a day.
+	 * 
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return the day's profile
+	 */
+	public static DayProfile dayProfile(final int epochDay) {
+		return PROFILES.dayProfile(epochDay);
+	}
+
+	/**
+	 * Determine the profiles of a span of days, e.g. for a month view, in one
+	 * pass rather than a day at a time.
+	 *
+	 * @param fromEpochDay
+	 *            days since 1970-01-01, inclusive
+	 * @param toEpochDay
+	 *            days since 1970-01-01, exclusive
+	 * @return the profiles of the days in order, whose labels are
+	 *         {@link DayProfile#getLabels()}
+	 */
+	public static DayProfile[] dayProfilesBetween(final int fromEpochDay, final int toEpochDay) {
+		return PROFILES.dayProfilesBetween(fromEpochDay, toEpochDay);
+	}
+
+	/**
+	 * Counts the hours of a calendar month, 23 and 25 hour days included.
+	 *
+	 * @param year
+	 *            the year
+	 * @param month
+	 *            1 to 12
+	 * @return the hours in the month
+	 */
+	public static int hoursInMonth(final int year, final int month) {
+		return MARKET.hoursInMonth(year, month);
+	}
 
-			final Long hoursBetween = (nextDate.getTime() - currentDate.getTime()) / (60 * 60 * 1000);
+	/**
+	 * Counts the hours of a span of days, in constant time, 23 and 25 hour
+	 * days included.
+	 *
+	 * @param fromEpochDay
+	 *            days since 1970-01-01, inclusive
+	 * @param toEpochDay
+	 *            days since 1970-01-01, exclusive
+	 * @return the hours in the span, negative if toEpochDay comes first
+	 */
+	public static long totalHours(final int fromEpochDay, final int toEpochDay) {
+		return MARKET.totalHours(fromEpochDay, toEpochDay);
+	}
 
-			result = hoursBetween.intValue();
+	/**
+	 * Counts the whole-hour boundaries crossed from one ISO8601 formatted
+	 * String (no millis) to another, in constant time, 23 and 25 hour days
+	 * included. This is the time elapsed only when both are on whole hours:
+	 * e.g. 10:55 to 11:05 crosses one boundary, 11:05 to 11:55 none.
+	 *
+	 * @param fromIso
+	 *            an ISO8601 formatted String (no millis)
+	 * @param toIso
+	 *            an ISO8601 formatted String (no millis)
+	 * @return the whole hours in <code>(from, to]</code>, negative if toIso
+	 *         comes first
+	 * @throws IllegalArgumentException
+	 *             if either is not well formed
+	 */
+	public static long hoursBetween(final String fromIso, final String toIso) {
+		return MARKET.intervalsBetween(isoNoMillisToMillis(fromIso), isoNoMillisToMillis(toIso), 1);
+	}
+
+	/**
+	 * Counts the interval boundaries crossed from one ISO8601 formatted String
+	 * (no millis) to another, in constant time, 23 and 25 hour days included.
+	 * As with {@link #hoursBetween(String, String)}, this is the time elapsed
+	 * in intervals only when both are on interval boundaries.
+	 *
+	 * @param fromIso
+	 *            an ISO8601 formatted String (no millis)
+	 * @param toIso
+	 *            an ISO8601 formatted String (no millis)
+	 * @param minuteInterval
+	 *            minutes per interval, e.g. 5; must divide 60
+	 * @return the interval boundaries in <code>(from, to]</code>, negative if
+	 *         toIso comes first
+	 * @throws IllegalArgumentException
+	 *             if either is not well formed
+	 */
+	public static long intervalsBetween(final String fromIso, final String toIso, final int minuteInterval) {
+		if (minuteInterval < 1 || 60 % minuteInterval != 0) {
+			throw new IllegalArgumentException("Minute interval must divide 60: " + minuteInterval);
 		}
-		return result;
+		return MARKET.intervalsBetween(isoNoMillisToMillis(fromIso), isoNoMillisToMillis(toIso), 60 / minuteInterval);
+	}
+
+	/**
+	 * Counts the hour label slots from an hour of one day to an hour of
+	 * another, e.g. 24 from 01 to 24 of a day Daylight Savings ends.
+	 *
+	 * @param fromDayAtMidnight
+	 *            an ISO8601 formatted String (no millis) at midnight
+	 * @param fromLabel
+	 *            an hour label of that day
+	 * @param toDayAtMidnight
+	 *            an ISO8601 formatted String (no millis) at midnight
+	 * @param toLabel
+	 *            an hour label of that day
+	 * @return the slots between them, negative if the second comes first
+	 * @throws IllegalArgumentException
+	 *             if a label does not occur on its day
+	 */
+	public static int labelSlotsBetween(final String fromDayAtMidnight, final String fromLabel,
+			final String toDayAtMidnight, final String toLabel) {
+		final DayProfile from = PROFILES.dayProfile(MARKET.epochDay(isoNoMillisToMillis(fromDayAtMidnight)));
+		final DayProfile to = PROFILES.dayProfile(MARKET.epochDay(isoNoMillisToMillis(toDayAtMidnight)));
+		final int fromSlot = from.slotOf(fromLabel);
+		final int toSlot = to.slotOf(toLabel);
+		if (fromSlot < 0 || toSlot < 0) {
+			throw new IllegalArgumentException("Hour label " + (fromSlot < 0 ? fromLabel : toLabel)
+					+ " does not occur on " + (fromSlot < 0 ? fromDayAtMidnight : toDayAtMidnight));
+		}
+		return (int) ((to.getStart() - from.getStart()) / MarketTime.MILLIS_PER_HOUR) + toSlot - fromSlot;
 	}
 
 	// Return set of pre-defined hour labels for a day
 	public static Set<String> labelsForDay(final Date dt) {
-		final int hoursInDay = hoursInDay(dt);
-		Set<String> result = new HashSet<String>();
-		if (hoursInDay == 24) {
-			result = new LinkedHashSet<String>(Arrays.asList(normalDayLabels));
-		} else if (hoursInDay == 23) {
-			result = new LinkedHashSet<String>(Arrays.asList(shortDayLabels));
-		} else if (hoursInDay == 25) {
-			result = new LinkedHashSet<String>(Arrays.asList(longDayLabels));
+		Set<String> result = new LinkedHashSet<String>();
+		if (dt != null) {
+			result = new LinkedHashSet<String>(Arrays.asList(labelsForDay(dt.getTime())));
 		}
 		return result;
 	}
 
+	// Return pre-defined hour labels, in order, for the day of an instant
+	public static String[] labelsForDay(final long instant) {
+		return MarketTime.labelsForHours(hoursInDay(instant));
+	}
+
+	/**
+	 * Appends an instant as an ISO8601 String (no millis) in market time, e.g.
+	 * when serialising many timestamps into one request; no other objects are
+	 * created and the result is the same in every locale.
+	 *
+	 * @param buf
+	 *            where to append the timestamp
+	 * @param instant
+	 *            epoch millis
+	 * @return buf
+	 */
+	public static StringBuilder appendIsoNoMillis(final StringBuilder buf, final long instant) {
+		return MARKET.appendIsoNoMillis(buf, instant);
+	}
+
 	/**
 	 * Calculates the equivalent ISO8601 formatted String (no millis) for the
 	 * day (at midnight) and the hour label
@@ -474,71 +453,11 @@ public class CSTimeUtil {
 	 * @param hourAsString
 	 *            an hour label
 	 * @return an ISO8601 formatted String (no millis) representing the hour
+	 * @throws IllegalArgumentException
+	 *             if the label does not occur on the day
 	 */
 	public static String calculateIsoNoMillisHour(final String dayAtMidnight, final String hourAsString) {
-		final Date midnight = isoNoMillisToDate(dayAtMidnight);
-		final int hoursInDay = hoursInDay(midnight);
-		StringBuffer isoHour = new StringBuffer();
-		isoHour.append(dayAtMidnight.substring(0, 10));
-		isoHour.append("T");
-		String hourPart;
-
-		int hour = 1;
-
-		String tz = determineTimezoneOffset(midnight, 0, false);
-		boolean fiddleTzOffset = false;
-		int offset = 0;
-		if (hourAsString.contains("*")) {
-			hour = Integer.valueOf(hourAsString.replace("*", ""));
-			fiddleTzOffset = true;
-			offset = 1;
-		} else if (hoursInDay == 25 && hourAsString.equals("02")) {
-			hour = 1;
-			fiddleTzOffset = true;
-			offset = 1;
-		} else {
-			hour = Integer.valueOf(hourAsString);
-			if (hour == 24) {
-				hour = 0;
-				final Date tomorrow = generateDay(midnight, 1);
-				final String tomorrowAsString = tomorrowAsYMDString(tomorrow);
-				isoHour = new StringBuffer();
-				isoHour.append(tomorrowAsString);
-				isoHour.append("T");
-				tz = determineTimezoneOffset(tomorrow, 0, false);
-			}
-			if (hoursInDay == 25 && hour > 2) {
-				fiddleTzOffset = true;
-				offset = 1;
-			}
-			if (hoursInDay == 23 && hour > 1) {
-				fiddleTzOffset = true;
-				offset = -1;
-			}
-		}
-
-		if (fiddleTzOffset) {
-			String tzEnhancedHr;
-			final String tzSign = tz.substring(0, 1);
-			final String tzMinutes = tz.substring(3);
-			final int tzEnhHr = Integer.valueOf(tz.substring(1, 3)) + offset;
-			if (tzEnhHr < 10) {
-				tzEnhancedHr = "0" + String.valueOf(tzEnhHr);
-			} else {
-				tzEnhancedHr = String.valueOf(tzEnhHr);
-			}
-			tz = tzSign + tzEnhancedHr + tzMinutes;
-		}
-		final String minutesSecondsPart = ":00:00";
-		if (hour < 10) {
-			hourPart = "0" + String.valueOf(hour);
-		} else {
-			hourPart = String.valueOf(hour);
-		}
-		isoHour.append(hourPart);
-		isoHour.append(minutesSecondsPart);
-		isoHour.append(tz);
-		return isoHour.toString();
+		return MARKET.toIsoNoMillis(MARKET.hourOfDay(isoEpochDay(dayAtMidnight), hourAsString));
 	}
 
 	/**
@@ -549,24 +468,32 @@ public class CSTimeUtil {
 	 *            an ISO8601 formatted String (no millis) at midnight
 	 * @param hour
 	 *            an hour (00-23)
-	 * @return an ISO8601 formatted String (no millis) representing the minute
+	 * @param minuteInterval
+	 *            the minute of the hour (0-59)
+	 * @return an ISO8601 formatted String (no millis) representing the
+	 *         minute, in the offset in effect at midnight
+	 * @throws IllegalArgumentException
+	 *             if the hour or minute is out of range
 	 */
 	public static String calculateIsoNoMillisInterval(final String dayAtMidnight, final String hour, final int minuteInterval) {
-		final StringBuffer isoInterval = new StringBuffer();
-		isoInterval.append(dayAtMidnight.substring(0, 10));
-		isoInterval.append("T");
-		isoInterval.append(hour);
-		isoInterval.append(":");
-		String minutesSecondsPart;
-		if (minuteInterval < 10) {
-			minutesSecondsPart = "0" + String.valueOf(minuteInterval) + ":00";
-		} else {
-			minutesSecondsPart = String.valueOf(minuteInterval) + ":00";
+		final int hourOfDay = Integer.parseInt(hour);
+		if (hourOfDay < 0 || hourOfDay > 23 || minuteInterval < 0 || minuteInterval > 59) {
+			throw new IllegalArgumentException("No minute " + minuteInterval + " of hour " + hour);
 		}
-		isoInterval.append(minutesSecondsPart);
-		final String tz = TZ.getISOTimeZoneString(isoNoMillisToDate(dayAtMidnight));
-		isoInterval.append(tz);
-		return isoInterval.toString();
+		final long local = isoEpochDay(dayAtMidnight) * MarketTime.MILLIS_PER_DAY + hourOfDay
+				* MarketTime.MILLIS_PER_HOUR + minuteInterval * MarketTime.MILLIS_PER_MINUTE;
+		final int offset = MARKET.getOffset(isoNoMillisToMillis(dayAtMidnight));
+		return IsoNoMillis.append(new StringBuilder(IsoNoMillis.LENGTH),
+				local - offset * MarketTime.MILLIS_PER_MINUTE, offset).toString();
+	}
+
+	/**
+	 * @return the epoch day of the date an ISO8601 formatted String (no
+	 *         millis) is written with
+	 */
+	private static int isoEpochDay(final String iso) {
+		final long local = isoNoMillisToMillis(iso) + MarketTime.parseIsoOffset(iso) * MarketTime.MILLIS_PER_MINUTE;
+		return (int) CivilDate.floorDiv(local, MarketTime.MILLIS_PER_DAY);
 	}
 
 	/**
@@ -579,10 +506,7 @@ public class CSTimeUtil {
 	public static String convertIsoNoMillisToHourLabel(final String isoDateTime) {
 		String result = "";
 		if (isoDateTime != null && !isoDateTime.isEmpty()) {
-			final Date dateTime = CSTimeUtil.isoNoMillisToDate(isoDateTime);
-			if (dateTime != null) {
-				result = CSTimeUtil.dateToHourLabel(dateTime);
-			}
+			result = MARKET.isoHourLabel(isoDateTime);
 		}
 		return result;
 	}
@@ -597,10 +521,7 @@ public class CSTimeUtil {
 	public static String convertIsoNoMillisToMinuteLabel(final String isoDateTime) {
 		String result = "";
 		if (isoDateTime != null && !isoDateTime.isEmpty()) {
-			final Date dateTime = CSTimeUtil.isoNoMillisToDate(isoDateTime);
-			if (dateTime != null) {
-				result = CSTimeUtil.dateToMinuteLabel(dateTime);
-			}
+			result = CSTimeUtil.minuteLabel(CSTimeUtil.isoNoMillisToMillis(isoDateTime));
 		}
 		return result;
 	}
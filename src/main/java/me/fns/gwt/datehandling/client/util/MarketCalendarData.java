@@ -0,0 +1,154 @@
+package me.fns.gwt.datehandling.client.util;
+
+import me.fns.gwt.datehandling.shared.DayProfileCache;
+import me.fns.gwt.datehandling.shared.DayProfileCodec;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * <p>
+ * Overlay of the market calendar inlined into the host page by
+ * <code>me.fns.gwt.datehandling.server.HostPageServlet</code> as
+ * <code>window.marketCalendar</code>. The values are read in place, nothing
+ * is parsed or copied until asked for.
+ * </p>
+ *
+ */
+public class MarketCalendarData extends JavaScriptObject {
+
+	protected MarketCalendarData() {
+	}
+
+	/**
+	 * @return the calendar inlined into the host page, or null if there is none
+	 *         (e.g. the page was served statically, or not running in a
+	 *         browser)
+	 */
+	public static MarketCalendarData get() {
+		return GWT.isClient() ? hostPageCalendar() : null;
+	}
+
+	private static native MarketCalendarData hostPageCalendar() /*-{
+		var calendar = $wnd.marketCalendar;
+		return calendar && calendar.years && calendar.transitions && calendar.offsets ? calendar : null;
+	}-*/;
+
+	/**
+	 * Seeds a cache with every year of the calendar, provided it was computed
+	 * from the same zone data as the cache's: the zone id, data version and
+	 * inlined transitions must all agree with the zone, and each year must
+	 * pass {@link DayProfileCache#preload(me.fns.gwt.datehandling.shared.DayProfile[])}
+	 *
+	 * @param cache
+	 *            receives the day profiles
+	 * @param zone
+	 *            the cache's zone
+	 * @return the number of years seeded
+	 */
+	public final int preload(final DayProfileCache cache, final MarketZone zone) {
+		if (!zone.getId().equals(getZone()) || !zone.getDataVersion().equals(getDataVersion())
+				|| !transitionsAgree(zone)) {
+			return 0;
+		}
+		int seeded = 0;
+		for (int i = 0; i < getYearCount(); i++) {
+			try {
+				if (cache.preload(DayProfileCodec.decode(getYear(i)))) {
+					seeded++;
+				}
+			} catch (final IllegalArgumentException e) {
+				// computed on demand instead
+			}
+		}
+		return seeded;
+	}
+
+	/**
+	 * @param zone
+	 *            the zone the calendar should have been computed from
+	 * @return true if the inlined transitions are consecutive transitions of
+	 *         the zone, each to the same offset
+	 */
+	public final boolean transitionsAgree(final MarketZone zone) {
+		final int count = getTransitionCount();
+		if (count != getOffsetCount()) {
+			return false;
+		}
+		int expected = -1;
+		for (int i = 0; i < count; i++) {
+			final long transition = getTransition(i);
+			final int index = zone.transitionIndex(transition) - 1;
+			if (index < 0 || zone.getTransition(index) != transition || zone.getOffsetAfter(index) != getOffsetAfter(i)
+					|| (expected >= 0 && index != expected)) {
+				return false;
+			}
+			expected = index + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the Olson time zone id
+	 */
+	public final native String getZone() /*-{
+		return this.zone;
+	}-*/;
+
+	/**
+	 * @return the zone's data version, see {@link MarketZone#getDataVersion()}
+	 */
+	public final native String getDataVersion() /*-{
+		return this.dataVersion;
+	}-*/;
+
+	/**
+	 * @return the number of calendar years
+	 */
+	public final native int getYearCount() /*-{
+		return this.years.length;
+	}-*/;
+
+	/**
+	 * @param index
+	 *            0 to {@link #getYearCount()} - 1
+	 * @return the day profiles of a year, see {@link DayProfileCodec}
+	 */
+	public final native String getYear(int index) /*-{
+		return this.years[index];
+	}-*/;
+
+	/**
+	 * @return the number of offset transitions within the years
+	 */
+	public final native int getTransitionCount() /*-{
+		return this.transitions.length;
+	}-*/;
+
+	/**
+	 * @param index
+	 *            0 to {@link #getTransitionCount()} - 1
+	 * @return the UTC instant (epoch millis) of a transition
+	 */
+	public final long getTransition(final int index) {
+		return (long) transition(index);
+	}
+
+	private native double transition(int index) /*-{
+		return this.transitions[index];
+	}-*/;
+
+	private native int getOffsetCount() /*-{
+		return this.offsets.length;
+	}-*/;
+
+	/**
+	 * @param index
+	 *            0 to {@link #getTransitionCount()} - 1
+	 * @return the offset, in minutes east of UTC, in effect from a transition
+	 */
+	public final native int getOffsetAfter(int index) /*-{
+		return this.offsets[index];
+	}-*/;
+}
@@ -0,0 +1,64 @@
+package me.fns.gwt.datehandling.client.util;
+
+import me.fns.gwt.datehandling.shared.SeriesPayload;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsonUtils;
+
+/**
+ * <p>
+ * Overlay of a {@link SeriesPayload} received as JSON. The text is evaluated
+ * by the browser once, with {@link JsonUtils#safeEval(String)}, and the
+ * timestamps and values are then read in place; unlike
+ * <code>JSONParser</code>, no wrapper object is built per element.
+ * </p>
+ *
+ */
+public class SeriesPayloadData extends JavaScriptObject implements SeriesPayload {
+
+	protected SeriesPayloadData() {
+	}
+
+	/**
+	 * @param json
+	 *            a series payload, e.g. the text of an HTTP response
+	 * @return the payload, read in place
+	 * @throws IllegalArgumentException
+	 *             if the text is not JSON, or not a series payload
+	 */
+	public static SeriesPayloadData parse(final String json) {
+		final SeriesPayloadData payload = JsonUtils.safeEval(json);
+		if (payload == null || !payload.isWellFormed()) {
+			throw new IllegalArgumentException("Not a series payload");
+		}
+		return payload;
+	}
+
+	private final native boolean isWellFormed() /*-{
+		var timestamps = this.timestamps;
+		var values = this.values;
+		return !!timestamps && !!values && typeof timestamps.length == 'number'
+				&& timestamps.length == values.length;
+	}-*/;
+
+	@Override
+	public final native int getIntervalsPerHour() /*-{
+		return this.intervalsPerHour || 1;
+	}-*/;
+
+	@Override
+	public final native int size() /*-{
+		return this.timestamps.length;
+	}-*/;
+
+	@Override
+	public final native String getTimestamp(final int index) /*-{
+		return this.timestamps[index];
+	}-*/;
+
+	@Override
+	public final native double getValue(final int index) /*-{
+		var value = this.values[index];
+		return value == null ? NaN : value;
+	}-*/;
+}
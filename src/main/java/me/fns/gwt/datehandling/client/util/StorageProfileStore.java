@@ -0,0 +1,62 @@
+package me.fns.gwt.datehandling.client.util;
+
+import me.fns.gwt.datehandling.shared.DayProfileCache;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.storage.client.Storage;
+
+/**
+ * <p>
+ * Persists a {@link DayProfileCache} in HTML5 Storage.
+ * </p>
+ *
+ */
+public class StorageProfileStore implements DayProfileCache.Store {
+
+	private final Storage storage;
+
+	/**
+	 * @param storage
+	 *            e.g. <code>Storage.getLocalStorageIfSupported()</code>
+	 */
+	public StorageProfileStore(final Storage storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * @return a store backed by the browser's localStorage, or null if the
+	 *         browser does not support it (or not running in a browser)
+	 */
+	public static DayProfileCache.Store localStorage() {
+		if (!GWT.isClient()) {
+			return null;
+		}
+		final Storage storage = Storage.getLocalStorageIfSupported();
+		return storage == null ? null : new StorageProfileStore(storage);
+	}
+
+	@Override
+	public String getItem(final String key) {
+		return storage.getItem(key);
+	}
+
+	@Override
+	public void setItem(final String key, final String value) {
+		storage.setItem(key, value);
+	}
+
+	@Override
+	public void removeItem(final String key) {
+		storage.removeItem(key);
+	}
+
+	@Override
+	public int getLength() {
+		return storage.getLength();
+	}
+
+	@Override
+	public String key(final int index) {
+		return storage.key(index);
+	}
+}
@@ -0,0 +1,476 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Precomputed market calendars (day profiles and transition tables of one or
+ * more markets over a range of years) in a compact binary file, read through
+ * a read-only memory mapping.
+ * </p>
+ * <p>
+ * Lookups read the mapped pages directly with absolute gets, so nothing is
+ * copied onto the heap and any number of threads may read at once. Every JVM
+ * on a host that opens the same file shares one copy of it in the operating
+ * system's page cache, and opening it costs only the mapping. Generate the
+ * file at build time with {@link #main(String[])} (see the
+ * <code>calendar</code> profile in the pom).
+ * </p>
+ * <p>
+ * Layout, big-endian: a 16 byte header (magic, format version, number of
+ * markets, reserved), one 72 byte directory entry per market (zone id and
+ * data version as NUL padded ASCII, 32 and 16 bytes; first epoch day; number
+ * of days; position of the days; number of transitions; position of the
+ * transitions; Standard Time offset), then per market:
+ * <ul>
+ * <li>for each day, and the day after the last, the minutes between
+ * midnight UTC and midnight market time and the offset in effect at
+ * midnight, as two shorts</li>
+ * <li>the transition instants, as longs, followed by the offset in effect
+ * from each, as ints</li>
+ * </ul>
+ * A century of America/Chicago takes under 200KB.
+ * </p>
+ *
+ */
+public final class CalendarFile {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CalendarFile.class);
+
+	/**
+	 * "MKTC"
+	 */
+	private static final int MAGIC = 0x4d4b5443;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int HEADER_SIZE = 16;
+
+	private static final int ID_SIZE = 32;
+
+	private static final int DATA_VERSION_SIZE = 16;
+
+	private static final int ENTRY_SIZE = ID_SIZE + DATA_VERSION_SIZE + 6 * 4;
+
+	private static final int DAY_SIZE = 4;
+
+	private final File file;
+
+	private final Map<String, Market> markets;
+
+	private CalendarFile(final File file, final ByteBuffer buffer) throws IOException {
+		this.file = file;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a calendar file: " + file);
+		}
+		if (buffer.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Unsupported calendar file version " + buffer.getInt(4) + ": " + file);
+		}
+		final int count = buffer.getInt(8);
+		if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > buffer.capacity()) {
+			throw new IOException("Truncated calendar file: " + file);
+		}
+		final Map<String, Market> result = new LinkedHashMap<String, Market>();
+		for (int i = 0; i < count; i++) {
+			final Market market = new Market(buffer, HEADER_SIZE + i * ENTRY_SIZE);
+			if (market.daysPosition + (long) (market.dayCount + 1) * DAY_SIZE > buffer.capacity()
+					|| market.transitionsPosition + 12L * market.transitionCount > buffer.capacity()) {
+				throw new IOException("Truncated calendar file: " + file);
+			}
+			result.put(market.zoneId, market);
+		}
+		markets = Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Maps a calendar file. The mapping outlives the file handle, which is
+	 * closed straight away, and is released when the instance is garbage
+	 * collected.
+	 *
+	 * @param file
+	 *            a file written by {@link #write(File, MarketTime[], int, int)}
+	 * @return the calendars it holds
+	 * @throws IOException
+	 *             if the file cannot be read or is not a calendar file
+	 */
+	public static CalendarFile open(final File file) throws IOException {
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = in.getChannel();
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new CalendarFile(file, buffer);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the calendars of markets. The file is written alongside and then
+	 * renamed into place, so processes that already have it open keep their
+	 * own (unchanged) copy; if writing fails the partial file is deleted.
+	 *
+	 * @param file
+	 *            where to
+	 * @param markets
+	 *            the markets, each with a distinct zone id
+	 * @param firstYear
+	 *            first calendar year covered
+	 * @param lastYear
+	 *            last calendar year covered
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(final File file, final MarketTime[] markets, final int firstYear, final int lastYear)
+			throws IOException {
+		if (firstYear > lastYear) {
+			throw new IllegalArgumentException("First year " + firstYear + " is after last year " + lastYear);
+		}
+		final int firstDay = CivilDate.toEpochDay(firstYear, 1, 1);
+		final int dayCount = CivilDate.toEpochDay(lastYear + 1, 1, 1) - firstDay;
+		final File temp = new File(file.getPath() + ".tmp");
+		boolean replaced = false;
+		try {
+			writeMarkets(temp, markets, firstDay, dayCount);
+			if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+				throw new IOException("Cannot replace " + file);
+			}
+			replaced = true;
+		} finally {
+			if (!replaced && temp.exists() && !temp.delete()) {
+				LOG.warn("Cannot delete {}", temp);
+			}
+		}
+	}
+
+	private static void writeMarkets(final File temp, final MarketTime[] markets, final int firstDay, final int dayCount)
+			throws IOException {
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(markets.length);
+			out.writeInt(0);
+			int position = HEADER_SIZE + markets.length * ENTRY_SIZE;
+			for (final MarketTime market : markets) {
+				final MarketZone zone = market.getZone();
+				writeAscii(out, zone.getId(), ID_SIZE);
+				writeAscii(out, zone.getDataVersion(), DATA_VERSION_SIZE);
+				out.writeInt(firstDay);
+				out.writeInt(dayCount);
+				out.writeInt(position);
+				position += (dayCount + 1) * DAY_SIZE;
+				out.writeInt(zone.getTransitionCount());
+				out.writeInt(position);
+				position += 12 * zone.getTransitionCount();
+				out.writeInt(zone.getStandardOffset());
+			}
+			for (final MarketTime market : markets) {
+				final MarketZone zone = market.getZone();
+				for (int day = firstDay; day <= firstDay + dayCount; day++) {
+					final long start = market.startOfDay(day);
+					out.writeShort(toShort((day * MarketTime.MILLIS_PER_DAY - start) / MarketTime.MILLIS_PER_MINUTE));
+					out.writeShort(toShort(zone.getOffset(start)));
+				}
+				for (int i = 0; i < zone.getTransitionCount(); i++) {
+					out.writeLong(zone.getTransition(i));
+				}
+				for (int i = 0; i < zone.getTransitionCount(); i++) {
+					out.writeInt(zone.getOffsetAfter(i));
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Build step: writes the America/Chicago calendar
+	 *
+	 * @param args
+	 *            the file, then optionally the first and last years (default
+	 *            1970 and 2100)
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 1 && args.length != 3) {
+			throw new IllegalArgumentException("Usage: CalendarFile <file> [<firstYear> <lastYear>]");
+		}
+		final File file = new File(args[0]);
+		final int firstYear = args.length == 3 ? Integer.parseInt(args[1]) : 1970;
+		final int lastYear = args.length == 3 ? Integer.parseInt(args[2]) : 2100;
+		final File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create " + dir);
+		}
+		write(file, new MarketTime[] { MarketTime.CENTRAL }, firstYear, lastYear);
+		LOG.info("Wrote {} to {} ({} bytes)", new Object[] { MarketTime.CENTRAL.getZone().getId(), file,
+				file.length() });
+	}
+
+	/**
+	 * @return the file mapped
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the calendars held, by zone id, in file order
+	 */
+	public Map<String, Market> getMarkets() {
+		return markets;
+	}
+
+	/**
+	 * @param zoneId
+	 *            an Olson time zone id
+	 * @return the market's calendar
+	 * @throws IllegalArgumentException
+	 *             if the file holds none for the zone
+	 */
+	public Market getMarket(final String zoneId) {
+		final Market market = markets.get(zoneId);
+		if (market == null) {
+			throw new IllegalArgumentException("No calendar for " + zoneId + " in " + file);
+		}
+		return market;
+	}
+
+	private static void writeAscii(final DataOutputStream out, final String value, final int size)
+			throws IOException {
+		if (value.length() > size) {
+			throw new IllegalArgumentException("Longer than " + size + " characters: " + value);
+		}
+		for (int i = 0; i < size; i++) {
+			out.writeByte(i < value.length() ? value.charAt(i) : 0);
+		}
+	}
+
+	private static String readAscii(final ByteBuffer buffer, final int position, final int size) {
+		final StringBuilder result = new StringBuilder(size);
+		for (int i = 0; i < size && buffer.get(position + i) != 0; i++) {
+			result.append((char) buffer.get(position + i));
+		}
+		return result.toString();
+	}
+
+	private static int toShort(final long minutes) {
+		if (minutes < Short.MIN_VALUE || minutes > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Offset out of range: " + minutes + " minutes");
+		}
+		return (int) minutes;
+	}
+
+	/**
+	 * <p>
+	 * The calendar of one market, read straight from the mapped file. Safe
+	 * for concurrent use.
+	 * </p>
+	 */
+	public static final class Market {
+
+		private final ByteBuffer buffer;
+
+		private final String zoneId;
+
+		private final String dataVersion;
+
+		private final int firstDay;
+
+		private final int dayCount;
+
+		private final int daysPosition;
+
+		private final int transitionCount;
+
+		private final int transitionsPosition;
+
+		private final int standardOffset;
+
+		Market(final ByteBuffer buffer, final int entry) {
+			this.buffer = buffer;
+			zoneId = readAscii(buffer, entry, ID_SIZE);
+			dataVersion = readAscii(buffer, entry + ID_SIZE, DATA_VERSION_SIZE);
+			int position = entry + ID_SIZE + DATA_VERSION_SIZE;
+			firstDay = buffer.getInt(position);
+			dayCount = buffer.getInt(position += 4);
+			daysPosition = buffer.getInt(position += 4);
+			transitionCount = buffer.getInt(position += 4);
+			transitionsPosition = buffer.getInt(position += 4);
+			standardOffset = buffer.getInt(position += 4);
+		}
+
+		/**
+		 * @return the Olson time zone id
+		 */
+		public String getZoneId() {
+			return zoneId;
+		}
+
+		/**
+		 * @return the data version of the zone the calendar was built from
+		 *         (see {@link MarketZone#getDataVersion()})
+		 */
+		public String getDataVersion() {
+			return dataVersion;
+		}
+
+		/**
+		 * @return first epoch day covered
+		 */
+		public int getFirstDay() {
+			return firstDay;
+		}
+
+		/**
+		 * @return number of days covered
+		 */
+		public int getDayCount() {
+			return dayCount;
+		}
+
+		/**
+		 * @param epochDay
+		 *            days since 1970-01-01
+		 * @return true if the calendar holds the day
+		 */
+		public boolean isCovered(final int epochDay) {
+			return epochDay >= firstDay && epochDay - firstDay < dayCount;
+		}
+
+		/**
+		 * @see MarketTime#dayProfile(int)
+		 * @throws IllegalArgumentException
+		 *             if the day is not covered
+		 */
+		public DayProfile dayProfile(final int epochDay) {
+			final int position = dayPosition(epochDay);
+			final long start = start(epochDay, position);
+			final long end = start(epochDay + 1, position + DAY_SIZE);
+			return new DayProfile(epochDay, start, (int) ((end - start) / MarketTime.MILLIS_PER_HOUR),
+					buffer.getShort(position + 2), buffer.getShort(position + DAY_SIZE + 2));
+		}
+
+		/**
+		 * @see MarketTime#startOfDay(int)
+		 * @throws IllegalArgumentException
+		 *             if the day is not covered
+		 */
+		public long startOfDay(final int epochDay) {
+			return start(epochDay, dayPosition(epochDay));
+		}
+
+		/**
+		 * @see MarketTime#hoursInDay(int)
+		 * @throws IllegalArgumentException
+		 *             if the day is not covered
+		 */
+		public int hoursInDay(final int epochDay) {
+			final int position = dayPosition(epochDay);
+			final long start = start(epochDay, position);
+			return (int) ((start(epochDay + 1, position + DAY_SIZE) - start) / MarketTime.MILLIS_PER_HOUR);
+		}
+
+		/**
+		 * @see MarketZone#getOffset(long)
+		 */
+		public int getOffset(final long instant) {
+			final int index = transitionIndex(instant);
+			return index == 0 ? standardOffset : getOffsetAfter(index - 1);
+		}
+
+		/**
+		 * @see MarketZone#getTransitionCount()
+		 */
+		public int getTransitionCount() {
+			return transitionCount;
+		}
+
+		/**
+		 * @see MarketZone#getTransition(int)
+		 */
+		public long getTransition(final int index) {
+			checkTransition(index);
+			return buffer.getLong(transitionsPosition + 8 * index);
+		}
+
+		/**
+		 * @see MarketZone#getOffsetAfter(int)
+		 */
+		public int getOffsetAfter(final int index) {
+			checkTransition(index);
+			return buffer.getInt(transitionsPosition + 8 * transitionCount + 4 * index);
+		}
+
+		/**
+		 * @see MarketZone#transitionIndex(long)
+		 */
+		public int transitionIndex(final long instant) {
+			int low = 0;
+			int high = transitionCount;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (buffer.getLong(transitionsPosition + 8 * mid) <= instant) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Copies the transition table onto the heap, e.g. to label hours with
+		 * a {@link MarketTime}
+		 *
+		 * @return the zone the calendar was built from
+		 */
+		public MarketZone toZone() {
+			final long[] transitions = new long[transitionCount];
+			final int[] offsets = new int[transitionCount];
+			for (int i = 0; i < transitionCount; i++) {
+				transitions[i] = getTransition(i);
+				offsets[i] = getOffsetAfter(i);
+			}
+			return new MarketZone(zoneId, standardOffset, transitions, offsets);
+		}
+
+		private int dayPosition(final int epochDay) {
+			if (!isCovered(epochDay)) {
+				throw new IllegalArgumentException("Day " + epochDay + " is not covered by the " + zoneId
+						+ " calendar");
+			}
+			return daysPosition + (epochDay - firstDay) * DAY_SIZE;
+		}
+
+		private void checkTransition(final int index) {
+			if (index < 0 || index >= transitionCount) {
+				throw new IndexOutOfBoundsException("No transition " + index + " in the " + zoneId + " calendar");
+			}
+		}
+
+		private long start(final int epochDay, final int position) {
+			return epochDay * MarketTime.MILLIS_PER_DAY - buffer.getShort(position) * MarketTime.MILLIS_PER_MINUTE;
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package me.fns.gwt.datehandling.server;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.MarketZone;
+import me.fns.gwt.datehandling.shared.SequentialLabeller;
+
+/**
+ * <p>
+ * Server-side, thread-safe front for {@link MarketTime}, meant to be shared by
+ * every servlet thread.
+ * </p>
+ * <p>
+ * MarketTime and its zone are immutable, so labelling and parsing need no
+ * coordination at all. The one thing worth caching, the profile of a day
+ * (which otherwise costs several zone lookups to rebuild), is kept in a
+ * direct-mapped table indexed by epoch day. Each entry is an immutable
+ * {@link DayProfile} published with a single atomic write, so readers never
+ * lock and never see a half-built profile; two threads missing on the same
+ * day at once simply both compute it and one write wins. Entries are never
+ * invalidated because the rules never change; a colliding day just replaces
+ * the entry.
+ * </p>
+ * <p>
+ * Given a precomputed {@link CalendarFile.Market} of the same zone data, a
+ * miss on a day the calendar covers reads the profile from the mapped file
+ * instead of computing it, and offsets and transitions are read from the
+ * calendar too (see {@link MarketCalendarListener}).
+ * </p>
+ *
+ */
+public final class ConcurrentMarketTime implements SequentialLabeller.Days {
+
+	/**
+	 * Default number of cached day profiles, a little over 11 years
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * Shared instance for America/Chicago
+	 */
+	public static final ConcurrentMarketTime CENTRAL = new ConcurrentMarketTime(MarketTime.CENTRAL,
+			DEFAULT_CAPACITY);
+
+	private final MarketTime market;
+
+	private final CalendarFile.Market calendar;
+
+	private final AtomicReferenceArray<DayProfile> profiles;
+
+	private final int mask;
+
+	/**
+	 * @param market
+	 *            the market time rules
+	 * @param capacity
+	 *            number of day profiles to cache, rounded up to a power of two
+	 */
+	public ConcurrentMarketTime(final MarketTime market, final int capacity) {
+		this(market, null, capacity);
+	}
+
+	/**
+	 * @param market
+	 *            the market time rules
+	 * @param calendar
+	 *            precomputed calendar of the same zone and data version, or
+	 *            null to compute every day
+	 * @param capacity
+	 *            number of day profiles to cache, rounded up to a power of two
+	 * @throws IllegalArgumentException
+	 *             if the calendar was built from other zone data
+	 */
+	public ConcurrentMarketTime(final MarketTime market, final CalendarFile.Market calendar, final int capacity) {
+		if (capacity < 1 || capacity > 1 << 20) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^20: " + capacity);
+		}
+		final MarketZone zone = market.getZone();
+		if (calendar != null
+				&& (!zone.getId().equals(calendar.getZoneId()) || !zone.getDataVersion().equals(
+						calendar.getDataVersion()))) {
+			throw new IllegalArgumentException("Calendar of " + calendar.getZoneId() + " "
+					+ calendar.getDataVersion() + " does not match " + zone.getId() + " " + zone.getDataVersion());
+		}
+		this.market = market;
+		this.calendar = calendar;
+		final int size = Integer.highestOneBit(capacity - 1) << 1;
+		profiles = new AtomicReferenceArray<DayProfile>(Math.max(size, 1));
+		mask = profiles.length() - 1;
+	}
+
+	/**
+	 * @return the underlying (immutable) market time rules
+	 */
+	public MarketTime getMarket() {
+		return market;
+	}
+
+	/**
+	 * @return the precomputed calendar days are read from, or null if they
+	 *         are computed
+	 */
+	public CalendarFile.Market getCalendar() {
+		return calendar;
+	}
+
+	/**
+	 * Looks up, or reads from the calendar or computes, and caches, the
+	 * profile of a market day
+	 *
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return the day's profile
+	 */
+	public DayProfile dayProfile(final int epochDay) {
+		final int index = epochDay & mask;
+		DayProfile profile = profiles.get(index);
+		if (profile == null || profile.getEpochDay() != epochDay) {
+			profile = calendar != null && calendar.isCovered(epochDay) ? calendar.dayProfile(epochDay) : market
+					.dayProfile(epochDay);
+			profiles.set(index, profile);
+		}
+		return profile;
+	}
+
+	/**
+	 * @see MarketTime#dayProfilesBetween(int, int)
+	 */
+	public DayProfile[] dayProfilesBetween(final int from, final int to) {
+		if (to < from) {
+			throw new IllegalArgumentException("Day " + to + " is before day " + from);
+		}
+		final DayProfile[] result = new DayProfile[to - from];
+		for (int day = from; day < to; day++) {
+			result[day - from] = dayProfile(day);
+		}
+		return result;
+	}
+
+	/**
+	 * @see MarketZone#getOffset(long)
+	 */
+	public int getOffset(final long instant) {
+		return calendar != null ? calendar.getOffset(instant) : market.getZone().getOffset(instant);
+	}
+
+	/**
+	 * @see MarketZone#getTransitionCount()
+	 */
+	public int getTransitionCount() {
+		return calendar != null ? calendar.getTransitionCount() : market.getZone().getTransitionCount();
+	}
+
+	/**
+	 * @see MarketZone#getTransition(int)
+	 */
+	public long getTransition(final int index) {
+		return calendar != null ? calendar.getTransition(index) : market.getZone().getTransition(index);
+	}
+
+	/**
+	 * @see MarketZone#getOffsetAfter(int)
+	 */
+	public int getOffsetAfter(final int index) {
+		return calendar != null ? calendar.getOffsetAfter(index) : market.getZone().getOffsetAfter(index);
+	}
+
+	/**
+	 * @see MarketZone#transitionIndex(long)
+	 */
+	public int transitionIndex(final long instant) {
+		return calendar != null ? calendar.transitionIndex(instant) : market.getZone().transitionIndex(instant);
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis
+	 * @return the profile of the market day the instant's hour label belongs
+	 *         to
+	 */
+	@Override
+	public DayProfile labelProfile(final long instant) {
+		return dayProfile(market.labelDay(instant));
+	}
+
+	/**
+	 * @see MarketTime#hourLabel(long)
+	 */
+	public String hourLabel(final long instant) {
+		return market.hourLabel(instant);
+	}
+
+	/**
+	 * @see MarketTime#minuteLabel(long)
+	 */
+	public String minuteLabel(final long instant) {
+		return market.minuteLabel(instant);
+	}
+
+	/**
+	 * @see MarketTime#hoursInDay(int)
+	 */
+	public int hoursInDay(final int epochDay) {
+		return dayProfile(epochDay).getHours();
+	}
+
+	/**
+	 * @see MarketTime#startOfDay(int)
+	 */
+	public long startOfDay(final int epochDay) {
+		return dayProfile(epochDay).getStart();
+	}
+
+	/**
+	 * @see MarketTime#hourOfDay(int, String)
+	 */
+	public long hourOfDay(final int epochDay, final String label) {
+		final DayProfile profile = dayProfile(epochDay);
+		final int slot = profile.slotOf(label);
+		if (slot < 0) {
+			throw new IllegalArgumentException("Hour label " + label + " does not occur on day " + epochDay);
+		}
+		return profile.hourOf(slot);
+	}
+}
@@ -0,0 +1,247 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.DayProfileCodec;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Serves the host page with the market calendar inlined, so the first screen
+ * renders without the client recomputing Daylight Savings data or asking the
+ * server for it.
+ * </p>
+ * <p>
+ * The page (<code>/Example.html</code> unless the <code>page</code> init
+ * parameter says otherwise) is read once; its <code>&lt;!-- marketCalendar
+ * --&gt;</code> marker is replaced by a script assigning
+ * <code>window.marketCalendar</code>:
+ *
+ * <pre>
+ * {"zone":"America/Chicago","dataVersion":"262-1a2b3c4d",
+ *  "years":["15340:1325397600000:-360:NNN...N", ...],
+ *  "transitions":[1331452800000, ...],"offsets":[-300, ...]}
+ * </pre>
+ *
+ * <code>years</code> holds the day profiles (see {@link DayProfileCodec}) of
+ * each calendar year touched by the <code>months</code> (init parameter,
+ * default 6) either side of today, and <code>transitions</code>/
+ * <code>offsets</code> the zone's offset changes within those years. The
+ * rendered page is kept until the window moves, i.e. at most once a day.
+ * </p>
+ *
+ */
+public class HostPageServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOG = LoggerFactory.getLogger(HostPageServlet.class);
+
+	/**
+	 * Replaced by the inlined market calendar
+	 */
+	public static final String MARKER = "<!-- marketCalendar -->";
+
+	private static final int DEFAULT_MONTHS = 6;
+
+	private transient String template;
+
+	private int months;
+
+	private transient volatile RenderedPage rendered;
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		final String parameter = getInitParameter("page");
+		final String page = parameter == null ? "/Example.html" : parameter;
+		months = parseMonths(getInitParameter("months"));
+		try {
+			template = read(getServletContext().getResourceAsStream(page));
+		} catch (final IOException e) {
+			throw new ServletException("Cannot read host page " + page, e);
+		}
+		if (template.indexOf(MARKER) < 0) {
+			LOG.warn("Host page has no {} marker, market calendar will not be inlined", MARKER);
+		}
+	}
+
+	@Override
+	protected void doGet(final HttpServletRequest request, final HttpServletResponse response)
+			throws ServletException, IOException {
+		final ConcurrentMarketTime market = MarketCalendarListener.get(getServletContext());
+		final int today = market.getMarket().epochDay(System.currentTimeMillis());
+		RenderedPage page = rendered;
+		if (page == null || page.day != today) {
+			page = new RenderedPage(today, render(template, calendarJson(market, today, months)));
+			rendered = page;
+		}
+		response.setContentType("text/html");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+		response.getWriter().write(page.html);
+	}
+
+	/**
+	 * @param parameter
+	 *            the <code>months</code> init parameter, or null
+	 * @return the months either side of today to inline, by default 6
+	 * @throws ServletException
+	 *             if the parameter is not a number of months, 0 or more
+	 */
+	static int parseMonths(final String parameter) throws ServletException {
+		if (parameter == null) {
+			return DEFAULT_MONTHS;
+		}
+		final int months;
+		try {
+			months = Integer.parseInt(parameter.trim());
+		} catch (final NumberFormatException e) {
+			throw new ServletException("Init parameter months is not a number: " + parameter, e);
+		}
+		if (months < 0) {
+			throw new ServletException("Init parameter months is negative: " + parameter);
+		}
+		return months;
+	}
+
+	/**
+	 * @param page
+	 *            the host page
+	 * @param json
+	 *            the market calendar
+	 * @return the page with its marker replaced by a script assigning the
+	 *         calendar to <code>window.marketCalendar</code>, or unchanged if
+	 *         it has no marker
+	 */
+	public static String render(final String page, final String json) {
+		final int marker = page.indexOf(MARKER);
+		if (marker < 0) {
+			return page;
+		}
+		final StringBuilder result = new StringBuilder(page.length() + json.length() + 96);
+		result.append(page, 0, marker);
+		result.append("<script type=\"text/javascript\" language=\"javascript\">window.marketCalendar = ");
+		result.append(json).append(";</script>");
+		result.append(page, marker + MARKER.length(), page.length());
+		return result.toString();
+	}
+
+	/**
+	 * @param market
+	 *            the market time rules, reading profiles and transitions from
+	 *            the precomputed calendar if it has one
+	 * @param today
+	 *            epoch day at the centre of the window
+	 * @param months
+	 *            months either side of today
+	 * @return the market calendar as JSON
+	 */
+	public static String calendarJson(final ConcurrentMarketTime market, final int today, final int months) {
+		final int date = CivilDate.fromEpochDay(today);
+		final int monthIndex = CivilDate.year(date) * 12 + CivilDate.month(date) - 1;
+		final int firstYear = (monthIndex - months) / 12;
+		final int lastYear = (monthIndex + months) / 12;
+		final MarketZone zone = market.getMarket().getZone();
+
+		final StringBuilder json = new StringBuilder(512 * (lastYear - firstYear + 1));
+		json.append("{\"zone\":");
+		quote(json, zone.getId());
+		json.append(",\"dataVersion\":");
+		quote(json, zone.getDataVersion());
+		json.append(",\"years\":[");
+		for (int year = firstYear; year <= lastYear; year++) {
+			final DayProfile[] profiles = market.dayProfilesBetween(CivilDate.toEpochDay(year, 1, 1),
+					CivilDate.toEpochDay(year + 1, 1, 1));
+			if (year > firstYear) {
+				json.append(',');
+			}
+			quote(json, DayProfileCodec.encode(profiles));
+		}
+
+		final long from = market.startOfDay(CivilDate.toEpochDay(firstYear, 1, 1));
+		final long to = market.startOfDay(CivilDate.toEpochDay(lastYear + 1, 1, 1));
+		final StringBuilder offsets = new StringBuilder(64);
+		json.append("],\"transitions\":[");
+		for (int i = market.transitionIndex(from - 1); i < market.getTransitionCount()
+				&& market.getTransition(i) < to; i++) {
+			if (offsets.length() > 0) {
+				json.append(',');
+				offsets.append(',');
+			}
+			json.append(market.getTransition(i));
+			offsets.append(market.getOffsetAfter(i));
+		}
+		json.append("],\"offsets\":[").append(offsets).append("]}");
+		return json.toString();
+	}
+
+	/**
+	 * Appends a JSON string, safe to embed in a script element
+	 */
+	private static void quote(final StringBuilder json, final String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < ' ' || c == '<' || c == '>' || c == '&') {
+				final String hex = Integer.toHexString(c);
+				json.append("\\u");
+				for (int pad = hex.length(); pad < 4; pad++) {
+					json.append('0');
+				}
+				json.append(hex);
+			} else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+
+	private static String read(final InputStream in) throws IOException {
+		if (in == null) {
+			throw new IOException("Not found");
+		}
+		final Reader reader = new InputStreamReader(in, "UTF-8");
+		try {
+			final StringBuilder result = new StringBuilder(4096);
+			final char[] buffer = new char[4096];
+			int read;
+			while ((read = reader.read(buffer)) >= 0) {
+				result.append(buffer, 0, read);
+			}
+			return result.toString();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * A rendered page and the day it was rendered for
+	 */
+	private static class RenderedPage {
+
+		private final int day;
+
+		private final String html;
+
+		RenderedPage(final int day, final String html) {
+			this.day = day;
+			this.html = html;
+		}
+	}
+}
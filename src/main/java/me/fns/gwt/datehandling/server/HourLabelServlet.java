@@ -0,0 +1,161 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.SequentialLabeller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Bulk, server-side equivalent of
+ * <code>CSTimeUtil.convertIsoNoMillisToHourLabel</code> for back-office jobs.
+ * </p>
+ * <p>
+ * Accepts a POSTed, newline-delimited stream of ISO8601 (no millis)
+ * timestamps and streams back one comma-separated row per timestamp:
+ *
+ * <pre>
+ * 2012-11-04T01:00:00-06:00,02,2012-11-04,25
+ * </pre>
+ *
+ * i.e. the line as received less leading and trailing whitespace, its hour
+ * label, the market day the label belongs to and the number of hours in that
+ * day. A line that cannot be parsed yields an empty label and day and -1
+ * hours, as CSTimeUtil does for bad data; if it holds a comma or a double
+ * quote it is echoed in double quotes, any quote doubled (RFC 4180), so
+ * every row has four fields. Blank lines are skipped.
+ * </p>
+ * <p>
+ * Lines are read and written one at a time and no content length is set, so
+ * the container answers with chunked transfer encoding and memory use stays
+ * constant regardless of the size of the request. Uses the same
+ * {@link MarketTime} rules as the client, through the
+ * {@link ConcurrentMarketTime} the web application shares between request
+ * threads (see {@link MarketCalendarListener}). Each request
+ * is labelled by its own {@link SequentialLabeller}, so sorted input costs
+ * little more than reading it; the day profiles it needs at each new day
+ * come from the shared cache (or calendar file) rather than being rebuilt.
+ * </p>
+ *
+ */
+public class HourLabelServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOG = LoggerFactory.getLogger(HourLabelServlet.class);
+
+	/**
+	 * Rows written between flushes, each flush goes out as (at least) one
+	 * chunk
+	 */
+	private static final int ROWS_PER_FLUSH = 1024;
+
+	private transient ConcurrentMarketTime market;
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		market = MarketCalendarListener.get(getServletContext());
+	}
+
+	@Override
+	protected void doPost(final HttpServletRequest request, final HttpServletResponse response)
+			throws ServletException, IOException {
+		response.setContentType("text/csv");
+		response.setCharacterEncoding("UTF-8");
+		final long rows = convert(request.getReader(), response.getWriter(), market);
+		LOG.debug("Labelled {} timestamps", rows);
+	}
+
+	/**
+	 * Converts each line of input into a label row
+	 *
+	 * @param in
+	 *            newline-delimited ISO8601 (no millis) timestamps
+	 * @param out
+	 *            receives one row per non-blank line, the (trimmed) line
+	 *            first, quoted if it holds a comma or a double quote
+	 * @param market
+	 *            the market time rules to apply, shared between request
+	 *            threads
+	 * @return the number of rows written
+	 * @throws IOException
+	 *             if reading or writing fails
+	 */
+	public static long convert(final BufferedReader in, final Writer out, final ConcurrentMarketTime market)
+			throws IOException {
+		final SequentialLabeller labeller = new SequentialLabeller(market);
+		long rows = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			final String iso = line.trim();
+			if (iso.isEmpty()) {
+				continue;
+			}
+			writeField(out, iso);
+			out.write(',');
+			try {
+				final String label = labeller.isoHourLabel(iso);
+				final DayProfile day = labeller.getProfile();
+				out.write(label);
+				out.write(',');
+				writeDay(out, day.getEpochDay());
+				out.write(',');
+				writeTwoDigits(out, day.getHours());
+			} catch (final IllegalArgumentException e) {
+				out.write(",,-1");
+			}
+			out.write('\n');
+			if (++rows % ROWS_PER_FLUSH == 0) {
+				out.flush();
+			}
+		}
+		out.flush();
+		return rows;
+	}
+
+	/**
+	 * Writes a CSV field, in double quotes if it holds a comma or a double
+	 * quote (lines hold no line breaks)
+	 */
+	private static void writeField(final Writer out, final String field) throws IOException {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+			out.write(field);
+			return;
+		}
+		out.write('"');
+		out.write(field.replace("\"", "\"\""));
+		out.write('"');
+	}
+
+	/**
+	 * Writes an epoch day as yyyy-MM-dd
+	 */
+	private static void writeDay(final Writer out, final int epochDay) throws IOException {
+		final int date = CivilDate.fromEpochDay(epochDay);
+		final int year = CivilDate.year(date);
+		writeTwoDigits(out, year / 100);
+		writeTwoDigits(out, year % 100);
+		out.write('-');
+		writeTwoDigits(out, CivilDate.month(date));
+		out.write('-');
+		writeTwoDigits(out, CivilDate.day(date));
+	}
+
+	private static void writeTwoDigits(final Writer out, final int value) throws IOException {
+		out.write('0' + value / 10);
+		out.write('0' + value % 10);
+	}
+}
@@ -0,0 +1,53 @@
+package me.fns.gwt.datehandling.server;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+
+import me.fns.gwt.datehandling.client.feed.IntervalFeedService;
+import me.fns.gwt.datehandling.shared.IntervalChanges;
+
+import com.google.gwt.user.server.rpc.RemoteServiceServlet;
+
+/**
+ * <p>
+ * Serves the interval delta feed from the web application's
+ * {@link IntervalStore}.
+ * </p>
+ * <p>
+ * The store is shared through the servlet context under
+ * {@link #STORE_ATTRIBUTE}, so whatever loads live values can write to the
+ * same instance; one holding 5-minute intervals, following the web
+ * application's market time (see {@link MarketCalendarListener}), is created
+ * if none has been registered.
+ * </p>
+ *
+ */
+public class IntervalFeedServiceImpl extends RemoteServiceServlet implements IntervalFeedService {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Servlet context attribute holding the {@link IntervalStore}
+	 */
+	public static final String STORE_ATTRIBUTE = IntervalStore.class.getName();
+
+	private transient IntervalStore store;
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		final ServletContext context = getServletContext();
+		synchronized (context) {
+			store = (IntervalStore) context.getAttribute(STORE_ATTRIBUTE);
+			if (store == null) {
+				store = new IntervalStore(MarketCalendarListener.get(context), 12);
+				context.setAttribute(STORE_ATTRIBUTE, store);
+			}
+		}
+	}
+
+	@Override
+	public IntervalChanges changesSince(final int firstDay, final int lastDay, final long since) {
+		return store.changesSince(firstDay, lastDay, since);
+	}
+}
@@ -0,0 +1,266 @@
+package me.fns.gwt.datehandling.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import me.fns.gwt.datehandling.client.feed.IntervalFeedService;
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.IntervalChanges;
+import me.fns.gwt.datehandling.shared.IntervalDelta;
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+/**
+ * <p>
+ * Live interval values, versioned per slot, backing the delta feed.
+ * </p>
+ * <p>
+ * Every write takes the next value of a store-wide version counter and stamps
+ * it on the slot and on its day. A client that last saw version
+ * <code>v</code> is sent only the slots stamped after <code>v</code>, and
+ * days whose stamp is not after <code>v</code> are skipped without looking at
+ * their slots. Writes exclude reads so that a client is never handed a
+ * version whose writes it has not also been sent; reads run concurrently.
+ * </p>
+ * <p>
+ * Only a window of recent days is kept: once a write reaches a later day,
+ * days that fall out of the retention window behind it are dropped, and
+ * writes to them are refused.
+ * </p>
+ *
+ */
+public class IntervalStore {
+
+	/**
+	 * Days kept by default, counting back from the latest day written to
+	 */
+	public static final int DEFAULT_RETENTION_DAYS = IntervalFeedService.MAX_DAYS;
+
+	private final ConcurrentMarketTime market;
+
+	private final int intervalsPerHour;
+
+	private final long intervalMillis;
+
+	private final int retentionDays;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<Integer, DaySlots> days = new HashMap<Integer, DaySlots>();
+
+	private long version;
+
+	/**
+	 * The latest day written to
+	 */
+	private int lastDay = Integer.MIN_VALUE;
+
+	/**
+	 * Keeps {@link #DEFAULT_RETENTION_DAYS} days
+	 *
+	 * @param market
+	 *            the market time rules the days follow
+	 * @param intervalsPerHour
+	 *            values per hour, a divisor of 60 (e.g. 12 for 5-minute
+	 *            intervals)
+	 */
+	public IntervalStore(final ConcurrentMarketTime market, final int intervalsPerHour) {
+		this(market, intervalsPerHour, DEFAULT_RETENTION_DAYS);
+	}
+
+	/**
+	 * @param market
+	 *            the market time rules the days follow
+	 * @param intervalsPerHour
+	 *            values per hour, a divisor of 60 (e.g. 12 for 5-minute
+	 *            intervals)
+	 * @param retentionDays
+	 *            days kept, counting back from (and including) the latest
+	 *            day written to
+	 */
+	public IntervalStore(final ConcurrentMarketTime market, final int intervalsPerHour, final int retentionDays) {
+		if (intervalsPerHour < 1 || 60 % intervalsPerHour != 0) {
+			throw new IllegalArgumentException("Intervals per hour must divide 60: " + intervalsPerHour);
+		}
+		if (retentionDays < 1) {
+			throw new IllegalArgumentException("Retention must be at least a day: " + retentionDays);
+		}
+		this.market = market;
+		this.intervalsPerHour = intervalsPerHour;
+		this.retentionDays = retentionDays;
+		intervalMillis = MarketTime.MILLIS_PER_HOUR / intervalsPerHour;
+	}
+
+	/**
+	 * @return values per hour
+	 */
+	public int getIntervalsPerHour() {
+		return intervalsPerHour;
+	}
+
+	/**
+	 * @return the number of days held
+	 */
+	public int getDayCount() {
+		lock.readLock().lock();
+		try {
+			return days.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the version of the latest write, 0 before any
+	 */
+	public long getVersion() {
+		lock.readLock().lock();
+		try {
+			return version;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Records the value of an interval
+	 *
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @param slot
+	 *            0-based slot within the day
+	 * @param value
+	 *            the new value
+	 * @return the version of the write
+	 * @throws IllegalArgumentException
+	 *             if the day has no such slot, or is older than the
+	 *             retention window
+	 */
+	public long put(final int epochDay, final int slot, final double value) {
+		lock.writeLock().lock();
+		try {
+			if (epochDay > lastDay) {
+				retainFrom(epochDay);
+			} else if (epochDay <= lastDay - retentionDays) {
+				throw new IllegalArgumentException("Day " + epochDay + " is older than the " + retentionDays
+						+ " days kept");
+			}
+			final DaySlots day = slots(epochDay);
+			if (slot < 0 || slot >= day.values.length) {
+				throw new IllegalArgumentException("No slot " + slot + " on day " + epochDay);
+			}
+			version++;
+			day.values[slot] = value;
+			day.versions[slot] = version;
+			day.version = version;
+			return version;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Records the value of the interval an instant falls in, within the hour
+	 * whose label it carries
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @param value
+	 *            the new value
+	 * @return the version of the write
+	 */
+	public long put(final long instant, final double value) {
+		final DayProfile profile = market.labelProfile(instant);
+		final int slot = (int) ((instant - MarketTime.MILLIS_PER_HOUR - profile.getStart()) / intervalMillis);
+		return put(profile.getEpochDay(), slot, value);
+	}
+
+	/**
+	 * Collects the slots written after a version
+	 *
+	 * @param firstDay
+	 *            the first epoch day of interest
+	 * @param lastDay
+	 *            the last epoch day of interest
+	 * @param since
+	 *            the version the client last saw, 0 for everything
+	 * @return the changes and the version they bring the client up to
+	 */
+	public IntervalChanges changesSince(final int firstDay, final int lastDay, final long since) {
+		if (lastDay < firstDay || lastDay - firstDay >= IntervalFeedService.MAX_DAYS) {
+			throw new IllegalArgumentException("Days " + firstDay + " to " + lastDay + " exceed "
+					+ IntervalFeedService.MAX_DAYS);
+		}
+		lock.readLock().lock();
+		try {
+			final List<IntervalDelta> deltas = new ArrayList<IntervalDelta>();
+			for (int epochDay = firstDay; epochDay <= lastDay; epochDay++) {
+				final DaySlots day = days.get(epochDay);
+				if (day != null && day.version > since) {
+					deltas.add(day.changesSince(epochDay, since));
+				}
+			}
+			return new IntervalChanges(version, intervalsPerHour, deltas.toArray(new IntervalDelta[deltas.size()]));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void retainFrom(final int epochDay) {
+		lastDay = epochDay;
+		final Iterator<Integer> held = days.keySet().iterator();
+		while (held.hasNext()) {
+			if (held.next() <= epochDay - retentionDays) {
+				held.remove();
+			}
+		}
+	}
+
+	private DaySlots slots(final int epochDay) {
+		DaySlots day = days.get(epochDay);
+		if (day == null) {
+			day = new DaySlots(market.hoursInDay(epochDay) * intervalsPerHour);
+			days.put(epochDay, day);
+		}
+		return day;
+	}
+
+	private static class DaySlots {
+
+		private final double[] values;
+
+		private final long[] versions;
+
+		private long version;
+
+		DaySlots(final int slots) {
+			values = new double[slots];
+			Arrays.fill(values, Double.NaN);
+			versions = new long[slots];
+		}
+
+		IntervalDelta changesSince(final int epochDay, final long since) {
+			int count = 0;
+			for (final long slotVersion : versions) {
+				if (slotVersion > since) {
+					count++;
+				}
+			}
+			final int[] slots = new int[count];
+			final double[] changed = new double[count];
+			int i = 0;
+			for (int slot = 0; slot < versions.length; slot++) {
+				if (versions[slot] > since) {
+					slots[i] = slot;
+					changed[i++] = values[slot];
+				}
+			}
+			return new IntervalDelta(epochDay, slots, changed);
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package me.fns.gwt.datehandling.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.fns.gwt.datehandling.shared.SeriesPayload;
+
+/**
+ * <p>
+ * JVM-side {@link SeriesPayload}: writes the JSON that the client reads in
+ * place (<code>SeriesPayloadData</code>), and reads it back, e.g. for
+ * server-side tests of code that consumes payloads.
+ * </p>
+ * <p>
+ * The reader handles exactly the payload's shape: one object whose
+ * <code>timestamps</code> are strings and whose <code>values</code> are
+ * numbers or null; any other member is skipped.
+ * </p>
+ *
+ */
+public final class JsonSeriesPayload implements SeriesPayload {
+
+	private final int intervalsPerHour;
+
+	private final String[] timestamps;
+
+	private final double[] values;
+
+	/**
+	 * @param intervalsPerHour
+	 *            values per hour, a divisor of 60
+	 * @param timestamps
+	 *            ISO8601 formatted Strings (no millis)
+	 * @param values
+	 *            one per timestamp, NaN for none
+	 */
+	public JsonSeriesPayload(final int intervalsPerHour, final String[] timestamps, final double[] values) {
+		if (timestamps.length != values.length) {
+			throw new IllegalArgumentException(timestamps.length + " timestamps but " + values.length + " values");
+		}
+		this.intervalsPerHour = intervalsPerHour;
+		this.timestamps = timestamps.clone();
+		this.values = values.clone();
+	}
+
+	/**
+	 * @param json
+	 *            a series payload
+	 * @return the payload
+	 * @throws IllegalArgumentException
+	 *             if the text is not a series payload
+	 */
+	public static JsonSeriesPayload parse(final String json) {
+		return new Reader(json).payload();
+	}
+
+	@Override
+	public int getIntervalsPerHour() {
+		return intervalsPerHour;
+	}
+
+	@Override
+	public int size() {
+		return timestamps.length;
+	}
+
+	@Override
+	public String getTimestamp(final int index) {
+		return timestamps[index];
+	}
+
+	@Override
+	public double getValue(final int index) {
+		return values[index];
+	}
+
+	/**
+	 * @return the payload as JSON, NaN and infinite values written as null
+	 */
+	public String toJson() {
+		final StringBuilder json = new StringBuilder(48 + 40 * timestamps.length);
+		json.append("{\"intervalsPerHour\":").append(intervalsPerHour).append(",\"timestamps\":[");
+		for (int i = 0; i < timestamps.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			// ISO8601 timestamps need no escaping
+			json.append('"').append(timestamps[i]).append('"');
+		}
+		json.append("],\"values\":[");
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			final double value = values[i];
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				json.append("null");
+			} else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+				json.append((long) value);
+			} else {
+				json.append(value);
+			}
+		}
+		return json.append("]}").toString();
+	}
+
+	@Override
+	public String toString() {
+		return "JsonSeriesPayload[" + intervalsPerHour + "/h, " + timestamps.length + " values]";
+	}
+
+	/**
+	 * Recursive descent over the payload's text
+	 */
+	private static final class Reader {
+
+		private final String json;
+
+		private int position;
+
+		Reader(final String json) {
+			this.json = json;
+		}
+
+		JsonSeriesPayload payload() {
+			int intervalsPerHour = 1;
+			String[] timestamps = null;
+			double[] values = null;
+			expect('{');
+			if (!consume('}')) {
+				do {
+					final String name = string();
+					expect(':');
+					if ("intervalsPerHour".equals(name)) {
+						intervalsPerHour = (int) number();
+					} else if ("timestamps".equals(name)) {
+						timestamps = strings();
+					} else if ("values".equals(name)) {
+						values = numbers();
+					} else {
+						skipValue();
+					}
+				} while (consume(','));
+				expect('}');
+			}
+			skipWhitespace();
+			if (position != json.length()) {
+				throw error("end of input");
+			}
+			if (timestamps == null || values == null) {
+				throw new IllegalArgumentException("Series payload needs timestamps and values");
+			}
+			return new JsonSeriesPayload(intervalsPerHour, timestamps, values);
+		}
+
+		private String[] strings() {
+			final List<String> result = new ArrayList<String>();
+			expect('[');
+			if (!consume(']')) {
+				do {
+					result.add(string());
+				} while (consume(','));
+				expect(']');
+			}
+			return result.toArray(new String[result.size()]);
+		}
+
+		private double[] numbers() {
+			double[] result = new double[64];
+			int count = 0;
+			expect('[');
+			if (!consume(']')) {
+				do {
+					if (count == result.length) {
+						result = Arrays.copyOf(result, count * 2);
+					}
+					result[count++] = literal("null") ? Double.NaN : number();
+				} while (consume(','));
+				expect(']');
+			}
+			return Arrays.copyOf(result, count);
+		}
+
+		private String string() {
+			expect('"');
+			final StringBuilder result = new StringBuilder(32);
+			while (position < json.length()) {
+				final char c = json.charAt(position++);
+				if (c == '"') {
+					return result.toString();
+				}
+				if (c != '\\') {
+					result.append(c);
+				} else if (position < json.length()) {
+					final char escaped = json.charAt(position++);
+					switch (escaped) {
+					case 'b':
+						result.append('\b');
+						break;
+					case 'f':
+						result.append('\f');
+						break;
+					case 'n':
+						result.append('\n');
+						break;
+					case 'r':
+						result.append('\r');
+						break;
+					case 't':
+						result.append('\t');
+						break;
+					case 'u':
+						if (position + 4 > json.length()) {
+							throw error("4 hex digits");
+						}
+						try {
+							result.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+						} catch (final NumberFormatException e) {
+							throw error("4 hex digits");
+						}
+						position += 4;
+						break;
+					default:
+						result.append(escaped);
+					}
+				}
+			}
+			throw error("closing quote");
+		}
+
+		private double number() {
+			skipWhitespace();
+			final int start = position;
+			while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+				position++;
+			}
+			try {
+				return Double.parseDouble(json.substring(start, position));
+			} catch (final NumberFormatException e) {
+				position = start;
+				throw error("a number");
+			}
+		}
+
+		private void skipValue() {
+			skipWhitespace();
+			if (position >= json.length()) {
+				throw error("a value");
+			}
+			final char c = json.charAt(position);
+			if (c == '"') {
+				string();
+			} else if (c == '{' || c == '[') {
+				final char close = c == '{' ? '}' : ']';
+				position++;
+				if (!consume(close)) {
+					do {
+						if (c == '{') {
+							string();
+							expect(':');
+						}
+						skipValue();
+					} while (consume(','));
+					expect(close);
+				}
+			} else if (!literal("null") && !literal("true") && !literal("false")) {
+				number();
+			}
+		}
+
+		private boolean literal(final String word) {
+			skipWhitespace();
+			if (json.startsWith(word, position)) {
+				position += word.length();
+				return true;
+			}
+			return false;
+		}
+
+		private boolean consume(final char c) {
+			skipWhitespace();
+			if (position < json.length() && json.charAt(position) == c) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(final char c) {
+			if (!consume(c)) {
+				throw error("'" + c + "'");
+			}
+		}
+
+		private void skipWhitespace() {
+			while (position < json.length() && json.charAt(position) <= ' ') {
+				position++;
+			}
+		}
+
+		private IllegalArgumentException error(final String expected) {
+			return new IllegalArgumentException("Expected " + expected + " at position " + position
+					+ " of series payload");
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Opens the precomputed market calendar (see {@link CalendarFile} and the
+ * <code>calendar</code> profile in the pom) once, when the web application
+ * starts, and shares a {@link ConcurrentMarketTime} reading from it with
+ * every servlet through the servlet context.
+ * </p>
+ * <p>
+ * If <code>WEB-INF/market-calendar.bin</code> is absent (e.g. the WAR was
+ * built without the profile, or is not unpacked), unreadable, or was built
+ * from other zone data than {@link MarketTime#CENTRAL}'s, the servlets fall
+ * back to computing day profiles with MarketTime, exactly as without a
+ * calendar.
+ * </p>
+ *
+ */
+public class MarketCalendarListener implements ServletContextListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MarketCalendarListener.class);
+
+	/**
+	 * Servlet context attribute holding the {@link ConcurrentMarketTime}
+	 */
+	public static final String MARKET_ATTRIBUTE = ConcurrentMarketTime.class.getName();
+
+	/**
+	 * Where the calendar is looked for, relative to the web application
+	 */
+	public static final String CALENDAR_PATH = "/WEB-INF/market-calendar.bin";
+
+	@Override
+	public void contextInitialized(final ServletContextEvent event) {
+		final ServletContext context = event.getServletContext();
+		final String path = context.getRealPath(CALENDAR_PATH);
+		context.setAttribute(MARKET_ATTRIBUTE, open(path == null ? null : new File(path), MarketTime.CENTRAL));
+	}
+
+	@Override
+	public void contextDestroyed(final ServletContextEvent event) {
+		event.getServletContext().removeAttribute(MARKET_ATTRIBUTE);
+	}
+
+	/**
+	 * @param context
+	 *            the web application's context
+	 * @return the market time shared by the web application, or
+	 *         {@link ConcurrentMarketTime#CENTRAL} if the listener is not
+	 *         registered
+	 */
+	public static ConcurrentMarketTime get(final ServletContext context) {
+		final ConcurrentMarketTime market = (ConcurrentMarketTime) context.getAttribute(MARKET_ATTRIBUTE);
+		return market == null ? ConcurrentMarketTime.CENTRAL : market;
+	}
+
+	/**
+	 * @param file
+	 *            a calendar file, or null
+	 * @param market
+	 *            the market time rules
+	 * @return market time reading day profiles from the file's calendar of
+	 *         the market's zone, or computing them if the file is missing,
+	 *         unreadable, or holds no calendar of the same zone data
+	 */
+	public static ConcurrentMarketTime open(final File file, final MarketTime market) {
+		final MarketZone zone = market.getZone();
+		CalendarFile.Market calendar = null;
+		if (file == null || !file.isFile()) {
+			LOG.info("No market calendar at {}, day profiles will be computed", file);
+		} else {
+			try {
+				calendar = CalendarFile.open(file).getMarkets().get(zone.getId());
+				if (calendar == null) {
+					LOG.warn("No {} calendar in {}, day profiles will be computed", zone.getId(), file);
+				} else if (!zone.getDataVersion().equals(calendar.getDataVersion())) {
+					LOG.warn("{} calendar in {} is of zone data {}, not {}; day profiles will be computed",
+							new Object[] { zone.getId(), file, calendar.getDataVersion(), zone.getDataVersion() });
+					calendar = null;
+				} else {
+					LOG.info("Reading {} day profiles {} to {} from {}", new Object[] { zone.getId(),
+							calendar.getFirstDay(), calendar.getFirstDay() + calendar.getDayCount() - 1, file });
+				}
+			} catch (final IOException e) {
+				LOG.warn("Cannot open market calendar " + file + ", day profiles will be computed", e);
+			}
+		}
+		return new ConcurrentMarketTime(market, calendar, ConcurrentMarketTime.DEFAULT_CAPACITY);
+	}
+}
@@ -0,0 +1,174 @@
+package me.fns.gwt.datehandling.server;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+/**
+ * <p>
+ * Bulk, parallel equivalent of
+ * <code>CSTimeUtil.convertIsoNoMillisToHourLabel</code> for large batches
+ * such as month-end reconciliation.
+ * </p>
+ * <p>
+ * The input is split recursively on a {@link ForkJoinPool} of configurable
+ * parallelism. Split points are moved forward to the next market day
+ * boundary (found by galloping then binary search, assuming the timestamps
+ * are in ascending order) so that each leaf labels whole days against a
+ * single {@link DayProfile}, which reduces labelling to a subtraction and a
+ * division. Unordered input is still labelled correctly, only less
+ * efficiently. Each label is written at the index of its timestamp, so output
+ * order always matches input order.
+ * </p>
+ * <p>
+ * Requires Java 7. Instances are thread-safe; call {@link #shutdown()} once
+ * no longer needed.
+ * </p>
+ *
+ */
+public class ParallelHourLabeller {
+
+	/**
+	 * Timestamps a task labels itself rather than splitting further
+	 */
+	private static final int LEAF_SIZE = 4096;
+
+	private final ConcurrentMarketTime market;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param market
+	 *            the market time rules to apply
+	 * @param parallelism
+	 *            number of worker threads
+	 */
+	public ParallelHourLabeller(final ConcurrentMarketTime market, final int parallelism) {
+		this.market = market;
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * @return number of worker threads
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Converts ISO8601 formatted Strings (no millis) into hour labels
+	 *
+	 * @param isoDateTimes
+	 *            ISO8601 Strings (no millis), ideally in ascending order
+	 * @return the hour label of each timestamp, in the same order; an empty
+	 *         String wherever the timestamp is null, empty or cannot be
+	 *         parsed
+	 */
+	public String[] label(final String[] isoDateTimes) {
+		final String[] labels = new String[isoDateTimes.length];
+		if (isoDateTimes.length > 0) {
+			pool.invoke(new LabelTask(isoDateTimes, labels, 0, isoDateTimes.length));
+		}
+		return labels;
+	}
+
+	/**
+	 * Stops the worker threads
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * @return the epoch day an ISO8601 timestamp's hour label belongs to, or
+	 *         {@link Integer#MIN_VALUE} if it cannot be parsed
+	 */
+	private int labelDay(final String iso) {
+		try {
+			return market.getMarket().labelDay(MarketTime.parseIsoNoMillis(iso));
+		} catch (final RuntimeException e) {
+			return Integer.MIN_VALUE;
+		}
+	}
+
+	private class LabelTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String[] in;
+
+		private final String[] out;
+
+		private final int from;
+
+		private final int to;
+
+		LabelTask(final String[] in, final String[] out, final int from, final int to) {
+			this.in = in;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= LEAF_SIZE) {
+				labelRange();
+				return;
+			}
+			final int split = dayBoundary(from + (to - from) / 2);
+			invokeAll(new LabelTask(in, out, from, split), new LabelTask(in, out, split, to));
+		}
+
+		/**
+		 * Finds the first index at or after <code>mid</code> whose label day
+		 * differs from that of <code>mid - 1</code>, or <code>mid</code> if the
+		 * rest of the range is all the same day
+		 */
+		private int dayBoundary(final int mid) {
+			final int day = labelDay(in[mid - 1]);
+			int same = mid - 1;
+			int bound = 1;
+			while (same + bound < to && labelDay(in[same + bound]) == day) {
+				same += bound;
+				bound <<= 1;
+			}
+			int differs = Math.min(same + bound, to);
+			while (differs - same > 1) {
+				final int probe = (same + differs) >>> 1;
+				if (labelDay(in[probe]) == day) {
+					same = probe;
+				} else {
+					differs = probe;
+				}
+			}
+			return differs < to ? differs : mid;
+		}
+
+		private void labelRange() {
+			DayProfile profile = null;
+			for (int i = from; i < to; i++) {
+				final String iso = in[i];
+				if (iso == null || iso.isEmpty()) {
+					out[i] = "";
+					continue;
+				}
+				final long instant;
+				try {
+					instant = MarketTime.parseIsoNoMillis(iso);
+				} catch (final IllegalArgumentException e) {
+					out[i] = "";
+					continue;
+				}
+				int slot = profile == null ? -1 : profile.slotOf(instant);
+				if (slot < 0) {
+					profile = market.labelProfile(instant);
+					slot = profile.slotOf(instant);
+				}
+				out[i] = profile.getLabel(slot);
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Receives client startup reports (see
+ * <code>me.fns.gwt.datehandling.shared.StartupTimeline</code>), one
+ * <code>phase=millis</code> line per phase, and aggregates them into
+ * {@link StartupStats}.
+ * </p>
+ * <p>
+ * A GET answers with the current percentiles as text/plain, one line per
+ * phase, for dashboards to scrape, but only if the <code>statistics</code>
+ * init-param is <code>true</code> (it is off by default) and the request
+ * comes from a loopback address; any other GET gets 403 Forbidden. The
+ * address check means nothing behind a reverse proxy on the same host, which
+ * makes every client appear to come from 127.0.0.1: there, leave statistics
+ * off, or have the proxy (or a security constraint in web.xml) restrict who
+ * reaches the URL.
+ * </p>
+ *
+ */
+public class StartupReportServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOG = LoggerFactory.getLogger(StartupReportServlet.class);
+
+	/**
+	 * Lines read from a single report at most
+	 */
+	private static final int MAX_LINES = 64;
+
+	private static final Pattern LINE = Pattern.compile("[A-Za-z][A-Za-z0-9]{0,31}=[0-9]{1,9}");
+
+	private final StartupStats stats = new StartupStats();
+
+	private boolean statistics;
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		statistics = Boolean.parseBoolean(getInitParameter("statistics"));
+	}
+
+	@Override
+	protected void doPost(final HttpServletRequest request, final HttpServletResponse response)
+			throws ServletException, IOException {
+		final int recorded = record(request.getReader(), stats);
+		LOG.debug("Recorded {} startup phases", recorded);
+		response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+	}
+
+	@Override
+	protected void doGet(final HttpServletRequest request, final HttpServletResponse response)
+			throws ServletException, IOException {
+		if (!allowsStatistics(statistics, request.getRemoteAddr())) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+		response.setContentType("text/plain");
+		response.setCharacterEncoding("UTF-8");
+		response.getWriter().write(stats.report());
+	}
+
+	/**
+	 * @param statistics
+	 *            whether the <code>statistics</code> init-param is set
+	 * @param remoteAddr
+	 *            the client's IP address
+	 * @return true if statistics may be served to the client
+	 */
+	static boolean allowsStatistics(final boolean statistics, final String remoteAddr) {
+		return statistics && isLocal(remoteAddr);
+	}
+
+	/**
+	 * @param remoteAddr
+	 *            the client's IP address
+	 * @return true if the address is a loopback address (as is every client's
+	 *         behind a local reverse proxy)
+	 */
+	static boolean isLocal(final String remoteAddr) {
+		return remoteAddr != null
+				&& (remoteAddr.startsWith("127.") || "::1".equals(remoteAddr) || "0:0:0:0:0:0:0:1".equals(remoteAddr));
+	}
+
+	/**
+	 * Records each well-formed line of a report
+	 *
+	 * @param in
+	 *            the report
+	 * @param stats
+	 *            receives the durations
+	 * @return the number of durations recorded
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public static int record(final BufferedReader in, final StartupStats stats) throws IOException {
+		int recorded = 0;
+		String line;
+		for (int lines = 0; lines < MAX_LINES && (line = in.readLine()) != null; lines++) {
+			final String entry = line.trim();
+			if (LINE.matcher(entry).matches()) {
+				final int equals = entry.indexOf('=');
+				if (stats.record(entry.substring(0, equals), Long.parseLong(entry.substring(equals + 1)))) {
+					recorded++;
+				}
+			}
+		}
+		return recorded;
+	}
+}
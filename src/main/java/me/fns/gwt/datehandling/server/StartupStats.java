@@ -0,0 +1,169 @@
+package me.fns.gwt.datehandling.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Aggregates client startup reports into per-phase percentiles.
+ * </p>
+ * <p>
+ * Each phase keeps a fixed histogram of durations: exact to the millisecond
+ * below one second, to 10 milliseconds up to a minute, with one overflow
+ * bucket beyond. Recording is a single atomic increment, so request threads
+ * never block each other, and memory stays constant however many reports
+ * arrive. At most {@link #MAX_PHASES} distinct phase names are accepted.
+ * </p>
+ *
+ */
+public class StartupStats {
+
+	/**
+	 * Most distinct phases tracked
+	 */
+	public static final int MAX_PHASES = 32;
+
+	/**
+	 * Longest duration, in milliseconds, the histogram resolves
+	 */
+	public static final long MAX_MILLIS = 60000;
+
+	/**
+	 * Percentile of durations beyond {@link #MAX_MILLIS}
+	 */
+	public static final long OVERFLOW = -2;
+
+	private static final int EXACT_MILLIS = 1000;
+
+	private static final int COARSE_STEP = 10;
+
+	private static final int BUCKETS = EXACT_MILLIS + (int) (MAX_MILLIS - EXACT_MILLIS) / COARSE_STEP + 1;
+
+	private final ConcurrentMap<String, AtomicLongArray> phases = new ConcurrentHashMap<String, AtomicLongArray>();
+
+	/**
+	 * Records one observed duration
+	 *
+	 * @param phase
+	 *            phase name
+	 * @param millis
+	 *            duration
+	 * @return false if ignored because the duration is negative or too many
+	 *         phases are tracked already
+	 */
+	public boolean record(final String phase, final long millis) {
+		if (millis < 0) {
+			return false;
+		}
+		AtomicLongArray histogram = phases.get(phase);
+		if (histogram == null) {
+			if (phases.size() >= MAX_PHASES) {
+				return false;
+			}
+			final AtomicLongArray created = new AtomicLongArray(BUCKETS);
+			histogram = phases.putIfAbsent(phase, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+		histogram.incrementAndGet(bucket(millis));
+		return true;
+	}
+
+	/**
+	 * @param phase
+	 *            phase name
+	 * @return number of durations recorded
+	 */
+	public long count(final String phase) {
+		final AtomicLongArray histogram = phases.get(phase);
+		long count = 0;
+		if (histogram != null) {
+			for (int i = 0; i < BUCKETS; i++) {
+				count += histogram.get(i);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param phase
+	 *            phase name
+	 * @param percentile
+	 *            0 to 100
+	 * @return the smallest recorded duration (to the bucket's precision) that
+	 *         at least <code>percentile</code> percent of the durations do
+	 *         not exceed, {@link #OVERFLOW} if that lies beyond
+	 *         {@link #MAX_MILLIS}, or -1 if nothing was recorded
+	 */
+	public long percentile(final String phase, final double percentile) {
+		final AtomicLongArray histogram = phases.get(phase);
+		if (histogram == null) {
+			return -1;
+		}
+		final long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = histogram.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return -1;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(BUCKETS - 1);
+	}
+
+	/**
+	 * @return one line per phase, sorted by name:
+	 *         <code>phase count=n p50=ms p90=ms p99=ms</code>, where a
+	 *         percentile beyond {@link #MAX_MILLIS} reads
+	 *         <code>&gt;60000</code>
+	 */
+	public String report() {
+		final Map<String, AtomicLongArray> sorted = new TreeMap<String, AtomicLongArray>(phases);
+		final StringBuilder result = new StringBuilder();
+		for (final String phase : sorted.keySet()) {
+			result.append(phase).append(" count=").append(count(phase));
+			appendPercentile(result.append(" p50="), phase, 50);
+			appendPercentile(result.append(" p90="), phase, 90);
+			appendPercentile(result.append(" p99="), phase, 99).append('\n');
+		}
+		return result.toString();
+	}
+
+	private StringBuilder appendPercentile(final StringBuilder result, final String phase, final double percentile) {
+		final long millis = percentile(phase, percentile);
+		return millis == OVERFLOW ? result.append('>').append(MAX_MILLIS) : result.append(millis);
+	}
+
+	private static int bucket(final long millis) {
+		if (millis < EXACT_MILLIS) {
+			return (int) millis;
+		}
+		if (millis < MAX_MILLIS) {
+			return EXACT_MILLIS + (int) ((millis - EXACT_MILLIS) / COARSE_STEP);
+		}
+		return BUCKETS - 1;
+	}
+
+	private static long upperBound(final int bucket) {
+		if (bucket < EXACT_MILLIS) {
+			return bucket;
+		}
+		if (bucket < BUCKETS - 1) {
+			return EXACT_MILLIS + (bucket - EXACT_MILLIS + 1) * COARSE_STEP - 1;
+		}
+		return OVERFLOW;
+	}
+}
@@ -0,0 +1,190 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Proleptic Gregorian calendar arithmetic on epoch days (days since
+ * 1970-01-01).
+ * </p>
+ * <p>
+ * A calendar date is handed around as a packed <code>int</code> of the form
+ * <code>yyyyMMdd</code> so that no objects are allocated when converting
+ * between epoch days and year/month/day fields. Safe to use on both client
+ * (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class CivilDate {
+
+	/**
+	 * The number of days in each month of a non-leap year.
+	 */
+	private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+	private CivilDate() {
+	}
+
+	/**
+	 * Determines whether year is a leap year
+	 *
+	 * @param year
+	 *            a 4-digit year
+	 * @return true if February of year has 29 days; false otherwise
+	 */
+	public static boolean isLeapYear(final int year) {
+		return year % 400 == 0 || year % 4 == 0 && year % 100 != 0;
+	}
+
+	/**
+	 * Determines the number of days in a month
+	 *
+	 * @param year
+	 *            a 4-digit year
+	 * @param month
+	 *            a month (where 1 = January and 12 = December)
+	 * @return the number of days in the month
+	 */
+	public static int lengthOfMonth(final int year, final int month) {
+		int result = DAYS_IN_MONTH[month - 1];
+		if (month == 2 && isLeapYear(year)) {
+			result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Converts year, month and day fields into an epoch day
+	 *
+	 * @param year
+	 *            a 4-digit year
+	 * @param month
+	 *            a month (where 1 = January and 12 = December)
+	 * @param day
+	 *            a day of month (where first day of month is 1)
+	 * @return the number of days since 1970-01-01
+	 */
+	public static int toEpochDay(final int year, final int month, final int day) {
+		final int y = month <= 2 ? year - 1 : year;
+		final int era = (y >= 0 ? y : y - 399) / 400;
+		final int yearOfEra = y - era * 400;
+		final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Converts an epoch day into a packed <code>yyyyMMdd</code> date
+	 *
+	 * @param epochDay
+	 *            the number of days since 1970-01-01
+	 * @return a packed date, see {@link #year(int)}, {@link #month(int)} and
+	 *         {@link #day(int)}
+	 */
+	public static int fromEpochDay(final int epochDay) {
+		final int z = epochDay + 719468;
+		final int era = (z >= 0 ? z : z - 146096) / 146097;
+		final int dayOfEra = z - era * 146097;
+		final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		final int mp = (5 * dayOfYear + 2) / 153;
+		final int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		final int month = mp < 10 ? mp + 3 : mp - 9;
+		final int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return pack(year, month, day);
+	}
+
+	/**
+	 * Packs year, month and day fields into a <code>yyyyMMdd</code> int
+	 */
+	public static int pack(final int year, final int month, final int day) {
+		return year * 10000 + month * 100 + day;
+	}
+
+	/**
+	 * @return the 4-digit year of a packed date
+	 */
+	public static int year(final int packed) {
+		return packed / 10000;
+	}
+
+	/**
+	 * @return the month of a packed date (where 1 = January and 12 = December)
+	 */
+	public static int month(final int packed) {
+		return packed / 100 % 100;
+	}
+
+	/**
+	 * @return the day of month of a packed date
+	 */
+	public static int day(final int packed) {
+		return packed % 100;
+	}
+
+	/**
+	 * Determines the day of week for an epoch day
+	 *
+	 * @param epochDay
+	 *            the number of days since 1970-01-01
+	 * @return 0 for Sunday through 6 for Saturday
+	 */
+	public static int dayOfWeek(final int epochDay) {
+		// 1970-01-01 was a Thursday
+		return floorMod(epochDay + 4, 7);
+	}
+
+	/**
+	 * Determines the epoch day of the n-th Sunday of a month
+	 *
+	 * @param year
+	 *            a 4-digit year
+	 * @param month
+	 *            a month (where 1 = January and 12 = December)
+	 * @param n
+	 *            1 for the first Sunday, 2 for the second, and so on
+	 * @return the epoch day of the requested Sunday
+	 */
+	public static int nthSunday(final int year, final int month, final int n) {
+		final int first = toEpochDay(year, month, 1);
+		return first + (7 - dayOfWeek(first)) % 7 + 7 * (n - 1);
+	}
+
+	/**
+	 * Determines the epoch day of the last Sunday of a month
+	 *
+	 * @param year
+	 *            a 4-digit year
+	 * @param month
+	 *            a month (where 1 = January and 12 = December)
+	 * @return the epoch day of the last Sunday in the month
+	 */
+	public static int lastSunday(final int year, final int month) {
+		final int last = toEpochDay(year, month, lengthOfMonth(year, month));
+		return last - dayOfWeek(last);
+	}
+
+	/**
+	 * Floor division (rounds towards negative infinity)
+	 */
+	public static long floorDiv(final long x, final long y) {
+		long q = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			q--;
+		}
+		return q;
+	}
+
+	/**
+	 * Floor modulus (result has the sign of the divisor)
+	 */
+	public static long floorMod(final long x, final long y) {
+		return x - floorDiv(x, y) * y;
+	}
+
+	/**
+	 * Floor modulus (result has the sign of the divisor)
+	 */
+	public static int floorMod(final int x, final int y) {
+		final int r = x % y;
+		return r != 0 && (r ^ y) < 0 ? r + y : r;
+	}
+}
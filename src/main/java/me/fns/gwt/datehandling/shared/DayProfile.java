@@ -0,0 +1,177 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Immutable summary of one market day: when it starts, how many hours it has
+ * and the offsets in effect at either end.
+ * </p>
+ * <p>
+ * Everything needed to label, or locate, any hour of the day can be derived
+ * from a profile with plain arithmetic, so profiles are what gets cached,
+ * persisted and shipped around instead of recomputing transition days. Safe
+ * to use on both client (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class DayProfile {
+
+	private final int epochDay;
+
+	private final long start;
+
+	private final int hours;
+
+	private final int startOffset;
+
+	private final int endOffset;
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @param start
+	 *            epoch millis of 12:00AM
+	 * @param hours
+	 *            23, 24 or 25
+	 * @param startOffset
+	 *            the offset in effect at 12:00AM, in minutes east of UTC
+	 * @param endOffset
+	 *            the offset in effect at 12:00AM of the following day, in
+	 *            minutes east of UTC
+	 */
+	public DayProfile(final int epochDay, final long start, final int hours, final int startOffset,
+			final int endOffset) {
+		this.epochDay = epochDay;
+		this.start = start;
+		this.hours = hours;
+		this.startOffset = startOffset;
+		this.endOffset = endOffset;
+	}
+
+	/**
+	 * @return days since 1970-01-01
+	 */
+	public int getEpochDay() {
+		return epochDay;
+	}
+
+	/**
+	 * @return epoch millis of 12:00AM
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return epoch millis of 12:00AM of the following day (the 24th hour)
+	 */
+	public long getEnd() {
+		return start + hours * MarketTime.MILLIS_PER_HOUR;
+	}
+
+	/**
+	 * @return 23, 24 or 25
+	 */
+	public int getHours() {
+		return hours;
+	}
+
+	/**
+	 * @return the offset in effect at 12:00AM, in minutes east of UTC
+	 */
+	public int getStartOffset() {
+		return startOffset;
+	}
+
+	/**
+	 * @return the offset in effect at the end of the day, in minutes east of
+	 *         UTC
+	 */
+	public int getEndOffset() {
+		return endOffset;
+	}
+
+	/**
+	 * @return true if the day has 23 or 25 hours
+	 */
+	public boolean isTransitionDay() {
+		return hours != 24;
+	}
+
+	/**
+	 * @param slot
+	 *            0-based hour slot
+	 * @return the hour label of the slot
+	 */
+	public String getLabel(final int slot) {
+		return MarketTime.labels(hours)[slot];
+	}
+
+	/**
+	 * @return a copy of the pre-defined hour labels for the day, in order
+	 */
+	public String[] getLabels() {
+		return MarketTime.labelsForHours(hours);
+	}
+
+	/**
+	 * @param label
+	 *            an hour label
+	 * @return the 0-based slot of the label, or -1 if it does not occur on the
+	 *         day
+	 */
+	public int slotOf(final String label) {
+		return MarketTime.labelSlot(hours, label);
+	}
+
+	/**
+	 * @param slot
+	 *            0-based hour slot
+	 * @return epoch millis of the hour that ends the slot
+	 */
+	public long hourOf(final int slot) {
+		return start + (slot + 1) * MarketTime.MILLIS_PER_HOUR;
+	}
+
+	/**
+	 * Determines the hour slot whose label an instant carries, consistent with
+	 * {@link MarketTime#hourLabel(long)}: 1:00AM up to 1:59AM is slot 0 and
+	 * 12:00AM up to 12:59AM of the following day is the last slot. Assumes
+	 * the day's offsets differ by whole hours, as they do in all US zones.
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return the 0-based slot, or -1 if the instant's label belongs to
+	 *         another day
+	 */
+	public int slotOf(final long instant) {
+		final long elapsed = instant - start;
+		if (elapsed < MarketTime.MILLIS_PER_HOUR) {
+			return -1;
+		}
+		final long slot = elapsed / MarketTime.MILLIS_PER_HOUR - 1;
+		return slot < hours ? (int) slot : -1;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DayProfile)) {
+			return false;
+		}
+		final DayProfile other = (DayProfile) obj;
+		return epochDay == other.epochDay && start == other.start && hours == other.hours
+				&& startOffset == other.startOffset && endOffset == other.endOffset;
+	}
+
+	@Override
+	public int hashCode() {
+		return epochDay * 31 + hours;
+	}
+
+	@Override
+	public String toString() {
+		return "DayProfile[" + epochDay + ", " + hours + "h, " + startOffset + "/" + endOffset + "]";
+	}
+}
@@ -0,0 +1,317 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Cache of {@link DayProfile}s, a calendar year at a time, kept in memory and
+ * optionally persisted (see {@link DayProfileCodec}) so that a warm reload of
+ * the page skips recomputing transition days.
+ * </p>
+ * <p>
+ * Persisted years are keyed by zone id and zone data version
+ * ({@link MarketZone#getDataVersion()}); years persisted under any other data
+ * version of the zone are removed on construction. At most
+ * <code>maxYears</code> years are kept, in memory and in the store alike, the
+ * least recently loaded going first. If the store is unavailable, full or
+ * fails in any way the cache carries on in memory only.
+ * </p>
+ * <p>
+ * Not thread-safe; intended for client code (GWT-translatable).
+ * </p>
+ *
+ */
+public class DayProfileCache {
+
+	/**
+	 * Persistent key/value store, a subset of the HTML5 Storage API
+	 */
+	public interface Store {
+
+		String getItem(String key);
+
+		void setItem(String key, String value);
+
+		void removeItem(String key);
+
+		int getLength();
+
+		String key(int index);
+	}
+
+	/**
+	 * Default number of years kept
+	 */
+	public static final int DEFAULT_MAX_YEARS = 12;
+
+	/**
+	 * Prefix of every persisted key
+	 */
+	public static final String KEY_PREFIX = "dayProfiles/";
+
+	private static final String INDEX = "index";
+
+	private final MarketTime market;
+
+	private final int maxYears;
+
+	private final String zonePrefix;
+
+	private final String versionPrefix;
+
+	private final Map<Integer, DayProfile[]> years;
+
+	/**
+	 * Persisted years, least recently loaded first
+	 */
+	private final List<Integer> stored = new ArrayList<Integer>();
+
+	private Store store;
+
+	/**
+	 * @param market
+	 *            the market time rules
+	 * @param store
+	 *            where to persist profiles, or null to keep them in memory
+	 *            only
+	 * @param maxYears
+	 *            most years kept, at least 1
+	 */
+	public DayProfileCache(final MarketTime market, final Store store, final int maxYears) {
+		if (maxYears < 1) {
+			throw new IllegalArgumentException("At least one year must be kept: " + maxYears);
+		}
+		this.market = market;
+		this.store = store;
+		this.maxYears = maxYears;
+		final MarketZone zone = market.getZone();
+		zonePrefix = KEY_PREFIX + zone.getId() + "/";
+		versionPrefix = zonePrefix + zone.getDataVersion() + "/";
+		years = new LinkedHashMap<Integer, DayProfile[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Integer, DayProfile[]> eldest) {
+				return size() > DayProfileCache.this.maxYears;
+			}
+		};
+		if (store != null) {
+			try {
+				removeOtherVersions();
+				readIndex();
+			} catch (final RuntimeException e) {
+				this.store = null;
+			}
+		}
+	}
+
+	/**
+	 * @return false if profiles are kept in memory only, either by choice or
+	 *         because the store failed
+	 */
+	public boolean isPersistent() {
+		return store != null;
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return the day's profile
+	 */
+	public DayProfile dayProfile(final int epochDay) {
+		final DayProfile[] profiles = year(epochDay);
+		return profiles[epochDay - profiles[0].getEpochDay()];
+	}
+
+	/**
+	 * @param from
+	 *            epoch day, inclusive
+	 * @param to
+	 *            epoch day, exclusive
+	 * @return the profiles of the days in <code>[from, to)</code>, copied a
+	 *         year at a time from the cache
+	 * @throws IllegalArgumentException
+	 *             if <code>to</code> comes first
+	 */
+	public DayProfile[] dayProfilesBetween(final int from, final int to) {
+		if (to < from) {
+			throw new IllegalArgumentException("Day " + to + " is before day " + from);
+		}
+		final DayProfile[] result = new DayProfile[to - from];
+		int day = from;
+		while (day < to) {
+			final DayProfile[] profiles = year(day);
+			final int offset = day - profiles[0].getEpochDay();
+			final int count = Math.min(profiles.length - offset, to - day);
+			System.arraycopy(profiles, offset, result, day - from, count);
+			day += count;
+		}
+		return result;
+	}
+
+	/**
+	 * Seeds the cache with a year of profiles computed elsewhere, e.g. inlined
+	 * into the host page by the server. Seeded years are kept in memory only.
+	 * <p>
+	 * A year is only accepted if it agrees with the cache's market time rules:
+	 * each day follows on from the one before, its hours match the difference
+	 * between its start and the next day's, and its offsets are the zone's at
+	 * those instants. This costs a table lookup per day, not the transition
+	 * search of computing the year.
+	 * </p>
+	 *
+	 * @param profiles
+	 *            the profiles of every day of one calendar year
+	 * @return false (and nothing is cached) unless the profiles are exactly
+	 *         one calendar year, 1st January first, agreeing with the market
+	 *         time rules
+	 */
+	public boolean preload(final DayProfile[] profiles) {
+		if (profiles.length == 0) {
+			return false;
+		}
+		final int first = profiles[0].getEpochDay();
+		final int date = CivilDate.fromEpochDay(first);
+		final int year = CivilDate.year(date);
+		if (CivilDate.month(date) != 1 || CivilDate.day(date) != 1
+				|| CivilDate.toEpochDay(year + 1, 1, 1) - first != profiles.length || !agrees(profiles)) {
+			return false;
+		}
+		years.put(year, profiles);
+		return true;
+	}
+
+	/**
+	 * @return true if consecutive profiles of the market's days
+	 */
+	private boolean agrees(final DayProfile[] profiles) {
+		final MarketZone zone = market.getZone();
+		final int first = profiles[0].getEpochDay();
+		// each day must start where the one before ended
+		long start = market.startOfDay(first);
+		for (int i = 0; i < profiles.length; i++) {
+			final DayProfile profile = profiles[i];
+			if (profile == null || profile.getEpochDay() != first + i || profile.getStart() != start
+					|| profile.getStartOffset() != zone.getOffset(start)
+					|| profile.getEndOffset() != zone.getOffset(profile.getEnd())) {
+				return false;
+			}
+			start = profile.getEnd();
+		}
+		return start == market.startOfDay(first + profiles.length);
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return 23, 24 or 25
+	 */
+	public int hoursInDay(final int epochDay) {
+		return dayProfile(epochDay).getHours();
+	}
+
+	/**
+	 * @return the profiles of the calendar year holding a day, loaded if not
+	 *         cached
+	 */
+	private DayProfile[] year(final int epochDay) {
+		final int year = CivilDate.year(CivilDate.fromEpochDay(epochDay));
+		DayProfile[] profiles = years.get(year);
+		if (profiles == null) {
+			profiles = load(year);
+			years.put(year, profiles);
+		}
+		return profiles;
+	}
+
+	/**
+	 * Reads a year from the store, or computes (and stores) it
+	 */
+	private DayProfile[] load(final int year) {
+		final int first = CivilDate.toEpochDay(year, 1, 1);
+		final int count = CivilDate.toEpochDay(year + 1, 1, 1) - first;
+		DayProfile[] profiles = read(year, first, count);
+		final boolean computed = profiles == null;
+		if (computed) {
+			profiles = market.dayProfilesBetween(first, first + count);
+		}
+		if (store != null) {
+			try {
+				if (computed) {
+					store.setItem(versionPrefix + year, DayProfileCodec.encode(profiles));
+				}
+				touch(year);
+			} catch (final RuntimeException e) {
+				// e.g. quota exceeded or storage disabled
+				store = null;
+			}
+		}
+		return profiles;
+	}
+
+	/**
+	 * @return the persisted profiles of a year, or null if absent or corrupt
+	 */
+	private DayProfile[] read(final int year, final int first, final int count) {
+		if (store != null) {
+			try {
+				final String encoded = store.getItem(versionPrefix + year);
+				if (encoded != null) {
+					final DayProfile[] profiles = DayProfileCodec.decode(encoded);
+					if (profiles.length == count && profiles[0].getEpochDay() == first) {
+						return profiles;
+					}
+				}
+			} catch (final RuntimeException e) {
+				// recomputed and overwritten
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Marks a persisted year as most recently loaded, evicting the least
+	 * recently loaded beyond the cap
+	 */
+	private void touch(final int year) {
+		stored.remove(Integer.valueOf(year));
+		stored.add(year);
+		while (stored.size() > maxYears) {
+			store.removeItem(versionPrefix + stored.remove(0));
+		}
+		final StringBuilder index = new StringBuilder();
+		for (final Integer each : stored) {
+			if (index.length() > 0) {
+				index.append(',');
+			}
+			index.append(each);
+		}
+		store.setItem(versionPrefix + INDEX, index.toString());
+	}
+
+	private void readIndex() {
+		final String index = store.getItem(versionPrefix + INDEX);
+		if (index != null && index.length() > 0) {
+			for (final String year : index.split(",")) {
+				try {
+					stored.add(Integer.valueOf(year));
+				} catch (final NumberFormatException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private void removeOtherVersions() {
+		for (int i = store.getLength() - 1; i >= 0; i--) {
+			final String key = store.key(i);
+			if (key != null && key.startsWith(zonePrefix) && !key.startsWith(versionPrefix)) {
+				store.removeItem(key);
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Compact text form of a run of consecutive {@link DayProfile}s, for
+ * persisting them (e.g. in HTML5 localStorage).
+ * </p>
+ * <p>
+ * Only the first day's epoch day, midnight and offset are written, followed
+ * by one character per day for its length: <code>S</code> (23 hours),
+ * <code>N</code> (24) or <code>L</code> (25). Every later midnight and offset
+ * follows by arithmetic, since a day is 24 hours of wall clock time, so a
+ * year encodes in under 400 characters:
+ *
+ * <pre>
+ * 15340:1325397600000:-360:NNN...NSNNN...NLNN...N
+ * </pre>
+ *
+ * </p>
+ *
+ */
+public final class DayProfileCodec {
+
+	private static final char SHORT_DAY = 'S';
+
+	private static final char NORMAL_DAY = 'N';
+
+	private static final char LONG_DAY = 'L';
+
+	private DayProfileCodec() {
+	}
+
+	/**
+	 * @param profiles
+	 *            profiles of consecutive days, at least one
+	 * @return the text form
+	 */
+	public static String encode(final DayProfile[] profiles) {
+		final DayProfile first = profiles[0];
+		final StringBuilder result = new StringBuilder(32 + profiles.length);
+		result.append(first.getEpochDay()).append(':').append(first.getStart()).append(':')
+				.append(first.getStartOffset()).append(':');
+		for (int i = 0; i < profiles.length; i++) {
+			final DayProfile profile = profiles[i];
+			if (profile.getEpochDay() != first.getEpochDay() + i) {
+				throw new IllegalArgumentException("Days must be consecutive: " + profile);
+			}
+			switch (profile.getHours()) {
+			case 23:
+				result.append(SHORT_DAY);
+				break;
+			case 24:
+				result.append(NORMAL_DAY);
+				break;
+			case 25:
+				result.append(LONG_DAY);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported day length: " + profile);
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @param encoded
+	 *            text produced by {@link #encode(DayProfile[])}
+	 * @return the profiles
+	 * @throws IllegalArgumentException
+	 *             if the text is malformed
+	 */
+	public static DayProfile[] decode(final String encoded) {
+		final int dayEnd = encoded.indexOf(':');
+		final int startEnd = encoded.indexOf(':', dayEnd + 1);
+		final int offsetEnd = encoded.indexOf(':', startEnd + 1);
+		if (dayEnd < 0 || startEnd < 0 || offsetEnd < 0 || offsetEnd == encoded.length() - 1) {
+			throw new IllegalArgumentException("Not encoded day profiles: " + encoded);
+		}
+		int epochDay;
+		long start;
+		int offset;
+		try {
+			epochDay = Integer.parseInt(encoded.substring(0, dayEnd));
+			start = Long.parseLong(encoded.substring(dayEnd + 1, startEnd));
+			offset = Integer.parseInt(encoded.substring(startEnd + 1, offsetEnd));
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Not encoded day profiles: " + encoded);
+		}
+		final DayProfile[] result = new DayProfile[encoded.length() - offsetEnd - 1];
+		for (int i = 0; i < result.length; i++) {
+			final char code = encoded.charAt(offsetEnd + 1 + i);
+			int hours;
+			if (code == SHORT_DAY) {
+				hours = 23;
+			} else if (code == NORMAL_DAY) {
+				hours = 24;
+			} else if (code == LONG_DAY) {
+				hours = 25;
+			} else {
+				throw new IllegalArgumentException("Unknown day length " + code + " in " + encoded);
+			}
+			final int endOffset = offset + (24 - hours) * 60;
+			result[i] = new DayProfile(epochDay + i, start, hours, offset, endOffset);
+			start += hours * MarketTime.MILLIS_PER_HOUR;
+			offset = endOffset;
+		}
+		return result;
+	}
+}
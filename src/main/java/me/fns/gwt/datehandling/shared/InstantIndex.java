@@ -0,0 +1,238 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Index over a sorted array of ISO8601 (no millis) timestamps, answering
+ * range, nearest-hour and day-boundary queries by binary search.
+ * </p>
+ * <p>
+ * Each timestamp is parsed exactly once, when the index is built, into a
+ * <code>long[]</code> of epoch millis; queries never parse, and return
+ * positions in the original array. Ranges are half-open,
+ * <code>[from, to)</code>, in the manner of <code>List.subList</code>, and
+ * come back as a new <code>int[2]</code>; the overloads taking a
+ * <code>bounds</code> array fill one the caller reuses instead, and so
+ * allocate nothing.
+ * </p>
+ * <p>
+ * Immutable. Safe to use on both client (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class InstantIndex {
+
+	private final MarketTime market;
+
+	private final long[] instants;
+
+	/**
+	 * @param market
+	 *            the market time rules for day and label queries
+	 * @param isoDateTimes
+	 *            ISO8601 Strings (no millis) in ascending order
+	 * @throws IllegalArgumentException
+	 *             if a timestamp cannot be parsed or is out of order
+	 */
+	public InstantIndex(final MarketTime market, final String[] isoDateTimes) {
+		this.market = market;
+		instants = new long[isoDateTimes.length];
+		for (int i = 0; i < isoDateTimes.length; i++) {
+			instants[i] = MarketTime.parseIsoNoMillis(isoDateTimes[i]);
+		}
+		checkSorted();
+	}
+
+	/**
+	 * @param market
+	 *            the market time rules for day and label queries
+	 * @param instants
+	 *            epoch millis in ascending order
+	 * @throws IllegalArgumentException
+	 *             if out of order
+	 */
+	public InstantIndex(final MarketTime market, final long[] instants) {
+		this.market = market;
+		this.instants = new long[instants.length];
+		System.arraycopy(instants, 0, this.instants, 0, instants.length);
+		checkSorted();
+	}
+
+	/**
+	 * @return number of timestamps
+	 */
+	public int size() {
+		return instants.length;
+	}
+
+	/**
+	 * @param index
+	 *            0 to {@link #size()} - 1
+	 * @return the timestamp at a position, in epoch millis
+	 */
+	public long instantAt(final int index) {
+		return instants[index];
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis
+	 * @return the position of the first timestamp at or after the instant;
+	 *         {@link #size()} if none
+	 */
+	public int lowerBound(final long instant) {
+		int low = 0;
+		int high = instants.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (instants[mid] < instant) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis
+	 * @return the position of the first timestamp equal to the instant, or -1
+	 */
+	public int indexOf(final long instant) {
+		final int index = lowerBound(instant);
+		return index < instants.length && instants[index] == instant ? index : -1;
+	}
+
+	/**
+	 * @param from
+	 *            epoch millis, inclusive
+	 * @param to
+	 *            epoch millis, exclusive
+	 * @return <code>{fromIndex, toIndex}</code> of the timestamps in
+	 *         <code>[from, to)</code>
+	 */
+	public int[] range(final long from, final long to) {
+		return range(from, to, new int[2]);
+	}
+
+	/**
+	 * @param from
+	 *            epoch millis, inclusive
+	 * @param to
+	 *            epoch millis, exclusive
+	 * @param bounds
+	 *            receives <code>{fromIndex, toIndex}</code> of the timestamps
+	 *            in <code>[from, to)</code>
+	 * @return bounds
+	 */
+	public int[] range(final long from, final long to, final int[] bounds) {
+		final int fromIndex = lowerBound(from);
+		bounds[0] = fromIndex;
+		bounds[1] = Math.max(fromIndex, lowerBound(to));
+		return bounds;
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis
+	 * @return the position of the timestamp closest to the instant (the
+	 *         earlier on a tie), or -1 if the index is empty
+	 */
+	public int nearest(final long instant) {
+		if (instants.length == 0) {
+			return -1;
+		}
+		final int after = lowerBound(instant);
+		if (after == 0) {
+			return 0;
+		}
+		if (after == instants.length) {
+			return after - 1;
+		}
+		return instant - instants[after - 1] <= instants[after] - instant ? after - 1 : after;
+	}
+
+	/**
+	 * Rounds an instant to the nearest whole hour of market time and finds the
+	 * timestamp closest to that hour
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return the position of the timestamp closest to the nearest whole
+	 *         hour, or -1 if the index is empty
+	 */
+	public int nearestHour(final long instant) {
+		final long hour = market.truncateToHour(instant + MarketTime.MILLIS_PER_HOUR / 2);
+		return nearest(hour);
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return <code>{fromIndex, toIndex}</code> of the timestamps from
+	 *         12:00AM of the day up to (excluding) 12:00AM of the next
+	 */
+	public int[] day(final int epochDay) {
+		return day(epochDay, new int[2]);
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @param bounds
+	 *            receives <code>{fromIndex, toIndex}</code> of the timestamps
+	 *            from 12:00AM of the day up to (excluding) 12:00AM of the next
+	 * @return bounds
+	 */
+	public int[] day(final int epochDay, final int[] bounds) {
+		return range(market.startOfDay(epochDay), market.startOfDay(epochDay + 1), bounds);
+	}
+
+	/**
+	 * Finds the timestamps of a day whose hour labels lie between two labels,
+	 * e.g. hours 07 to 22, following the same labelling rules as
+	 * {@link MarketTime#hourLabel(long)}: hour 24 is 12:00AM up to 12:59AM of
+	 * the following day.
+	 *
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @param fromLabel
+	 *            first hour label, inclusive
+	 * @param toLabel
+	 *            last hour label, inclusive
+	 * @return <code>{fromIndex, toIndex}</code> of the timestamps
+	 * @throws IllegalArgumentException
+	 *             if a label does not occur on the day
+	 */
+	public int[] labels(final int epochDay, final String fromLabel, final String toLabel) {
+		return labels(epochDay, fromLabel, toLabel, new int[2]);
+	}
+
+	/**
+	 * @see #labels(int, String, String)
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @param fromLabel
+	 *            first hour label, inclusive
+	 * @param toLabel
+	 *            last hour label, inclusive
+	 * @param bounds
+	 *            receives <code>{fromIndex, toIndex}</code> of the timestamps
+	 * @return bounds
+	 * @throws IllegalArgumentException
+	 *             if a label does not occur on the day
+	 */
+	public int[] labels(final int epochDay, final String fromLabel, final String toLabel, final int[] bounds) {
+		final long from = market.hourOfDay(epochDay, fromLabel);
+		final long to = market.hourOfDay(epochDay, toLabel) + MarketTime.MILLIS_PER_HOUR;
+		return range(from, to, bounds);
+	}
+
+	private void checkSorted() {
+		for (int i = 1; i < instants.length; i++) {
+			if (instants[i] < instants[i - 1]) {
+				throw new IllegalArgumentException("Timestamps must be in ascending order, see position " + i);
+			}
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * Response of the interval delta feed: every slot changed since the version
+ * a client last saw, and the version the client has seen once they are
+ * applied.
+ * </p>
+ * <p>
+ * Changes are applied in place to an already-labelled
+ * {@link MarketDaySeries}; nothing is re-parsed or re-labelled.
+ * </p>
+ *
+ */
+public class IntervalChanges implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private long version;
+
+	private int intervalsPerHour;
+
+	private IntervalDelta[] deltas;
+
+	/**
+	 * For serialization only
+	 */
+	IntervalChanges() {
+	}
+
+	/**
+	 * @param version
+	 *            the feed version the changes bring a client up to
+	 * @param intervalsPerHour
+	 *            values per hour of the feed the slots are numbered in
+	 * @param deltas
+	 *            changes per day
+	 */
+	public IntervalChanges(final long version, final int intervalsPerHour, final IntervalDelta[] deltas) {
+		this.version = version;
+		this.intervalsPerHour = intervalsPerHour;
+		this.deltas = deltas;
+	}
+
+	/**
+	 * @return the feed version the changes bring a client up to
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return values per hour of the feed the slots are numbered in
+	 */
+	public int getIntervalsPerHour() {
+		return intervalsPerHour;
+	}
+
+	/**
+	 * @return changes per day
+	 */
+	public IntervalDelta[] getDeltas() {
+		return deltas;
+	}
+
+	/**
+	 * Writes the changed values into a series; days the series does not hold
+	 * are skipped. Nothing is written unless every slot of every day held
+	 * falls within that day.
+	 *
+	 * @param series
+	 *            series with the same number of intervals per hour as the
+	 *            feed
+	 * @return number of values written
+	 * @throws IllegalArgumentException
+	 *             if the series has a different number of intervals per
+	 *             hour, or a slot is not within its day
+	 */
+	public int applyTo(final MarketDaySeries series) {
+		if (series.getIntervalsPerHour() != intervalsPerHour) {
+			throw new IllegalArgumentException("Changes have " + intervalsPerHour + " intervals per hour, series has "
+					+ series.getIntervalsPerHour());
+		}
+		final int firstDay = series.getFirstDay();
+		final int endDay = firstDay + series.getDayCount();
+		for (final IntervalDelta delta : deltas) {
+			final int day = delta.getEpochDay();
+			if (day < firstDay || day >= endDay) {
+				continue;
+			}
+			final int slots = series.hoursInDay(day) * intervalsPerHour;
+			for (int i = 0; i < delta.size(); i++) {
+				if (delta.getSlot(i) < 0 || delta.getSlot(i) >= slots) {
+					throw new IllegalArgumentException("No slot " + delta.getSlot(i) + " on day " + day);
+				}
+			}
+		}
+		int applied = 0;
+		for (final IntervalDelta delta : deltas) {
+			final int day = delta.getEpochDay();
+			if (day < firstDay || day >= endDay) {
+				continue;
+			}
+			final int base = series.indexOf(day);
+			for (int i = 0; i < delta.size(); i++) {
+				series.setValueAt(base + delta.getSlot(i), delta.getValue(i));
+			}
+			applied += delta.size();
+		}
+		return applied;
+	}
+}
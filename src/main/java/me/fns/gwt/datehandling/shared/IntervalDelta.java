@@ -0,0 +1,76 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * The interval values of one market day that changed since a client's last
+ * refresh, addressed by slot within the day (see {@link MarketDaySeries}).
+ * </p>
+ *
+ */
+public class IntervalDelta implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private int epochDay;
+
+	private int[] slots;
+
+	private double[] values;
+
+	/**
+	 * For serialization only
+	 */
+	IntervalDelta() {
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @param slots
+	 *            0-based slots within the day, ascending
+	 * @param values
+	 *            the new value of each slot
+	 */
+	public IntervalDelta(final int epochDay, final int[] slots, final double[] values) {
+		if (slots.length != values.length) {
+			throw new IllegalArgumentException("Expected " + slots.length + " values, got " + values.length);
+		}
+		this.epochDay = epochDay;
+		this.slots = slots;
+		this.values = values;
+	}
+
+	/**
+	 * @return days since 1970-01-01
+	 */
+	public int getEpochDay() {
+		return epochDay;
+	}
+
+	/**
+	 * @return number of changed slots
+	 */
+	public int size() {
+		return slots.length;
+	}
+
+	/**
+	 * @param i
+	 *            0 to {@link #size()} - 1
+	 * @return the slot of the i-th change
+	 */
+	public int getSlot(final int i) {
+		return slots[i];
+	}
+
+	/**
+	 * @param i
+	 *            0 to {@link #size()} - 1
+	 * @return the value of the i-th change
+	 */
+	public double getValue(final int i) {
+		return values[i];
+	}
+}
@@ -0,0 +1,128 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Writes an instant and a time zone offset as an ISO8601 String (no
+ * millis), <code>yyyy-MM-ddTHH:mm:ss&plusmn;HH:MM</code>, e.g.
+ * <code>2012-11-04T01:00:00-06:00</code>.
+ * </p>
+ * <p>
+ * The fields are worked out with {@link CivilDate} arithmetic and written a
+ * character at a time into the caller's <code>StringBuilder</code> or
+ * <code>char[]</code>, so formatting a timestamp creates no objects of its
+ * own and the result does not depend on the locale (or locale permutation)
+ * in use. Output is always {@link #LENGTH} characters and is read back by
+ * {@link MarketTime#parseIsoNoMillis(String)}. Safe to use on both client
+ * (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class IsoNoMillis {
+
+	/**
+	 * Characters written per timestamp
+	 */
+	public static final int LENGTH = 25;
+
+	private IsoNoMillis() {
+	}
+
+	/**
+	 * @param buf
+	 *            where to append the timestamp
+	 * @param instant
+	 *            epoch millis
+	 * @param offset
+	 *            the offset to write the instant in, minutes east of UTC
+	 * @return buf
+	 * @throws IllegalArgumentException
+	 *             if the local year is outside 0 to 9999 or the offset is a
+	 *             day or more
+	 */
+	public static StringBuilder append(final StringBuilder buf, final long instant, final int offset) {
+		final long local = local(instant, offset);
+		final int date = CivilDate.fromEpochDay((int) CivilDate.floorDiv(local, MarketTime.MILLIS_PER_DAY));
+		final int year = year(date);
+		final int seconds = (int) (CivilDate.floorMod(local, MarketTime.MILLIS_PER_DAY) / MarketTime.MILLIS_PER_SECOND);
+		final int minutes = Math.abs(offset);
+		appendTwoDigits(buf, year / 100);
+		appendTwoDigits(buf, year % 100).append('-');
+		appendTwoDigits(buf, CivilDate.month(date)).append('-');
+		appendTwoDigits(buf, CivilDate.day(date)).append('T');
+		appendTwoDigits(buf, seconds / 3600).append(':');
+		appendTwoDigits(buf, seconds / 60 % 60).append(':');
+		appendTwoDigits(buf, seconds % 60).append(offset < 0 ? '-' : '+');
+		appendTwoDigits(buf, minutes / 60).append(':');
+		return appendTwoDigits(buf, minutes % 60);
+	}
+
+	/**
+	 * @param buf
+	 *            where to write the timestamp
+	 * @param position
+	 *            index in buf of the first character to write
+	 * @param instant
+	 *            epoch millis
+	 * @param offset
+	 *            the offset to write the instant in, minutes east of UTC
+	 * @return the index following the last character written, i.e.
+	 *         <code>position + LENGTH</code>
+	 * @throws IllegalArgumentException
+	 *             if the local year is outside 0 to 9999 or the offset is a
+	 *             day or more
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if buf has fewer than {@link #LENGTH} characters from
+	 *             position
+	 */
+	public static int write(final char[] buf, final int position, final long instant, final int offset) {
+		if (position < 0 || position > buf.length - LENGTH) {
+			throw new ArrayIndexOutOfBoundsException(position);
+		}
+		final long local = local(instant, offset);
+		final int date = CivilDate.fromEpochDay((int) CivilDate.floorDiv(local, MarketTime.MILLIS_PER_DAY));
+		final int year = year(date);
+		final int seconds = (int) (CivilDate.floorMod(local, MarketTime.MILLIS_PER_DAY) / MarketTime.MILLIS_PER_SECOND);
+		final int minutes = Math.abs(offset);
+		int p = writeTwoDigits(buf, position, year / 100);
+		p = writeTwoDigits(buf, p, year % 100);
+		buf[p++] = '-';
+		p = writeTwoDigits(buf, p, CivilDate.month(date));
+		buf[p++] = '-';
+		p = writeTwoDigits(buf, p, CivilDate.day(date));
+		buf[p++] = 'T';
+		p = writeTwoDigits(buf, p, seconds / 3600);
+		buf[p++] = ':';
+		p = writeTwoDigits(buf, p, seconds / 60 % 60);
+		buf[p++] = ':';
+		p = writeTwoDigits(buf, p, seconds % 60);
+		buf[p++] = offset < 0 ? '-' : '+';
+		p = writeTwoDigits(buf, p, minutes / 60);
+		buf[p++] = ':';
+		return writeTwoDigits(buf, p, minutes % 60);
+	}
+
+	private static long local(final long instant, final int offset) {
+		if (offset <= -24 * 60 || offset >= 24 * 60) {
+			throw new IllegalArgumentException("Not a time zone offset: " + offset);
+		}
+		return instant + offset * MarketTime.MILLIS_PER_MINUTE;
+	}
+
+	private static int year(final int date) {
+		final int year = CivilDate.year(date);
+		if (year < 0 || year > 9999) {
+			throw new IllegalArgumentException("Year " + year + " has no four digit form");
+		}
+		return year;
+	}
+
+	private static StringBuilder appendTwoDigits(final StringBuilder buf, final int value) {
+		return buf.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+	}
+
+	private static int writeTwoDigits(final char[] buf, final int position, final int value) {
+		buf[position] = (char) ('0' + value / 10);
+		buf[position + 1] = (char) ('0' + value % 10);
+		return position + 2;
+	}
+}
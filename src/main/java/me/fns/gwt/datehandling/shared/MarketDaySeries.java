@@ -0,0 +1,421 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Hourly (or finer, e.g. 5-minute interval) values for a run of consecutive
+ * market days, stored in one <code>double[]</code> in time order.
+ * </p>
+ * <p>
+ * A per-day slot index (the position of each day's first value and the
+ * instant of each day's midnight) lets 23, 24 and 25 hour days share the same
+ * array, and makes reads and writes by day and label, by day and slot, or by
+ * instant, constant time without boxing or hashing. Feeding a chart is a plain
+ * walk from index 0 to {@link #size()}. Values that have not been set are
+ * {@link Double#NaN}.
+ * </p>
+ * <p>
+ * With more than one interval per hour, slot <code>n</code> of a day is
+ * interval <code>n % intervalsPerHour</code> of the hour in label slot
+ * <code>n / intervalsPerHour</code>, and a label addresses the first interval
+ * of its hour.
+ * </p>
+ * <p>
+ * Like {@link DayProfile#slotOf(long)}, lookups by instant assume the zone's
+ * offsets differ by whole hours. Not thread-safe. Safe to use on both client
+ * (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class MarketDaySeries {
+
+	private final MarketTime market;
+
+	private final int firstDay;
+
+	private final int intervalsPerHour;
+
+	private final long intervalMillis;
+
+	private int dayCount;
+
+	/**
+	 * midnights[i] is 12:00AM of day firstDay + i; one more entry than days
+	 */
+	private long[] midnights;
+
+	/**
+	 * offsets[i] is the index of the first value of day firstDay + i; one
+	 * more entry than days
+	 */
+	private int[] offsets;
+
+	private double[] values;
+
+	/**
+	 * Number of values written by append
+	 */
+	private int appended;
+
+	/**
+	 * Creates an empty, hourly series
+	 *
+	 * @param market
+	 *            the market time rules the days follow
+	 * @param firstDay
+	 *            the epoch day of the first day to be held
+	 */
+	public MarketDaySeries(final MarketTime market, final int firstDay) {
+		this(market, firstDay, 1);
+	}
+
+	/**
+	 * Creates an empty series
+	 *
+	 * @param market
+	 *            the market time rules the days follow
+	 * @param firstDay
+	 *            the epoch day of the first day to be held
+	 * @param intervalsPerHour
+	 *            values per hour, a divisor of 60 (e.g. 12 for 5-minute
+	 *            intervals)
+	 */
+	public MarketDaySeries(final MarketTime market, final int firstDay, final int intervalsPerHour) {
+		if (intervalsPerHour < 1 || 60 % intervalsPerHour != 0) {
+			throw new IllegalArgumentException("Intervals per hour must divide 60: " + intervalsPerHour);
+		}
+		this.market = market;
+		this.firstDay = firstDay;
+		this.intervalsPerHour = intervalsPerHour;
+		intervalMillis = MarketTime.MILLIS_PER_HOUR / intervalsPerHour;
+		midnights = new long[8];
+		offsets = new int[8];
+		values = new double[8 * 24 * intervalsPerHour];
+		midnights[0] = market.startOfDay(firstDay);
+	}
+
+	/**
+	 * @return the epoch day of the first day
+	 */
+	public int getFirstDay() {
+		return firstDay;
+	}
+
+	/**
+	 * @return values per hour
+	 */
+	public int getIntervalsPerHour() {
+		return intervalsPerHour;
+	}
+
+	/**
+	 * @return the number of days held
+	 */
+	public int getDayCount() {
+		return dayCount;
+	}
+
+	/**
+	 * @return the number of values held, over all days
+	 */
+	public int size() {
+		return offsets[dayCount];
+	}
+
+	/**
+	 * @param epochDay
+	 *            a day held by the series
+	 * @return 23, 24 or 25
+	 */
+	public int hoursInDay(final int epochDay) {
+		final int i = dayIndex(epochDay);
+		return (offsets[i + 1] - offsets[i]) / intervalsPerHour;
+	}
+
+	/**
+	 * @param epochDay
+	 *            a day held by the series
+	 * @return the index of the day's first value
+	 */
+	public int indexOf(final int epochDay) {
+		return offsets[dayIndex(epochDay)];
+	}
+
+	/**
+	 * Adds days, holding no values yet, to the end of the series
+	 *
+	 * @param count
+	 *            number of days to add
+	 * @return the epoch day following the last day held
+	 */
+	public int addDays(final int count) {
+		ensureDays(dayCount + count);
+		for (int i = 0; i < count; i++) {
+			final long next = market.startOfDay(firstDay + dayCount + 1);
+			final int slots = (int) ((next - midnights[dayCount]) / intervalMillis);
+			ensureValues(offsets[dayCount] + slots);
+			Arrays.fill(values, offsets[dayCount], offsets[dayCount] + slots, Double.NaN);
+			offsets[dayCount + 1] = offsets[dayCount] + slots;
+			midnights[dayCount + 1] = next;
+			dayCount++;
+		}
+		return firstDay + dayCount;
+	}
+
+	/**
+	 * Appends values in time order, continuing from the last value
+	 * appended and adding days as needed
+	 *
+	 * @param source
+	 *            the values
+	 * @param from
+	 *            index of the first value in source
+	 * @param count
+	 *            number of values
+	 */
+	public void append(final double[] source, final int from, final int count) {
+		while (size() < appended + count) {
+			addDays(1);
+		}
+		System.arraycopy(source, from, values, appended, count);
+		appended += count;
+	}
+
+	/**
+	 * @see #append(double[], int, int)
+	 */
+	public void append(final double[] source) {
+		append(source, 0, source.length);
+	}
+
+	/**
+	 * @param index
+	 *            0 to {@link #size()} - 1
+	 * @return the value at a position in the series
+	 */
+	public double valueAt(final int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	/**
+	 * @param index
+	 *            0 to {@link #size()} - 1
+	 * @param value
+	 *            the new value at a position in the series
+	 */
+	public void setValueAt(final int index, final double value) {
+		checkIndex(index);
+		values[index] = value;
+	}
+
+	/**
+	 * @param epochDay
+	 *            a day held by the series
+	 * @param slot
+	 *            0-based slot
+	 * @return the value
+	 */
+	public double get(final int epochDay, final int slot) {
+		return values[index(epochDay, slot)];
+	}
+
+	/**
+	 * @param epochDay
+	 *            a day held by the series
+	 * @param slot
+	 *            0-based slot
+	 * @param value
+	 *            the new value
+	 */
+	public void set(final int epochDay, final int slot, final double value) {
+		values[index(epochDay, slot)] = value;
+	}
+
+	/**
+	 * @param epochDay
+	 *            a day held by the series
+	 * @param label
+	 *            an hour label of the day
+	 * @return the value
+	 */
+	public double get(final int epochDay, final String label) {
+		return values[index(epochDay, label)];
+	}
+
+	/**
+	 * @param epochDay
+	 *            a day held by the series
+	 * @param label
+	 *            an hour label of the day
+	 * @param value
+	 *            the new value
+	 */
+	public void set(final int epochDay, final String label, final double value) {
+		values[index(epochDay, label)] = value;
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis within an interval held by the series
+	 * @return the value of the interval, within the hour whose label the
+	 *         instant carries
+	 */
+	public double get(final long instant) {
+		return values[index(instant)];
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis within an interval held by the series
+	 * @param value
+	 *            the new value of the interval, within the hour whose label
+	 *            the instant carries
+	 */
+	public void set(final long instant, final double value) {
+		values[index(instant)] = value;
+	}
+
+	/**
+	 * @return a copy of all values, in time order
+	 */
+	public double[] toArray() {
+		final double[] result = new double[size()];
+		System.arraycopy(values, 0, result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * @param epochDay
+	 *            a day held by the series
+	 * @return a copy of the day's values, in time order
+	 */
+	public double[] toArray(final int epochDay) {
+		final int i = dayIndex(epochDay);
+		final double[] result = new double[offsets[i + 1] - offsets[i]];
+		System.arraycopy(values, offsets[i], result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * Determines the position of the value for a day and slot
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the day is not held or does not have the slot
+	 */
+	public int index(final int epochDay, final int slot) {
+		final int i = dayIndex(epochDay);
+		if (slot < 0 || slot >= offsets[i + 1] - offsets[i]) {
+			throw new IllegalArgumentException("No slot " + slot + " on day " + epochDay);
+		}
+		return offsets[i] + slot;
+	}
+
+	/**
+	 * Determines the position of the value for a day and hour label
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the day is not held or the label does not occur on it
+	 */
+	public int index(final int epochDay, final String label) {
+		final int i = dayIndex(epochDay);
+		final int slot = MarketTime.labelSlot((offsets[i + 1] - offsets[i]) / intervalsPerHour, label);
+		if (slot < 0) {
+			throw new IllegalArgumentException("Hour label " + label + " does not occur on day " + epochDay);
+		}
+		return offsets[i] + slot * intervalsPerHour;
+	}
+
+	/**
+	 * Determines the position of the value for the interval an instant falls
+	 * in, within the hour whose label it carries, by arithmetic on the stored
+	 * midnights
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the instant's interval is not held
+	 */
+	public int index(final long instant) {
+		// an hour's label belongs to the day in which the hour started
+		final long hourStart = instant - MarketTime.MILLIS_PER_HOUR;
+		if (dayCount == 0 || hourStart < midnights[0] || hourStart >= midnights[dayCount]) {
+			throw new IllegalArgumentException("Instant " + instant + " is not held");
+		}
+		// every day is 23 to 25 hours long, so the estimate is at most 1 out
+		int i = (int) Math.min((hourStart - midnights[0]) / MarketTime.MILLIS_PER_DAY, dayCount - 1);
+		if (hourStart < midnights[i]) {
+			i--;
+		} else if (hourStart >= midnights[i + 1]) {
+			i++;
+		}
+		return offsets[i] + (int) ((hourStart - midnights[i]) / intervalMillis);
+	}
+
+	/**
+	 * @param index
+	 *            0 to {@link #size()} - 1
+	 * @return the epoch day the value at a position belongs to
+	 */
+	public int dayAt(final int index) {
+		return firstDay + dayIndexAt(index);
+	}
+
+	/**
+	 * Inverse of {@link #index(long)}
+	 *
+	 * @param index
+	 *            0 to {@link #size()} - 1
+	 * @return epoch millis at the end of the interval's first hour, i.e. the
+	 *         first instant carrying the interval's hour label
+	 */
+	public long instantAt(final int index) {
+		final int i = dayIndexAt(index);
+		return midnights[i] + (index - offsets[i]) * intervalMillis + MarketTime.MILLIS_PER_HOUR;
+	}
+
+	private int dayIndexAt(final int index) {
+		checkIndex(index);
+		// every day holds 23 to 25 hours of values, so the estimate is at most 1 out
+		int i = Math.min(index / (24 * intervalsPerHour), dayCount - 1);
+		if (index < offsets[i]) {
+			i--;
+		} else if (index >= offsets[i + 1]) {
+			i++;
+		}
+		return i;
+	}
+
+	private int dayIndex(final int epochDay) {
+		final int i = epochDay - firstDay;
+		if (i < 0 || i >= dayCount) {
+			throw new IllegalArgumentException("Day " + epochDay + " is not held");
+		}
+		return i;
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size()) {
+			throw new IllegalArgumentException("No value at " + index);
+		}
+	}
+
+	private void ensureDays(final int days) {
+		if (days + 1 > midnights.length) {
+			final int capacity = Math.max(days + 1, midnights.length * 2);
+			final long[] newMidnights = new long[capacity];
+			System.arraycopy(midnights, 0, newMidnights, 0, dayCount + 1);
+			midnights = newMidnights;
+			final int[] newOffsets = new int[capacity];
+			System.arraycopy(offsets, 0, newOffsets, 0, dayCount + 1);
+			offsets = newOffsets;
+		}
+	}
+
+	private void ensureValues(final int count) {
+		if (count > values.length) {
+			final double[] newValues = new double[Math.max(count, values.length * 2)];
+			System.arraycopy(values, 0, newValues, 0, size());
+			values = newValues;
+		}
+	}
+}
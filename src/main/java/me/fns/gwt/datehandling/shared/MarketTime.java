@@ -0,0 +1,731 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * "Market time" rules on epoch millis.
+ * </p>
+ * <p>
+ * Implements the same hour label, day length and ISO8601 (no millis) rules as
+ * the client-side CSTimeUtil, but with plain offset arithmetic over a
+ * {@link MarketZone} instead of GWT's DateTimeFormat and TimeZone. Instances
+ * are immutable, allocate nothing when labelling, and are safe to use on both
+ * client (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class MarketTime {
+
+	public static final long MILLIS_PER_SECOND = 1000L;
+
+	public static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+
+	public static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+
+	public static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+	/**
+	 * US Central Time, "market time"
+	 */
+	public static final MarketTime CENTRAL = new MarketTime(MarketZone.AMERICA_CHICAGO);
+
+	/**
+	 * Hour labels for a 24 hour day, regardless of Daylight Savings or Standard
+	 * Time time zone offset. Hour 1 is 1:00AM, Hour 24 is 12:00AM of the
+	 * following day.
+	 */
+	private static final String[] NORMAL_DAY_LABELS = new String[] { "01", "02", "03", "04", "05", "06", "07", "08",
+		"09", "10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "23", "24" };
+
+	/**
+	 * Hour labels for 23 hour day, where day is a "transition day" from
+	 * Standard Time to Daylight Savings. 2:00AM is skipped.
+	 */
+	private static final String[] SHORT_DAY_LABELS = new String[] { "01", "03", "04", "05", "06", "07", "08", "09",
+		"10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "23", "24" };
+
+	/**
+	 * Hour labels for 25 hour day, where day is a "transition day" from
+	 * Daylight Savings to Standard Time. 2:00AM is repeated.
+	 */
+	private static final String[] LONG_DAY_LABELS = new String[] { "01", "02", "02*", "03", "04", "05", "06", "07",
+		"08", "09", "10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "23", "24" };
+
+	/**
+	 * Zero-padded two digit strings, 00-59
+	 */
+	private static final String[] TWO_DIGITS = new String[60];
+
+	static {
+		for (int i = 0; i < TWO_DIGITS.length; i++) {
+			TWO_DIGITS[i] = i < 10 ? "0" + i : String.valueOf(i);
+		}
+	}
+
+	/**
+	 * Hours after a transition during which a label may differ from the local
+	 * hour, see {@link #hourLabel(long)}
+	 */
+	private static final long LABEL_WINDOW = 3 * MILLIS_PER_HOUR;
+
+	private final MarketZone zone;
+
+	/**
+	 * Per transition, the first and last local date (packed
+	 * <code>yyyyMMdd</code>, under either offset) touched by the transition or
+	 * its label window
+	 */
+	private final int[] windowFirstDates;
+
+	private final int[] windowLastDates;
+
+	public MarketTime(final MarketZone zone) {
+		this.zone = zone;
+		final int count = zone.getTransitionCount();
+		windowFirstDates = new int[count];
+		windowLastDates = new int[count];
+		int before = zone.getStandardOffset();
+		int last = Integer.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			final long transition = zone.getTransition(i);
+			final int after = zone.getOffsetAfter(i);
+			windowFirstDates[i] = localDate(transition, Math.min(before, after));
+			last = Math.max(last, localDate(transition + LABEL_WINDOW - 1, Math.max(before, after)));
+			windowLastDates[i] = last;
+			before = after;
+		}
+	}
+
+	/**
+	 * @return the zone whose transitions drive these rules
+	 */
+	public MarketZone getZone() {
+		return zone;
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis
+	 * @return the offset in effect, in minutes east of UTC
+	 */
+	public int getOffset(final long instant) {
+		return zone.getOffset(instant);
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis
+	 * @return true if Daylight Savings is in effect
+	 */
+	public boolean isDaylightTime(final long instant) {
+		return zone.isDaylightTime(instant);
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis
+	 * @return the instant shifted by the market time offset, i.e. wall clock
+	 *         time expressed as if it were UTC
+	 */
+	public long toLocal(final long instant) {
+		return instant + zone.getOffset(instant) * MILLIS_PER_MINUTE;
+	}
+
+	/**
+	 * Determines the market day containing an instant
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return the epoch day (days since 1970-01-01) in market time
+	 */
+	public int epochDay(final long instant) {
+		return (int) CivilDate.floorDiv(toLocal(instant), MILLIS_PER_DAY);
+	}
+
+	/**
+	 * Determines the market day an hour label belongs to. Midnight is the 24th
+	 * hour of the preceding day.
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return the epoch day whose labels contain
+	 *         <code>hourLabel(instant)</code>
+	 */
+	public int labelDay(final long instant) {
+		return epochDay(truncateToHour(instant) - 1);
+	}
+
+	/**
+	 * Determines midnight, in market time, of a market day
+	 *
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return epoch millis of 12:00AM
+	 */
+	public long startOfDay(final int epochDay) {
+		return fromLocal(epochDay * MILLIS_PER_DAY);
+	}
+
+	/**
+	 * Converts a wall clock time back into an instant. For wall clock times
+	 * that occur twice the earlier instant is returned; wall clock times that
+	 * are skipped resolve using the offset in effect before the skip.
+	 *
+	 * @param local
+	 *            wall clock time expressed as if it were UTC
+	 * @return epoch millis
+	 */
+	public long fromLocal(final long local) {
+		final int before = zone.getOffset(local - zone.getStandardOffset() * MILLIS_PER_MINUTE - MILLIS_PER_DAY);
+		final long candidate = local - before * MILLIS_PER_MINUTE;
+		final int actual = zone.getOffset(candidate);
+		if (actual != before) {
+			final long adjusted = local - actual * MILLIS_PER_MINUTE;
+			if (zone.getOffset(adjusted) == actual) {
+				return adjusted;
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * Truncates an instant to the start of its hour, in market time
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return epoch millis at minute 0 of the hour
+	 */
+	public long truncateToHour(final long instant) {
+		final long local = toLocal(instant);
+		return instant - CivilDate.floorMod(local, MILLIS_PER_HOUR);
+	}
+
+	/**
+	 * Determines when the hour (or interval of the hour) containing an
+	 * instant ends, in market time. On the day Daylight Savings ends this
+	 * includes the boundary at which 01:00 repeats.
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @param intervalsPerHour
+	 *            1 for hours, e.g. 12 for 5-minute intervals; must divide 60
+	 * @return epoch millis of the first boundary after the instant
+	 */
+	public long nextBoundary(final long instant, final int intervalsPerHour) {
+		if (intervalsPerHour < 1 || 60 % intervalsPerHour != 0) {
+			throw new IllegalArgumentException("Intervals per hour must divide 60: " + intervalsPerHour);
+		}
+		final long interval = MILLIS_PER_HOUR / intervalsPerHour;
+		final long next = instant - CivilDate.floorMod(toLocal(instant), interval) + interval;
+		final int index = zone.transitionIndex(instant);
+		if (index < zone.getTransitionCount() && zone.getTransition(index) < next) {
+			// the offset changes first: a boundary if that moves the wall clock
+			// into another interval, otherwise count on from the new wall clock
+			final long transition = zone.getTransition(index);
+			final long local = toLocal(transition);
+			if (CivilDate.floorDiv(local, interval) != CivilDate.floorDiv(toLocal(instant), interval)) {
+				return transition;
+			}
+			return transition - CivilDate.floorMod(local, interval) + interval;
+		}
+		return next;
+	}
+
+	/**
+	 * Counts the hour (or interval) boundaries, as found by
+	 * {@link #nextBoundary(long, int)}, from one instant to another, in
+	 * constant time. For instants on boundaries (e.g. whole hours) this is the
+	 * exact number of hours or intervals elapsed, and the distance between
+	 * their label slots, 25 hour and 23 hour days included. Assumes the
+	 * zone's offsets differ by whole intervals, as they do in all US zones.
+	 *
+	 * @param from
+	 *            epoch millis
+	 * @param to
+	 *            epoch millis
+	 * @param intervalsPerHour
+	 *            1 for hours, e.g. 12 for 5-minute intervals; must divide 60
+	 * @return boundaries in <code>(from, to]</code>, negated if
+	 *         <code>to</code> comes first
+	 */
+	public long intervalsBetween(final long from, final long to, final int intervalsPerHour) {
+		if (intervalsPerHour < 1 || 60 % intervalsPerHour != 0) {
+			throw new IllegalArgumentException("Intervals per hour must divide 60: " + intervalsPerHour);
+		}
+		final long interval = MILLIS_PER_HOUR / intervalsPerHour;
+		// count both on the wall clock of the first, so a transition in between changes nothing
+		final long shift = zone.getOffset(from) * MILLIS_PER_MINUTE;
+		return CivilDate.floorDiv(to + shift, interval) - CivilDate.floorDiv(from + shift, interval);
+	}
+
+	/**
+	 * Determine whether a market day is a 23, 24, or 25 hour day.
+	 *
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return 23 if day is a transition from Standard Time to Daylight
+	 *         Savings, 24 if either a regular Standard Time or Daylight Savings
+	 *         day, or 25 if day is a transition from Daylight Savings to
+	 *         Standard Time
+	 */
+	public int hoursInDay(final int epochDay) {
+		return (int) ((startOfDay(epochDay + 1) - startOfDay(epochDay)) / MILLIS_PER_HOUR);
+	}
+
+	/**
+	 * Summarizes a market day
+	 *
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return the day's start, length and offsets
+	 */
+	public DayProfile dayProfile(final int epochDay) {
+		final long start = startOfDay(epochDay);
+		final long end = startOfDay(epochDay + 1);
+		return new DayProfile(epochDay, start, (int) ((end - start) / MILLIS_PER_HOUR), zone.getOffset(start),
+				zone.getOffset(end));
+	}
+
+	/**
+	 * Summarizes a span of market days in one pass. Each midnight follows
+	 * from the one before by 24 hours, unless the zone's next transition
+	 * falls before it; only then (twice a year) is the day resolved as
+	 * {@link #dayProfile(int)} would.
+	 *
+	 * @param from
+	 *            epoch day, inclusive
+	 * @param to
+	 *            epoch day, exclusive
+	 * @return the profiles of the days in <code>[from, to)</code>, the same
+	 *         as {@link #dayProfile(int)} gives for each
+	 * @throws IllegalArgumentException
+	 *             if <code>to</code> comes first
+	 */
+	public DayProfile[] dayProfilesBetween(final int from, final int to) {
+		if (to < from) {
+			throw new IllegalArgumentException("Day " + to + " is before day " + from);
+		}
+		final DayProfile[] profiles = new DayProfile[to - from];
+		long start = startOfDay(from);
+		int offset = zone.getOffset(start);
+		int next = zone.transitionIndex(start);
+		for (int i = 0; i < profiles.length; i++) {
+			long end = start + MILLIS_PER_DAY;
+			int endOffset = offset;
+			if (next < zone.getTransitionCount() && zone.getTransition(next) <= end) {
+				end = startOfDay(from + i + 1);
+				endOffset = zone.getOffset(end);
+				next = zone.transitionIndex(end);
+			}
+			profiles[i] = new DayProfile(from + i, start, (int) ((end - start) / MILLIS_PER_HOUR), offset, endOffset);
+			start = end;
+			offset = endOffset;
+		}
+		return profiles;
+	}
+
+	/**
+	 * Counts the hours of a span of market days, in constant time
+	 *
+	 * @param from
+	 *            epoch day, inclusive
+	 * @param to
+	 *            epoch day, exclusive
+	 * @return the hours in <code>[from, to)</code>, counting 23 or 25 on
+	 *         transition days; negative if <code>to</code> comes first
+	 */
+	public long totalHours(final int from, final int to) {
+		return (startOfDay(to) - startOfDay(from)) / MILLIS_PER_HOUR;
+	}
+
+	/**
+	 * @param year
+	 *            the year
+	 * @param month
+	 *            1 to 12
+	 * @return the hours in the calendar month, e.g. 743 for a March holding
+	 *         the start of Daylight Savings
+	 */
+	public int hoursInMonth(final int year, final int month) {
+		final int first = CivilDate.toEpochDay(year, month, 1);
+		return (int) totalHours(first, first + CivilDate.lengthOfMonth(year, month));
+	}
+
+	/**
+	 * Returns the pre-defined hour labels for a day of given length
+	 *
+	 * @param hoursInDay
+	 *            23, 24 or 25
+	 * @return a copy of the hour labels, or an empty array for any other
+	 *         length
+	 */
+	public static String[] labelsForHours(final int hoursInDay) {
+		final String[] labels = labels(hoursInDay);
+		final String[] result = new String[labels.length];
+		System.arraycopy(labels, 0, result, 0, labels.length);
+		return result;
+	}
+
+	/**
+	 * Shared (do not modify!) hour labels for a day of given length
+	 */
+	static String[] labels(final int hoursInDay) {
+		String[] result;
+		if (hoursInDay == 24) {
+			result = NORMAL_DAY_LABELS;
+		} else if (hoursInDay == 23) {
+			result = SHORT_DAY_LABELS;
+		} else if (hoursInDay == 25) {
+			result = LONG_DAY_LABELS;
+		} else {
+			result = new String[0];
+		}
+		return result;
+	}
+
+	/**
+	 * Aligns the slots of days of any length on the 25 labels of the longest
+	 * day, so that e.g. 03 lands on the same row (3) in each: a 24 hour day
+	 * has no row 2 (02*), a 23 hour day no rows 1 and 2 (02, 02*)
+	 *
+	 * @param hoursInDay
+	 *            23, 24 or 25
+	 * @param slot
+	 *            0-based slot within the day
+	 * @return the row, 0 to 24
+	 */
+	public static int alignedRow(final int hoursInDay, final int slot) {
+		final int skipped = 25 - hoursInDay;
+		// rows 3 - skipped to 2 are left empty
+		return slot < 3 - skipped ? slot : slot + skipped;
+	}
+
+	/**
+	 * Inverse of {@link #alignedRow(int, int)}
+	 *
+	 * @param hoursInDay
+	 *            23, 24 or 25
+	 * @param row
+	 *            0 to 24
+	 * @return the slot shown on the row, or -1 if none is
+	 */
+	public static int alignedSlot(final int hoursInDay, final int row) {
+		final int skipped = 25 - hoursInDay;
+		if (row < 0 || row > 24) {
+			return -1;
+		}
+		if (row < 3 - skipped) {
+			return row;
+		}
+		return row <= 2 ? -1 : row - skipped;
+	}
+
+	/**
+	 * Determines the position of an hour label in a day of given length
+	 *
+	 * @param hoursInDay
+	 *            23, 24 or 25
+	 * @param label
+	 *            an hour label
+	 * @return the 0-based slot, where slot <code>n</code> is the hour ending
+	 *         <code>n + 1</code> hours after midnight; or -1 if the label does
+	 *         not occur in such a day
+	 */
+	public static int labelSlot(final int hoursInDay, final String label) {
+		if (label == null || label.length() < 2 || label.length() > 3) {
+			return -1;
+		}
+		final int tens = label.charAt(0) - '0';
+		final int ones = label.charAt(1) - '0';
+		if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+			return -1;
+		}
+		final int hour = tens * 10 + ones;
+		final boolean extra = label.length() == 3;
+		if (hour < 1 || hour > 24 || extra && (hour != 2 || label.charAt(2) != '*')) {
+			return -1;
+		}
+		int slot;
+		if (hoursInDay == 24) {
+			slot = extra ? -1 : hour - 1;
+		} else if (hoursInDay == 23) {
+			// 02 is skipped
+			slot = extra || hour == 2 ? -1 : hour == 1 ? 0 : hour - 2;
+		} else if (hoursInDay == 25) {
+			// 02* follows 02
+			slot = extra ? 2 : hour <= 2 ? hour - 1 : hour;
+		} else {
+			slot = -1;
+		}
+		return slot;
+	}
+
+	/**
+	 * Determines the hour label corresponding to an instant
+	 *
+	 * @param instant
+	 *            epoch millis (typically a whole hour)
+	 * @return an hour label where 01 represents 1:00AM and 24 represents
+	 *         12:00AM of the following day
+	 */
+	public String hourLabel(final long instant) {
+		final int index = zone.transitionIndex(instant);
+		final int offset = index == 0 ? zone.getStandardOffset() : zone.getOffsetAfter(index - 1);
+		final long local = instant + offset * MILLIS_PER_MINUTE;
+		final int hour = (int) (CivilDate.floorMod(local, MILLIS_PER_DAY) / MILLIS_PER_HOUR);
+		String result = hour == 0 ? NORMAL_DAY_LABELS[23] : NORMAL_DAY_LABELS[hour - 1];
+		// only an offset change within the last few hours can alter a label
+		if (index > 0 && instant - zone.getTransition(index - 1) < 3 * MILLIS_PER_HOUR) {
+			// first 1:00AM was Daylight Savings, this one is the 2nd hour
+			if (hour == 1 && zone.getOffset(instant - MILLIS_PER_HOUR) != offset) {
+				result = NORMAL_DAY_LABELS[1];
+			}
+			if (isExtraHour(instant)) {
+				result = LONG_DAY_LABELS[2];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Determines the hour label of an ISO8601 formatted String (no millis),
+	 * e.g. <code>2012-11-04T01:00:00-06:00</code>. Same result as
+	 * <code>hourLabel(parseIsoNoMillis(iso))</code>.
+	 * <p>
+	 * Away from transitions the label is the hour digits of the String itself,
+	 * provided its offset is the one in effect on that date; only Strings
+	 * dated within a few hours of a transition (or in another offset, or
+	 * another format) are parsed in full.
+	 * </p>
+	 *
+	 * @param iso
+	 *            an ISO8601 formatted String (no millis)
+	 * @return an hour label
+	 * @throws IllegalArgumentException
+	 *             if the String is not well formed
+	 */
+	public String isoHourLabel(final String iso) {
+		if (iso != null && iso.length() == 25 && iso.charAt(4) == '-' && iso.charAt(7) == '-'
+				&& iso.charAt(10) == 'T' && iso.charAt(13) == ':' && iso.charAt(16) == ':' && iso.charAt(22) == ':') {
+			final int year = digitsOrNegative(iso, 0, 4);
+			final int month = digitsOrNegative(iso, 5, 2);
+			final int day = digitsOrNegative(iso, 8, 2);
+			final int hour = digitsOrNegative(iso, 11, 2);
+			final int minute = digitsOrNegative(iso, 14, 2);
+			final int second = digitsOrNegative(iso, 17, 2);
+			final char sign = iso.charAt(19);
+			final int offsetHours = digitsOrNegative(iso, 20, 2);
+			final int offsetMinutes = digitsOrNegative(iso, 23, 2);
+			if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && hour >= 0 && hour < 24 && minute >= 0
+					&& minute <= 59 && second >= 0 && second <= 59 && (sign == '-' || sign == '+') && offsetHours >= 0
+					&& offsetMinutes >= 0 && day <= CivilDate.lengthOfMonth(year, month)) {
+				final int date = CivilDate.pack(year, month, day);
+				final int index = windowIndex(date);
+				final int offset = (offsetHours * 60 + offsetMinutes) * (sign == '-' ? -1 : 1);
+				if ((index == 0 || date > windowLastDates[index - 1])
+						&& offset == (index == 0 ? zone.getStandardOffset() : zone.getOffsetAfter(index - 1))) {
+					return hour == 0 ? NORMAL_DAY_LABELS[23] : NORMAL_DAY_LABELS[hour - 1];
+				}
+			}
+		}
+		return hourLabel(parseIsoNoMillis(iso));
+	}
+
+	/**
+	 * Determines whether current hour is an "extra hour" when transitioning
+	 * from Daylight Savings to Standard Time
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return true if the hour is the repeated hour of a "transition day";
+	 *         false otherwise
+	 */
+	public boolean isExtraHour(final long instant) {
+		final long hour = truncateToHour(instant);
+		return zone.isDaylightTime(hour - 2 * MILLIS_PER_HOUR) && !zone.isDaylightTime(hour - MILLIS_PER_HOUR)
+				&& !zone.isDaylightTime(hour);
+	}
+
+	/**
+	 * Determines the minute label corresponding to an instant
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return the minute of the hour, 00-59
+	 */
+	public String minuteLabel(final long instant) {
+		final long local = toLocal(instant);
+		return TWO_DIGITS[(int) (CivilDate.floorMod(local, MILLIS_PER_HOUR) / MILLIS_PER_MINUTE)];
+	}
+
+	/**
+	 * Calculates the instant of an hour label within a market day
+	 *
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @param label
+	 *            an hour label
+	 * @return epoch millis of the hour
+	 * @throws IllegalArgumentException
+	 *             if the label does not occur on the day
+	 */
+	public long hourOfDay(final int epochDay, final String label) {
+		final long midnight = startOfDay(epochDay);
+		final long nextMidnight = startOfDay(epochDay + 1);
+		final int slot = labelSlot((int) ((nextMidnight - midnight) / MILLIS_PER_HOUR), label);
+		if (slot < 0) {
+			throw new IllegalArgumentException("Hour label " + label + " does not occur on day " + epochDay);
+		}
+		return midnight + (slot + 1) * MILLIS_PER_HOUR;
+	}
+
+	/**
+	 * Formats an instant as an ISO8601 String (no millis) in market time, e.g.
+	 * <code>2012-11-04T01:00:00-06:00</code>
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return an ISO8601 formatted String (no millis)
+	 */
+	public String toIsoNoMillis(final long instant) {
+		return appendIsoNoMillis(new StringBuilder(IsoNoMillis.LENGTH), instant).toString();
+	}
+
+	/**
+	 * Appends an instant as an ISO8601 String (no millis) in market time,
+	 * creating no objects of its own (see {@link IsoNoMillis})
+	 *
+	 * @param buf
+	 *            where to append the timestamp
+	 * @param instant
+	 *            epoch millis
+	 * @return buf
+	 */
+	public StringBuilder appendIsoNoMillis(final StringBuilder buf, final long instant) {
+		return IsoNoMillis.append(buf, instant, zone.getOffset(instant));
+	}
+
+	/**
+	 * Parses an ISO8601 formatted String (no millis), with or without a "GMT"
+	 * prefix on the time zone offset, e.g.
+	 * <code>2012-11-04T01:00:00GMT-06:00</code> or
+	 * <code>2012-11-04T01:00:00-06:00</code>
+	 *
+	 * @param iso
+	 *            an ISO8601 formatted String (no millis)
+	 * @return epoch millis
+	 * @throws IllegalArgumentException
+	 *             if the String is not well formed
+	 */
+	public static long parseIsoNoMillis(final String iso) {
+		if (iso == null || iso.length() < 20 || iso.charAt(4) != '-' || iso.charAt(7) != '-' || iso.charAt(10) != 'T'
+				|| iso.charAt(13) != ':' || iso.charAt(16) != ':') {
+			throw new IllegalArgumentException("Not an ISO8601 (no millis) date time: " + iso);
+		}
+		final int year = digits(iso, 0, 4);
+		final int month = digits(iso, 5, 2);
+		final int day = digits(iso, 8, 2);
+		final int hour = digits(iso, 11, 2);
+		final int minute = digits(iso, 14, 2);
+		final int second = digits(iso, 17, 2);
+		if (month < 1 || month > 12 || day < 1 || day > CivilDate.lengthOfMonth(year, month) || hour > 24
+				|| minute > 59 || second > 59) {
+			throw new IllegalArgumentException("Not an ISO8601 (no millis) date time: " + iso);
+		}
+		final long local = CivilDate.toEpochDay(year, month, day) * MILLIS_PER_DAY + hour * MILLIS_PER_HOUR + minute
+				* MILLIS_PER_MINUTE + second * MILLIS_PER_SECOND;
+		return local - parseOffset(iso, 19) * MILLIS_PER_MINUTE;
+	}
+
+	/**
+	 * Parses the time zone offset of an ISO8601 formatted String (no millis)
+	 *
+	 * @param iso
+	 *            an ISO8601 formatted String (no millis)
+	 * @return the offset, in minutes east of UTC
+	 * @throws IllegalArgumentException
+	 *             if the String is not well formed
+	 */
+	public static int parseIsoOffset(final String iso) {
+		if (iso == null || iso.length() < 20) {
+			throw new IllegalArgumentException("Not an ISO8601 (no millis) date time: " + iso);
+		}
+		return parseOffset(iso, 19);
+	}
+
+	private static int parseOffset(final String iso, final int start) {
+		int pos = start;
+		if (iso.startsWith("GMT", pos)) {
+			pos += 3;
+		}
+		final int length = iso.length();
+		if (pos == length - 1 && iso.charAt(pos) == 'Z') {
+			return 0;
+		}
+		if (pos >= length) {
+			throw new IllegalArgumentException("Missing time zone offset: " + iso);
+		}
+		final char sign = iso.charAt(pos);
+		if (sign != '+' && sign != '-') {
+			throw new IllegalArgumentException("Not a time zone offset: " + iso);
+		}
+		int offset;
+		if (length - pos == 6 && iso.charAt(pos + 3) == ':') {
+			offset = digits(iso, pos + 1, 2) * 60 + digits(iso, pos + 4, 2);
+		} else if (length - pos == 5) {
+			offset = digits(iso, pos + 1, 2) * 60 + digits(iso, pos + 3, 2);
+		} else {
+			throw new IllegalArgumentException("Not a time zone offset: " + iso);
+		}
+		return sign == '-' ? -offset : offset;
+	}
+
+	/**
+	 * @return the number of transitions whose window starts on or before a
+	 *         packed local date
+	 */
+	private int windowIndex(final int date) {
+		int low = 0;
+		int high = windowFirstDates.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (windowFirstDates[mid] <= date) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static int localDate(final long instant, final int offset) {
+		return CivilDate.fromEpochDay((int) CivilDate.floorDiv(instant + offset * MILLIS_PER_MINUTE, MILLIS_PER_DAY));
+	}
+
+	/**
+	 * @return the value of <code>count</code> decimal digits, or -1 if any is
+	 *         not a digit
+	 */
+	private static int digitsOrNegative(final String s, final int start, final int count) {
+		int result = 0;
+		for (int i = start; i < start + count; i++) {
+			final int digit = s.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+	private static int digits(final String s, final int start, final int count) {
+		int result = 0;
+		for (int i = start; i < start + count; i++) {
+			final int digit = s.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				throw new IllegalArgumentException("Expected a digit at position " + i + ": " + s);
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+}
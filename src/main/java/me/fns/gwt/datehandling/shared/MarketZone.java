@@ -0,0 +1,235 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Immutable table of UTC offset transitions for a market time zone.
+ * </p>
+ * <p>
+ * Unlike GWT's TimeZone (whose TimeZoneConstants data stops at 2037 and which
+ * can only be built in client code) the table is plain Java and safe to use on
+ * both client (GWT-translatable) and server. Offsets are expressed in minutes
+ * east of UTC, as they appear in an ISO8601 offset (e.g. -360 for -06:00).
+ * </p>
+ *
+ */
+public final class MarketZone {
+
+	private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+
+	private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+
+	private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+	/**
+	 * US Central Time, "market time". Transitions follow the US Daylight
+	 * Savings rules in effect for each year from 1970 through 2100.
+	 */
+	public static final MarketZone AMERICA_CHICAGO = usZone("America/Chicago", -360, 1970, 2100);
+
+	private final String id;
+
+	private final int standardOffset;
+
+	/**
+	 * UTC instants (epoch millis), ascending, at which the offset changes
+	 */
+	private final long[] transitions;
+
+	/**
+	 * Offset in effect from <code>transitions[i]</code> (inclusive) until
+	 * <code>transitions[i + 1]</code> (exclusive)
+	 */
+	private final int[] offsets;
+
+	/**
+	 * Fingerprint of the transition table
+	 */
+	private final String dataVersion;
+
+	/**
+	 * Creates a zone from a table of transitions
+	 *
+	 * @param id
+	 *            an Olson time zone id
+	 * @param standardOffset
+	 *            the Standard Time offset, in minutes east of UTC; in effect
+	 *            before the first transition
+	 * @param transitions
+	 *            ascending UTC instants (epoch millis) at which the offset
+	 *            changes
+	 * @param offsets
+	 *            the offset, in minutes east of UTC, in effect from each
+	 *            transition
+	 */
+	public MarketZone(final String id, final int standardOffset, final long[] transitions, final int[] offsets) {
+		if (transitions.length != offsets.length) {
+			throw new IllegalArgumentException("Each transition must have exactly one offset!");
+		}
+		for (int i = 1; i < transitions.length; i++) {
+			if (transitions[i] <= transitions[i - 1]) {
+				throw new IllegalArgumentException("Transitions must be in ascending order!");
+			}
+		}
+		this.id = id;
+		this.standardOffset = standardOffset;
+		this.transitions = new long[transitions.length];
+		this.offsets = new int[offsets.length];
+		System.arraycopy(transitions, 0, this.transitions, 0, transitions.length);
+		System.arraycopy(offsets, 0, this.offsets, 0, offsets.length);
+		int hash = standardOffset;
+		for (int i = 0; i < transitions.length; i++) {
+			hash = 31 * (31 * hash + (int) (transitions[i] ^ transitions[i] >>> 32)) + offsets[i];
+		}
+		dataVersion = transitions.length + "-" + Integer.toHexString(hash);
+	}
+
+	/**
+	 * @return the Olson time zone id
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Identifies the zone data, so that anything derived from it and kept
+	 * elsewhere (e.g. persisted day profiles) can be discarded once the rules
+	 * change
+	 *
+	 * @return a fingerprint of the transition table
+	 */
+	public String getDataVersion() {
+		return dataVersion;
+	}
+
+	/**
+	 * @return the Standard Time offset, in minutes east of UTC
+	 */
+	public int getStandardOffset() {
+		return standardOffset;
+	}
+
+	/**
+	 * @return the number of transitions in the table
+	 */
+	public int getTransitionCount() {
+		return transitions.length;
+	}
+
+	/**
+	 * @param index
+	 *            a transition index
+	 * @return the UTC instant (epoch millis) of the transition
+	 */
+	public long getTransition(final int index) {
+		return transitions[index];
+	}
+
+	/**
+	 * @param index
+	 *            a transition index
+	 * @return the offset, in minutes east of UTC, in effect from the
+	 *         transition
+	 */
+	public int getOffsetAfter(final int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * Determines the number of transitions at or before an instant
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return an index <code>i</code> such that
+	 *         <code>getTransition(i - 1) &lt;= instant &lt; getTransition(i)</code>
+	 */
+	public int transitionIndex(final long instant) {
+		int low = 0;
+		int high = transitions.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (transitions[mid] <= instant) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Determines the offset in effect at an instant
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return the offset, in minutes east of UTC
+	 */
+	public int getOffset(final long instant) {
+		final int index = transitionIndex(instant);
+		return index == 0 ? standardOffset : offsets[index - 1];
+	}
+
+	/**
+	 * Determines whether Daylight Savings is in effect at an instant
+	 *
+	 * @param instant
+	 *            epoch millis
+	 * @return true if the offset differs from the Standard Time offset
+	 */
+	public boolean isDaylightTime(final long instant) {
+		return getOffset(instant) != standardOffset;
+	}
+
+	/**
+	 * Builds a zone observing US Daylight Savings rules.
+	 */
+	private static MarketZone usZone(final String id, final int standardOffset, final int fromYear, final int toYear) {
+		final int years = toYear - fromYear + 1;
+		final long[] transitions = new long[years * 2];
+		final int[] offsets = new int[years * 2];
+		final int daylightOffset = standardOffset + 60;
+		for (int year = fromYear; year <= toYear; year++) {
+			final int i = (year - fromYear) * 2;
+			// both transitions happen at 2:00AM local time
+			transitions[i] = usDaylightStart(year) * MILLIS_PER_DAY + 2 * MILLIS_PER_HOUR - standardOffset
+					* MILLIS_PER_MINUTE;
+			offsets[i] = daylightOffset;
+			transitions[i + 1] = usDaylightEnd(year) * MILLIS_PER_DAY + 2 * MILLIS_PER_HOUR - daylightOffset
+					* MILLIS_PER_MINUTE;
+			offsets[i + 1] = standardOffset;
+		}
+		return new MarketZone(id, standardOffset, transitions, offsets);
+	}
+
+	/**
+	 * @return the epoch day on which Daylight Savings starts in the US
+	 */
+	private static long usDaylightStart(final int year) {
+		int result;
+		if (year >= 2007) {
+			result = CivilDate.nthSunday(year, 3, 2);
+		} else if (year >= 1987) {
+			result = CivilDate.nthSunday(year, 4, 1);
+		} else if (year == 1975) {
+			// Emergency Daylight Saving Time Energy Conservation Act
+			result = CivilDate.toEpochDay(1975, 2, 23);
+		} else if (year == 1974) {
+			result = CivilDate.toEpochDay(1974, 1, 6);
+		} else {
+			result = CivilDate.lastSunday(year, 4);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the epoch day on which Daylight Savings ends in the US
+	 */
+	private static long usDaylightEnd(final int year) {
+		int result;
+		if (year >= 2007) {
+			result = CivilDate.nthSunday(year, 11, 1);
+		} else {
+			result = CivilDate.lastSunday(year, 10);
+		}
+		return result;
+	}
+}
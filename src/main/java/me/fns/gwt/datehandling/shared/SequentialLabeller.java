@@ -0,0 +1,173 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Labels a stream of timestamps that mostly arrive in order, such as an
+ * hourly or 5-minute feed, at little more than the cost of reading them.
+ * </p>
+ * <p>
+ * Two things are remembered from one element to the next. The first is the
+ * profile of the market day the last label belonged to: while timestamps
+ * stay within that day (a run of consecutive hours or intervals always does
+ * until midnight) the label is the day's slot for the timestamp, a
+ * subtraction and a division, whatever transition the day holds. The second
+ * is the date and offset of the last ISO8601 String: a String that repeats
+ * them differs only in its time of day, so its instant follows from those
+ * six digits without parsing the rest. Only a new day, a new offset (e.g.
+ * the repeated 01:00) or a gap back in time takes the full path.
+ * </p>
+ * <p>
+ * Same results as {@link MarketTime#hourLabel(long)} for any input, in any
+ * order. Keeps state, so use one instance per stream (and thread). Safe to
+ * use on both client (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class SequentialLabeller {
+
+	/**
+	 * Where the full path gets day profiles from, e.g. a cache shared between
+	 * threads on the server
+	 */
+	public interface Days {
+
+		/**
+		 * @param instant
+		 *            epoch millis
+		 * @return the profile of the market day the instant's hour label
+		 *         belongs to
+		 */
+		DayProfile labelProfile(long instant);
+	}
+
+	private final Days days;
+
+	/**
+	 * Label day of the last instant, null before the first
+	 */
+	private DayProfile profile;
+
+	/**
+	 * Instants whose label belongs to <code>profile</code>:
+	 * <code>[windowStart, windowEnd)</code>
+	 */
+	private long windowStart;
+
+	private long windowEnd;
+
+	/**
+	 * Last ISO8601 String in canonical form, and the instant of its 00:00:00
+	 * in its own offset
+	 */
+	private String lastIso;
+
+	private long lastIsoMidnight;
+
+	private long fullPaths;
+
+	/**
+	 * @param market
+	 *            the market time rules to apply, computing each new day's
+	 *            profile
+	 */
+	public SequentialLabeller(final MarketTime market) {
+		this(new Days() {
+
+			@Override
+			public DayProfile labelProfile(final long instant) {
+				return market.dayProfile(market.labelDay(instant));
+			}
+		});
+	}
+
+	/**
+	 * @param days
+	 *            source of each new day's profile, following the same market
+	 *            time rules as {@link MarketTime}
+	 */
+	public SequentialLabeller(final Days days) {
+		this.days = days;
+	}
+
+	/**
+	 * @param instant
+	 *            epoch millis
+	 * @return the hour label (see {@link MarketTime#hourLabel(long)})
+	 */
+	public String hourLabel(final long instant) {
+		if (profile == null || instant < windowStart || instant >= windowEnd) {
+			fullPaths++;
+			profile = days.labelProfile(instant);
+			windowStart = profile.getStart() + MarketTime.MILLIS_PER_HOUR;
+			windowEnd = profile.getEnd() + MarketTime.MILLIS_PER_HOUR;
+		}
+		return profile.getLabel((int) ((instant - windowStart) / MarketTime.MILLIS_PER_HOUR));
+	}
+
+	/**
+	 * @param iso
+	 *            an ISO8601 formatted String (no millis)
+	 * @return the hour label (see {@link MarketTime#isoHourLabel(String)})
+	 * @throws IllegalArgumentException
+	 *             if the String is not well formed
+	 */
+	public String isoHourLabel(final String iso) {
+		return hourLabel(toInstant(iso));
+	}
+
+	/**
+	 * @param iso
+	 *            an ISO8601 formatted String (no millis)
+	 * @return epoch millis (see {@link MarketTime#parseIsoNoMillis(String)})
+	 * @throws IllegalArgumentException
+	 *             if the String is not well formed
+	 */
+	public long toInstant(final String iso) {
+		if (lastIso != null && iso.length() == 25 && iso.regionMatches(0, lastIso, 0, 11)
+				&& iso.regionMatches(19, lastIso, 19, 6) && iso.charAt(13) == ':' && iso.charAt(16) == ':') {
+			final int hour = twoDigits(iso, 11);
+			final int minute = twoDigits(iso, 14);
+			final int second = twoDigits(iso, 17);
+			if (hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+				return lastIsoMidnight + hour * MarketTime.MILLIS_PER_HOUR + minute * MarketTime.MILLIS_PER_MINUTE
+						+ second * MarketTime.MILLIS_PER_SECOND;
+			}
+		}
+		final long instant = MarketTime.parseIsoNoMillis(iso);
+		// remember the date and offset if canonical, i.e. yyyy-MM-ddTHH:mm:ss+hh:mm
+		if (iso.length() == 25 && iso.charAt(10) == 'T' && iso.charAt(13) == ':' && iso.charAt(16) == ':'
+				&& (iso.charAt(19) == '+' || iso.charAt(19) == '-') && iso.charAt(22) == ':') {
+			lastIso = iso;
+			lastIsoMidnight = instant - twoDigits(iso, 11) * MarketTime.MILLIS_PER_HOUR - twoDigits(iso, 14)
+					* MarketTime.MILLIS_PER_MINUTE - twoDigits(iso, 17) * MarketTime.MILLIS_PER_SECOND;
+		} else {
+			lastIso = null;
+		}
+		return instant;
+	}
+
+	/**
+	 * @return the profile of the market day the last label belongs to, null
+	 *         before the first
+	 */
+	public DayProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * @return how many labels needed a new day profile, i.e. started a new
+	 *         run
+	 */
+	public long getFullPaths() {
+		return fullPaths;
+	}
+
+	/**
+	 * @return the value of two decimal digits, or -1 if either is not a digit
+	 */
+	private static int twoDigits(final String s, final int from) {
+		final int tens = s.charAt(from) - '0';
+		final int units = s.charAt(from + 1) - '0';
+		return tens < 0 || tens > 9 || units < 0 || units > 9 ? -1 : tens * 10 + units;
+	}
+}
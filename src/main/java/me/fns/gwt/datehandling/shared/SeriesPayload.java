@@ -0,0 +1,46 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * A time series as it arrives from a feed, as JSON in columns:
+ *
+ * <pre>
+ * {"intervalsPerHour":1,
+ *  "timestamps":["2012-11-04T00:00:00-05:00","2012-11-04T01:00:00-05:00",...],
+ *  "values":[41.5,null,...]}
+ * </pre>
+ *
+ * </p>
+ * <p>
+ * Implementations read the fields where they lie (in the browser, straight
+ * from the evaluated JSON) rather than building a tree of wrappers first; see
+ * {@link SeriesPayloadLoader} to turn one into a {@link MarketDaySeries}.
+ * </p>
+ *
+ */
+public interface SeriesPayload {
+
+	/**
+	 * @return values per hour, a divisor of 60; 1 if not given
+	 */
+	int getIntervalsPerHour();
+
+	/**
+	 * @return the number of timestamps (and values)
+	 */
+	int size();
+
+	/**
+	 * @param index
+	 *            0 to size() - 1
+	 * @return an ISO8601 formatted String (no millis)
+	 */
+	String getTimestamp(int index);
+
+	/**
+	 * @param index
+	 *            0 to size() - 1
+	 * @return the value, or {@link Double#NaN} if null
+	 */
+	double getValue(int index);
+}
@@ -0,0 +1,51 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Copies a {@link SeriesPayload} into a {@link MarketDaySeries}, reading each
+ * timestamp in place through a {@link SequentialLabeller}, so a sorted feed
+ * costs little more than one pass over its fields.
+ * </p>
+ * <p>
+ * Safe to use on both client (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class SeriesPayloadLoader {
+
+	private SeriesPayloadLoader() {
+	}
+
+	/**
+	 * @param market
+	 *            the market time rules the days follow
+	 * @param payload
+	 *            the series, in ascending time order from its first timestamp
+	 * @return a series from the market day of the first timestamp to that of
+	 *         the last, NaN wherever the payload has no value
+	 * @throws IllegalArgumentException
+	 *             if the payload is empty, a timestamp is not well formed or
+	 *             is earlier than the day of the first
+	 */
+	public static MarketDaySeries load(final MarketTime market, final SeriesPayload payload) {
+		final int size = payload.size();
+		if (size == 0) {
+			throw new IllegalArgumentException("Empty series payload");
+		}
+		final SequentialLabeller labeller = new SequentialLabeller(market);
+		labeller.hourLabel(labeller.toInstant(payload.getTimestamp(0)));
+		final MarketDaySeries series = new MarketDaySeries(market, labeller.getProfile().getEpochDay(),
+				payload.getIntervalsPerHour());
+		int end = series.addDays(1);
+		for (int i = 0; i < size; i++) {
+			final long instant = labeller.toInstant(payload.getTimestamp(i));
+			labeller.hourLabel(instant);
+			final int day = labeller.getProfile().getEpochDay();
+			if (day >= end) {
+				end = series.addDays(day - end + 1);
+			}
+			series.set(instant, payload.getValue(i));
+		}
+		return series;
+	}
+}
@@ -0,0 +1,100 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Turns GWT lightweight metrics events (<code>__gwtStatsEvent</code>) raised
+ * while the module starts up into a report of phase durations, one
+ * <code>phase=millis</code> line per phase whose begin and end were both
+ * seen:
+ *
+ * <pre>
+ * bootstrap=112
+ * download=348
+ * moduleEval=41
+ * csTimeUtilInit=3
+ * firstRender=57
+ * total=604
+ * </pre>
+ *
+ * The bootstrap, download and module evaluation phases come from the events
+ * GWT itself raises; the application marks its own phases with events of the
+ * phase name as group and <code>begin</code> or <code>end</code> as type.
+ * </p>
+ *
+ */
+public class StartupTimeline {
+
+	/**
+	 * Group of the events GWT raises as the selection script runs
+	 */
+	public static final String BOOTSTRAP = "bootstrap";
+
+	/**
+	 * Group of the events GWT raises while fetching and starting a permutation
+	 */
+	public static final String MODULE_STARTUP = "moduleStartup";
+
+	/**
+	 * Application phase: class initialization of <code>CSTimeUtil</code>
+	 */
+	public static final String CS_TIME_UTIL_INIT = "csTimeUtilInit";
+
+	/**
+	 * Application phase: building and first layout of the UI
+	 */
+	public static final String FIRST_RENDER = "firstRender";
+
+	public static final String BEGIN = "begin";
+
+	public static final String END = "end";
+
+	/**
+	 * name, begin group, begin type, end group, end type
+	 */
+	private static final String[][] PHASES = new String[][] { { "bootstrap", BOOTSTRAP, BEGIN, BOOTSTRAP, END },
+			{ "download", MODULE_STARTUP, "moduleRequested", MODULE_STARTUP, "moduleEvalStart" },
+			{ "moduleEval", MODULE_STARTUP, "moduleEvalStart", MODULE_STARTUP, "moduleEvalEnd" },
+			{ CS_TIME_UTIL_INIT, CS_TIME_UTIL_INIT, BEGIN, CS_TIME_UTIL_INIT, END },
+			{ FIRST_RENDER, FIRST_RENDER, BEGIN, FIRST_RENDER, END },
+			{ "total", BOOTSTRAP, BEGIN, FIRST_RENDER, END } };
+
+	/**
+	 * Time of the first event of each group and type
+	 */
+	private final Map<String, Double> events = new HashMap<String, Double>();
+
+	/**
+	 * Records an event; repeats of an event already seen are ignored
+	 *
+	 * @param group
+	 *            the event's <code>evtGroup</code>
+	 * @param type
+	 *            the event's <code>type</code>
+	 * @param millis
+	 *            the event's <code>millis</code>
+	 */
+	public void event(final String group, final String type, final double millis) {
+		final String key = group + "." + type;
+		if (!events.containsKey(key)) {
+			events.put(key, millis);
+		}
+	}
+
+	/**
+	 * @return the phase durations, or an empty String if none is complete
+	 */
+	public String report() {
+		final StringBuilder result = new StringBuilder();
+		for (final String[] phase : PHASES) {
+			final Double begin = events.get(phase[1] + "." + phase[2]);
+			final Double end = events.get(phase[3] + "." + phase[4]);
+			if (begin != null && end != null && end >= begin) {
+				result.append(phase[0]).append('=').append(Math.round(end - begin)).append('\n');
+			}
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,356 @@
+package me.fns.gwt.datehandling.shared;
+
+/**
+ * <p>
+ * Trading days of a range of calendar years: every weekday that is not a
+ * holiday.
+ * </p>
+ * <p>
+ * Held as a bitset, one bit per day, with a running count of trading days at
+ * each 32-day word. Whether a day trades and how many trading days lie
+ * between two days are answered in constant time; the n-th trading day
+ * before or after a day by a binary search of the counts; the next or
+ * previous trading day by scanning at most a few words (holidays never cluster
+ * for long). Trading hours honour the 23 and 25 hour transition days of the
+ * market's hour labels.
+ * </p>
+ * <p>
+ * Immutable. Safe to use on both client (GWT-translatable) and server.
+ * </p>
+ *
+ */
+public final class TradingCalendar {
+
+	private final MarketTime market;
+
+	private final int firstYear;
+
+	private final int lastYear;
+
+	private final int firstDay;
+
+	private final int dayCount;
+
+	/**
+	 * Bit <code>i</code> of word <code>w</code> is set if day
+	 * <code>firstDay + 32w + i</code> trades
+	 */
+	private final int[] words;
+
+	/**
+	 * Trading days before each word, plus the total
+	 */
+	private final int[] ranks;
+
+	/**
+	 * Days (ascending) that are not 24 hours long, and their hours less 24
+	 */
+	private final int[] transitionDays;
+
+	private final int[] transitionExtraHours;
+
+	/**
+	 * @param market
+	 *            the market time rules
+	 * @param firstYear
+	 *            first calendar year covered
+	 * @param lastYear
+	 *            last calendar year covered
+	 * @param holidays
+	 *            epoch days on which the market is closed; any outside the
+	 *            years covered are ignored
+	 */
+	public TradingCalendar(final MarketTime market, final int firstYear, final int lastYear, final int[] holidays) {
+		if (firstYear > lastYear) {
+			throw new IllegalArgumentException("First year " + firstYear + " is after last year " + lastYear);
+		}
+		this.market = market;
+		this.firstYear = firstYear;
+		this.lastYear = lastYear;
+		firstDay = CivilDate.toEpochDay(firstYear, 1, 1);
+		dayCount = CivilDate.toEpochDay(lastYear + 1, 1, 1) - firstDay;
+
+		words = new int[(dayCount + 31) >>> 5];
+		for (int i = 0; i < dayCount; i++) {
+			final int dayOfWeek = CivilDate.dayOfWeek(firstDay + i);
+			if (dayOfWeek != 0 && dayOfWeek != 6) {
+				words[i >>> 5] |= 1 << (i & 31);
+			}
+		}
+		for (int i = 0; i < holidays.length; i++) {
+			final int index = holidays[i] - firstDay;
+			if (index >= 0 && index < dayCount) {
+				words[index >>> 5] &= ~(1 << (index & 31));
+			}
+		}
+		ranks = new int[words.length + 1];
+		for (int w = 0; w < words.length; w++) {
+			ranks[w + 1] = ranks[w] + Integer.bitCount(words[w]);
+		}
+
+		int transitions = 0;
+		final int[] days = new int[2 * (lastYear - firstYear + 1) + 2];
+		final int[] extraHours = new int[days.length];
+		final MarketZone zone = market.getZone();
+		final long end = market.startOfDay(firstDay + dayCount);
+		for (int i = zone.transitionIndex(market.startOfDay(firstDay)); i < zone.getTransitionCount()
+				&& zone.getTransition(i) < end && transitions < days.length; i++) {
+			final int day = market.epochDay(zone.getTransition(i) - 1);
+			final int hours = market.hoursInDay(day);
+			if (hours != 24 && day >= firstDay && (transitions == 0 || days[transitions - 1] != day)) {
+				days[transitions] = day;
+				extraHours[transitions] = hours - 24;
+				transitions++;
+			}
+		}
+		transitionDays = new int[transitions];
+		transitionExtraHours = new int[transitions];
+		System.arraycopy(days, 0, transitionDays, 0, transitions);
+		System.arraycopy(extraHours, 0, transitionExtraHours, 0, transitions);
+	}
+
+	/**
+	 * Reads a holiday list: one <code>yyyy-MM-dd</code> date per line,
+	 * optionally followed by a description. Blank lines and lines starting
+	 * with <code>#</code> are skipped.
+	 *
+	 * <pre>
+	 * # NYMEX holidays
+	 * 2013-01-01 New Year's Day
+	 * 2013-01-21 Martin Luther King, Jr. Day
+	 * </pre>
+	 *
+	 * @param market
+	 *            the market time rules
+	 * @param firstYear
+	 *            first calendar year covered
+	 * @param lastYear
+	 *            last calendar year covered
+	 * @param holidayList
+	 *            the holiday list
+	 * @return the trading calendar
+	 * @throws IllegalArgumentException
+	 *             if a line does not start with a valid date
+	 */
+	public static TradingCalendar parse(final MarketTime market, final int firstYear, final int lastYear,
+			final String holidayList) {
+		final String[] lines = holidayList.split("\n");
+		final int[] holidays = new int[lines.length];
+		int count = 0;
+		for (int i = 0; i < lines.length; i++) {
+			final String line = lines[i].trim();
+			if (line.length() == 0 || line.charAt(0) == '#') {
+				continue;
+			}
+			if (line.length() < 10 || line.charAt(4) != '-' || line.charAt(7) != '-'
+					|| line.length() > 10 && line.charAt(10) > ' ') {
+				throw new IllegalArgumentException("Line " + (i + 1) + " is not a yyyy-MM-dd date: " + line);
+			}
+			try {
+				final int year = Integer.parseInt(line.substring(0, 4));
+				final int month = Integer.parseInt(line.substring(5, 7));
+				final int day = Integer.parseInt(line.substring(8, 10));
+				if (month < 1 || month > 12 || day < 1 || day > CivilDate.lengthOfMonth(year, month)) {
+					throw new IllegalArgumentException("Line " + (i + 1) + " is not a valid date: " + line);
+				}
+				holidays[count++] = CivilDate.toEpochDay(year, month, day);
+			} catch (final NumberFormatException e) {
+				throw new IllegalArgumentException("Line " + (i + 1) + " is not a yyyy-MM-dd date: " + line);
+			}
+		}
+		final int[] result = new int[count];
+		System.arraycopy(holidays, 0, result, 0, count);
+		return new TradingCalendar(market, firstYear, lastYear, result);
+	}
+
+	/**
+	 * @return first calendar year covered
+	 */
+	public int getFirstYear() {
+		return firstYear;
+	}
+
+	/**
+	 * @return last calendar year covered
+	 */
+	public int getLastYear() {
+		return lastYear;
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return true if the market trades on the day
+	 * @throws IllegalArgumentException
+	 *             if the day is not covered
+	 */
+	public boolean isTradingDay(final int epochDay) {
+		final int index = index(epochDay);
+		return (words[index >>> 5] & 1 << (index & 31)) != 0;
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return the first trading day after the day
+	 * @throws IllegalArgumentException
+	 *             if there is none within the years covered
+	 */
+	public int nextTradingDay(final int epochDay) {
+		index(epochDay);
+		final int index = epochDay + 1 - firstDay;
+		int w = index >>> 5;
+		int bits = w < words.length ? words[w] & -1 << (index & 31) : 0;
+		while (bits == 0) {
+			if (++w >= words.length) {
+				throw new IllegalArgumentException("No trading day after " + epochDay + " up to " + lastYear);
+			}
+			bits = words[w];
+		}
+		return firstDay + (w << 5) + Integer.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return the last trading day before the day
+	 * @throws IllegalArgumentException
+	 *             if there is none within the years covered
+	 */
+	public int previousTradingDay(final int epochDay) {
+		index(epochDay);
+		final int index = epochDay - 1 - firstDay;
+		int w = index >> 5;
+		int bits = w >= 0 ? words[w] & -1 >>> (31 - (index & 31)) : 0;
+		while (bits == 0) {
+			if (--w < 0) {
+				throw new IllegalArgumentException("No trading day before " + epochDay + " from " + firstYear);
+			}
+			bits = words[w];
+		}
+		return firstDay + (w << 5) + 31 - Integer.numberOfLeadingZeros(bits);
+	}
+
+	/**
+	 * Steps a number of trading days, e.g. <code>-5</code> for "5 trading
+	 * days ago"
+	 *
+	 * @param epochDay
+	 *            days since 1970-01-01, need not be a trading day
+	 * @param tradingDays
+	 *            trading days to step forward (or back, if negative)
+	 * @return the n-th trading day after (or before) the day, or the day
+	 *         itself if <code>tradingDays</code> is 0
+	 * @throws IllegalArgumentException
+	 *             if the result lies outside the years covered
+	 */
+	public int addTradingDays(final int epochDay, final int tradingDays) {
+		final int index = index(epochDay);
+		if (tradingDays == 0) {
+			return epochDay;
+		}
+		// trading days before the result
+		final int target = tradingDays > 0 ? rank(index + 1) + tradingDays - 1 : rank(index) + tradingDays;
+		if (target < 0 || target >= ranks[words.length]) {
+			throw new IllegalArgumentException(tradingDays + " trading days from " + epochDay
+					+ " lie outside the years covered");
+		}
+		int low = 0;
+		int high = words.length - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (ranks[mid] <= target) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		int bits = words[low];
+		for (int skip = target - ranks[low]; skip > 0; skip--) {
+			bits &= bits - 1;
+		}
+		return firstDay + (low << 5) + Integer.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * @param from
+	 *            epoch day, inclusive
+	 * @param to
+	 *            epoch day, exclusive
+	 * @return the number of trading days in <code>[from, to)</code>, negative
+	 *         if <code>to</code> comes first
+	 * @throws IllegalArgumentException
+	 *             if a day is not covered (<code>to</code> may be the day
+	 *             after the last covered)
+	 */
+	public int countTradingDays(final int from, final int to) {
+		return rank(end(to)) - rank(index(from));
+	}
+
+	/**
+	 * @param from
+	 *            epoch day, inclusive
+	 * @param to
+	 *            epoch day, exclusive
+	 * @return the number of hours in the trading days of
+	 *         <code>[from, to)</code>, counting 23 or 25 on transition days
+	 * @throws IllegalArgumentException
+	 *             if a day is not covered, or <code>to</code> comes first
+	 */
+	public int countTradingHours(final int from, final int to) {
+		int hours = 24 * countTradingDays(from, to);
+		if (hours < 0) {
+			throw new IllegalArgumentException("Day " + to + " is before day " + from);
+		}
+		int low = 0;
+		int high = transitionDays.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (transitionDays[mid] < from) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		for (int i = low; i < transitionDays.length && transitionDays[i] < to; i++) {
+			if (isTradingDay(transitionDays[i])) {
+				hours += transitionExtraHours[i];
+			}
+		}
+		return hours;
+	}
+
+	/**
+	 * @param epochDay
+	 *            days since 1970-01-01
+	 * @return the day's hour labels (see {@link MarketTime#labelsForHours(int)})
+	 *         if it trades, otherwise none
+	 * @throws IllegalArgumentException
+	 *             if the day is not covered
+	 */
+	public String[] tradingHourLabels(final int epochDay) {
+		return isTradingDay(epochDay) ? MarketTime.labelsForHours(market.hoursInDay(epochDay)) : new String[0];
+	}
+
+	/**
+	 * @return trading days before the day at an index, which may be
+	 *         <code>dayCount</code>
+	 */
+	private int rank(final int index) {
+		final int w = index >>> 5;
+		final int bit = index & 31;
+		return bit == 0 ? ranks[w] : ranks[w] + Integer.bitCount(words[w] & (1 << bit) - 1);
+	}
+
+	private int index(final int epochDay) {
+		final int index = epochDay - firstDay;
+		if (index < 0 || index >= dayCount) {
+			throw new IllegalArgumentException("Day " + epochDay + " is outside " + firstYear + "-" + lastYear);
+		}
+		return index;
+	}
+
+	private int end(final int epochDay) {
+		return epochDay == firstDay + dayCount ? dayCount : index(epochDay);
+	}
+}
@@ -2,7 +2,11 @@ package me.fns.gwt.datehandling.client;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
+import me.fns.gwt.datehandling.client.grid.LabelCellTestGwt;
 import me.fns.gwt.datehandling.client.util.CSTimeUtilTestGwt;
+import me.fns.gwt.datehandling.client.util.MarketCalendarDataTestGwt;
+import me.fns.gwt.datehandling.client.util.MarketTimeTestGwt;
+import me.fns.gwt.datehandling.client.util.SeriesPayloadDataTestGwt;
 
 import com.google.gwt.junit.tools.GWTTestSuite;
 
@@ -25,6 +29,10 @@ public class GwtExampleTestSuite extends TestCase {
 		// group related GWT component tests by name
 		final GWTTestSuite suite = new GWTTestSuite("GWT-based tests for date handling example.");
 		suite.addTestSuite(CSTimeUtilTestGwt.class);
+		suite.addTestSuite(MarketTimeTestGwt.class);
+		suite.addTestSuite(SeriesPayloadDataTestGwt.class);
+		suite.addTestSuite(LabelCellTestGwt.class);
+		suite.addTestSuite(MarketCalendarDataTestGwt.class);
 		return suite;
 	}
 }
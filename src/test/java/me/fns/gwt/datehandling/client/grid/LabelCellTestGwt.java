@@ -0,0 +1,88 @@
+package me.fns.gwt.datehandling.client.grid;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.gwt.cell.client.Cell.Context;
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+
+/**
+ * <p>
+ * Client-side tests for {@link LabelCell}: labels render from prebuilt
+ * HTML, the repeated and skipped hours styled, anything else escaped.
+ * </p>
+ *
+ */
+public class LabelCellTestGwt extends GWTTestCase {
+
+	private static final String MODULE_NAME = "me.fns.gwt.datehandling.Example";
+
+	private static final Context CONTEXT = new Context(0, 0, null);
+
+	/**
+	 * Must refer to a valid module that sources this class.
+	 */
+	@Override
+	public String getModuleName() {
+		return MODULE_NAME;
+	}
+
+	@Test
+	public void testHours() {
+		final LabelCell cell = LabelCell.hours();
+		Assert.assertEquals("01", render(cell, "01"));
+		Assert.assertEquals("24", render(cell, "24"));
+		Assert.assertEquals("<span class=\"extraHour\">02*</span>", render(cell, "02*"));
+		Assert.assertEquals("", render(cell, null));
+		Assert.assertEquals("&lt;b&gt;", render(cell, "<b>"));
+		// the same HTML every time
+		final SafeHtmlBuilder first = new SafeHtmlBuilder();
+		final SafeHtmlBuilder second = new SafeHtmlBuilder();
+		cell.render(CONTEXT, "02*", first);
+		cell.render(CONTEXT, "02*", second);
+		Assert.assertEquals(first.toSafeHtml(), second.toSafeHtml());
+	}
+
+	@Test
+	public void testSkipped() {
+		// a 25 row layout of a 23 hour day: rows 1 and 2 (02, 02*) are skipped
+		final LabelCell cell = new LabelCell("01", "02", "02*", "03") {
+			@Override
+			protected boolean isSkipped(final Context context, final String value) {
+				return context.getIndex() == 1 || context.getIndex() == 2;
+			}
+		};
+		Assert.assertEquals("01", render(cell, new Context(0, 0, null), "01"));
+		Assert.assertEquals("<span class=\"skippedHour\">02</span>", render(cell, new Context(1, 0, null), "02"));
+		Assert.assertEquals("<span class=\"skippedHour\">02*</span>", render(cell, new Context(2, 0, null), "02*"));
+		Assert.assertEquals("03", render(cell, new Context(3, 0, null), "03"));
+	}
+
+	@Test
+	public void testIntervals() {
+		final LabelCell minutes = LabelCell.minutes(5);
+		Assert.assertEquals("00", render(minutes, "00"));
+		Assert.assertEquals("55", render(minutes, "55"));
+		final LabelCell intervals = LabelCell.intervals(15);
+		Assert.assertEquals("01:45", render(intervals, "01:45"));
+		Assert.assertEquals("<span class=\"extraHour\">02*:15</span>", render(intervals, "02*:15"));
+		try {
+			LabelCell.minutes(7);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static String render(final LabelCell cell, final String value) {
+		return render(cell, CONTEXT, value);
+	}
+
+	private static String render(final LabelCell cell, final Context context, final String value) {
+		final SafeHtmlBuilder sb = new SafeHtmlBuilder();
+		cell.render(context, value, sb);
+		return sb.toSafeHtml().asString();
+	}
+}
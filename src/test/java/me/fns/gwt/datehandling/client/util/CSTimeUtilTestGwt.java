@@ -4,6 +4,8 @@ import java.util.Date;
 import java.util.Set;
 
 import junit.framework.Assert;
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfile;
 
 import org.junit.Test;
 
@@ -453,6 +455,57 @@ public class CSTimeUtilTestGwt extends GWTTestCase {
 		Assert.assertTrue(actual.isEmpty());
 	}
 
+	@Test
+	public void testMillisOverloads() {
+		final DateTimeFormat isoFmt = DateTimeFormat.getFormat(ISO_8601_FORMAT);
+		Date date;
+
+		// daylight savings to standard
+		for (int i = 0; i < 25; i++) {
+			date = isoFmt.parse(DST_TO_STD_TIMES[i]);
+			Assert.assertEquals(longDayLabels[i], CSTimeUtil.hourLabel(date.getTime()));
+			Assert.assertEquals(CSTimeUtil.isExtraHour(date), CSTimeUtil.isExtraHour(date.getTime()));
+			Assert.assertEquals(date.getTime(), CSTimeUtil.isoNoMillisToMillis(DST_TO_STD_TIMES_NO_MILLIS[i]));
+		}
+
+		// standard to daylight savings
+		date = isoFmt.parse("2013-03-10T00:00:00.000GMT-06:00");
+		Assert.assertEquals(23, CSTimeUtil.hoursInDay(date.getTime()));
+		Assert.assertEquals(23, CSTimeUtil.labelsForDay(date.getTime()).length);
+		Assert.assertEquals("03", CSTimeUtil.labelsForDay(date.getTime())[1]);
+		System.out.println("Completed... epoch millis tests!");
+	}
+
+	@Test
+	public void testShiftHours() {
+		final DateTimeFormat isoFmt = DateTimeFormat.getFormat(ISO_8601_FORMAT);
+
+		// November 3, 2012 10:00PM, offset +4 hours (across the extra hour)
+		long src = isoFmt.parse("2012-11-03T22:00:00.000GMT-05:00").getTime();
+		long expected = isoFmt.parse("2012-11-04T01:00:00.000GMT-06:00").getTime();
+		Assert.assertEquals(expected, CSTimeUtil.shiftHours(src, 4));
+
+		// minutes are truncated, shifts beyond a day are allowed
+		src = isoFmt.parse("2012-01-31T22:35:00.000GMT-06:00").getTime();
+		expected = isoFmt.parse("2012-02-03T23:00:00.000GMT-06:00").getTime();
+		Assert.assertEquals(expected, CSTimeUtil.shiftHours(src, 73));
+	}
+
+	@Test
+	public void testShiftDays() {
+		final DateTimeFormat isoFmt = DateTimeFormat.getFormat(ISO_8601_FORMAT);
+
+		// March 9, 2013 3:00PM, offset +40 days
+		long src = isoFmt.parse("2013-03-09T15:00:00.000GMT-06:00").getTime();
+		long expected = isoFmt.parse("2013-04-18T00:00:00.000GMT-05:00").getTime();
+		Assert.assertEquals(expected, CSTimeUtil.shiftDays(src, 40));
+
+		// November 4, 2012 midnight, offset -1 day
+		src = isoFmt.parse("2012-11-04T00:00:00.000GMT-05:00").getTime();
+		expected = isoFmt.parse("2012-11-03T00:00:00.000GMT-05:00").getTime();
+		Assert.assertEquals(expected, CSTimeUtil.shiftDays(src, -1));
+	}
+
 	@Test
 	public void testCalculateIsoNoMillisHour() {
 
@@ -534,5 +587,62 @@ public class CSTimeUtilTestGwt extends GWTTestCase {
 		Assert.assertEquals(expected, actual);
 	}
 
+	@Test
+	public void testHoursBetween() {
+		// midnight to midnight of a long, a short and a normal day
+		Assert.assertEquals(25, CSTimeUtil.hoursBetween("2012-11-04T00:00:00-05:00", "2012-11-05T00:00:00-06:00"));
+		Assert.assertEquals(23, CSTimeUtil.hoursBetween("2013-03-10T00:00:00-06:00", "2013-03-11T00:00:00-05:00"));
+		Assert.assertEquals(-24, CSTimeUtil.hoursBetween("2012-12-26T00:00:00-06:00", "2012-12-25T00:00:00-06:00"));
+		// across the whole of 2013
+		Assert.assertEquals(365 * 24, CSTimeUtil.hoursBetween("2013-01-01T00:00:00-06:00", "2014-01-01T00:00:00-06:00"));
+		// the repeated 01:00, in 5-minute intervals
+		Assert.assertEquals(12, CSTimeUtil.intervalsBetween(DST_TO_STD_TIMES_NO_MILLIS[0],
+				DST_TO_STD_TIMES_NO_MILLIS[1], 5));
+		Assert.assertEquals(3, CSTimeUtil.intervalsBetween("2012-11-04T01:55:00-05:00", "2012-11-04T01:10:00-06:00",
+				5));
+		// off the boundaries: boundaries crossed, not time elapsed
+		Assert.assertEquals(1, CSTimeUtil.hoursBetween("2013-07-01T10:55:00-05:00", "2013-07-01T11:05:00-05:00"));
+		Assert.assertEquals(0, CSTimeUtil.hoursBetween("2013-07-01T11:05:00-05:00", "2013-07-01T11:55:00-05:00"));
+		Assert.assertEquals(-1, CSTimeUtil.hoursBetween("2013-07-01T11:05:00-05:00", "2013-07-01T10:55:00-05:00"));
+		Assert.assertEquals(1, CSTimeUtil.intervalsBetween("2013-07-01T10:04:59-05:00", "2013-07-01T10:05:01-05:00",
+				5));
+		Assert.assertEquals(2, CSTimeUtil.hoursBetween("2012-11-04T00:30:00-05:00", "2012-11-04T01:30:00-06:00"));
+	}
+
+	@Test
+	public void testLabelSlotsBetween() {
+		Assert.assertEquals(24, CSTimeUtil.labelSlotsBetween("2012-11-04T00:00:00-05:00", "01",
+				"2012-11-04T00:00:00-05:00", "24"));
+		Assert.assertEquals(1, CSTimeUtil.labelSlotsBetween("2012-11-04T00:00:00-05:00", "02",
+				"2012-11-04T00:00:00-05:00", "02*"));
+		Assert.assertEquals(1, CSTimeUtil.labelSlotsBetween("2013-03-10T00:00:00-06:00", "01",
+				"2013-03-10T00:00:00-06:00", "03"));
+		// from 24 of the day before the long day to 01 of the day after the short day
+		Assert.assertEquals(25 + 24 * 125 + 23 + 1, CSTimeUtil.labelSlotsBetween("2012-11-03T00:00:00-05:00", "24",
+				"2013-03-11T00:00:00-05:00", "01"));
+		try {
+			CSTimeUtil.labelSlotsBetween("2013-03-10T00:00:00-06:00", "02", "2013-03-10T00:00:00-06:00", "03");
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testMonthRange() {
+		final int first = CivilDate.toEpochDay(2013, 3, 1);
+		final DayProfile[] march = CSTimeUtil.dayProfilesBetween(first, first + 31);
+		Assert.assertEquals(31, march.length);
+		int hours = 0;
+		for (int i = 0; i < march.length; i++) {
+			Assert.assertEquals(CSTimeUtil.dayProfile(first + i), march[i]);
+			hours += march[i].getHours();
+		}
+		Assert.assertEquals(23, march[9].getHours());
+		Assert.assertEquals(743, hours);
+		Assert.assertEquals(743, CSTimeUtil.hoursInMonth(2013, 3));
+		Assert.assertEquals(721, CSTimeUtil.hoursInMonth(2013, 11));
+		Assert.assertEquals(743, CSTimeUtil.totalHours(first, first + 31));
+	}
 
 }
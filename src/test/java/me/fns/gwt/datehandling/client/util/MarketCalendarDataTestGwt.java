@@ -0,0 +1,95 @@
+package me.fns.gwt.datehandling.client.util;
+
+import junit.framework.Assert;
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfileCache;
+import me.fns.gwt.datehandling.shared.DayProfileCodec;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import org.junit.Test;
+
+import com.google.gwt.core.client.JsonUtils;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * <p>
+ * Client-side tests for {@link MarketCalendarData}: years inlined into the
+ * host page are only preloaded when the calendar agrees with the client's
+ * zone.
+ * </p>
+ *
+ */
+public class MarketCalendarDataTestGwt extends GWTTestCase {
+
+	private static final String MODULE_NAME = "me.fns.gwt.datehandling.Example";
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	/**
+	 * Must refer to a valid module that sources this class.
+	 */
+	@Override
+	public String getModuleName() {
+		return MODULE_NAME;
+	}
+
+	@Test
+	public void testPreload() {
+		final MarketZone zone = MARKET.getZone();
+		final MarketCalendarData calendar = calendar(zone.getDataVersion(), transitions(zone, 2012), 2012);
+		Assert.assertTrue(calendar.transitionsAgree(zone));
+		Assert.assertEquals(2, calendar.getTransitionCount());
+		final DayProfileCache cache = new DayProfileCache(MARKET, null, 2);
+		Assert.assertEquals(1, calendar.preload(cache, zone));
+		Assert.assertEquals(25, cache.hoursInDay(CivilDate.toEpochDay(2012, 11, 4)));
+	}
+
+	@Test
+	public void testRejectsOtherZoneData() {
+		final MarketZone zone = MARKET.getZone();
+		final DayProfileCache cache = new DayProfileCache(MARKET, null, 2);
+		Assert.assertEquals(0, calendar("other", transitions(zone, 2012), 2012).preload(cache, zone));
+
+		// a transition an hour out
+		final int first = zone.transitionIndex(MARKET.startOfDay(CivilDate.toEpochDay(2012, 1, 1)));
+		final String moved = "[" + (zone.getTransition(first) + MarketTime.MILLIS_PER_HOUR) + ","
+				+ zone.getTransition(first + 1) + "],\"offsets\":[" + zone.getOffsetAfter(first) + ","
+				+ zone.getOffsetAfter(first + 1) + "]";
+		final MarketCalendarData calendar = calendar(zone.getDataVersion(), moved, 2012);
+		Assert.assertFalse(calendar.transitionsAgree(zone));
+		Assert.assertEquals(0, calendar.preload(cache, zone));
+
+		// a transition skipped
+		final String gap = "[" + zone.getTransition(first - 1) + "," + zone.getTransition(first + 1) + "],\"offsets\":["
+				+ zone.getOffsetAfter(first - 1) + "," + zone.getOffsetAfter(first + 1) + "]";
+		Assert.assertFalse(calendar(zone.getDataVersion(), gap, 2012).transitionsAgree(zone));
+	}
+
+	/**
+	 * @return the transitions and offsets of a year, as inlined by the server
+	 */
+	private static String transitions(final MarketZone zone, final int year) {
+		final long from = MARKET.startOfDay(CivilDate.toEpochDay(year, 1, 1));
+		final long to = MARKET.startOfDay(CivilDate.toEpochDay(year + 1, 1, 1));
+		final StringBuilder transitions = new StringBuilder("[");
+		final StringBuilder offsets = new StringBuilder("[");
+		for (int i = zone.transitionIndex(from - 1); zone.getTransition(i) < to; i++) {
+			if (offsets.length() > 1) {
+				transitions.append(',');
+				offsets.append(',');
+			}
+			transitions.append(zone.getTransition(i));
+			offsets.append(zone.getOffsetAfter(i));
+		}
+		return transitions.append("],\"offsets\":").append(offsets).append(']').toString();
+	}
+
+	private static MarketCalendarData calendar(final String dataVersion, final String transitions, final int year) {
+		final String encoded = DayProfileCodec.encode(MARKET.dayProfilesBetween(CivilDate.toEpochDay(year, 1, 1),
+				CivilDate.toEpochDay(year + 1, 1, 1)));
+		return JsonUtils.safeEval(
+				"{\"zone\":\"" + MARKET.getZone().getId() + "\",\"dataVersion\":\"" + dataVersion + "\",\"years\":[\""
+						+ encoded + "\"],\"transitions\":" + transitions + "}").cast();
+	}
+}
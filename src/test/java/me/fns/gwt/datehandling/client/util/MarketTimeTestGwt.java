@@ -0,0 +1,103 @@
+package me.fns.gwt.datehandling.client.util;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.Assert;
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import org.junit.Test;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+
+/**
+ * <p>
+ * Client-side differential tests: CSTimeUtil must agree with the shared
+ * {@link MarketTime} rules, which are in turn verified against the JVM's zone
+ * data by MarketTimeDifferentialTest.
+ * </p>
+ * <p>
+ * CSTimeUtil is too slow to walk whole years in HtmlUnit, so each transition
+ * day of 2012 and 2013 and the day before it are compared hour by hour, and the
+ * first day of each month is compared by length.
+ * </p>
+ *
+ */
+public class MarketTimeTestGwt extends GWTTestCase {
+
+	private static final String MODULE_NAME = "me.fns.gwt.datehandling.Example";
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	/**
+	 * Must refer to a valid module that sources this class.
+	 */
+	@Override
+	public String getModuleName() {
+		return MODULE_NAME;
+	}
+
+	@Test
+	public void testHourLabelsAgree() {
+		for (final int day : transitionDays()) {
+			final long end = MARKET.startOfDay(day + 1);
+			for (long instant = MARKET.startOfDay(day); instant < end; instant += MarketTime.MILLIS_PER_HOUR) {
+				final String expected = CSTimeUtil.dateToHourLabel(new Date(instant));
+				Assert.assertEquals(MARKET.toIsoNoMillis(instant), expected, MARKET.hourLabel(instant));
+			}
+		}
+		System.out.println("Completed... hour label tests!");
+	}
+
+	@Test
+	public void testHoursInDayAgree() {
+		for (final int day : sampleDays()) {
+			final long midnight = MARKET.startOfDay(day);
+			final int expected = CSTimeUtil.hoursInDay(new Date(midnight));
+			Assert.assertEquals(MARKET.toIsoNoMillis(midnight), expected, MARKET.hoursInDay(day));
+		}
+		System.out.println("Completed... hours in day tests!");
+	}
+
+	@Test
+	public void testIsoNoMillisAgree() {
+		for (final int day : transitionDays()) {
+			final long end = MARKET.startOfDay(day + 1);
+			for (long instant = MARKET.startOfDay(day); instant < end; instant += MarketTime.MILLIS_PER_HOUR) {
+				final String iso = MARKET.toIsoNoMillis(instant);
+				Assert.assertEquals(iso, CSTimeUtil.isoNoMillisToDate(iso).getTime(), MarketTime.parseIsoNoMillis(iso));
+			}
+		}
+		System.out.println("Completed... ISO no-millis tests!");
+	}
+
+	private static List<Integer> sampleDays() {
+		final List<Integer> result = transitionDays();
+		for (int year = 2012; year <= 2013; year++) {
+			for (int month = 1; month <= 12; month++) {
+				result.add(CivilDate.toEpochDay(year, month, 1));
+			}
+		}
+		return result;
+	}
+
+	private static List<Integer> transitionDays() {
+		final List<Integer> result = new ArrayList<Integer>();
+		final MarketZone zone = MARKET.getZone();
+		final int first = CivilDate.toEpochDay(2012, 1, 1);
+		final int last = CivilDate.toEpochDay(2013, 12, 31);
+		for (int i = 0; i < zone.getTransitionCount(); i++) {
+			final int day = MARKET.epochDay(zone.getTransition(i));
+			if (day >= first && day <= last) {
+				result.add(day - 1);
+				result.add(day);
+			}
+		}
+		return result;
+	}
+
+}
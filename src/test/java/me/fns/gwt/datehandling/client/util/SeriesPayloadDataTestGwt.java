@@ -0,0 +1,67 @@
+package me.fns.gwt.datehandling.client.util;
+
+import junit.framework.Assert;
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.MarketDaySeries;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.SeriesPayloadLoader;
+
+import org.junit.Test;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+
+/**
+ * <p>
+ * Client-side tests for {@link SeriesPayloadData}, the overlay of series
+ * payloads evaluated by the browser.
+ * </p>
+ *
+ */
+public class SeriesPayloadDataTestGwt extends GWTTestCase {
+
+	private static final String MODULE_NAME = "me.fns.gwt.datehandling.Example";
+
+	/**
+	 * The repeated 01:00 of 2012-11-04, then 02:00, with one value missing
+	 */
+	private static final String PAYLOAD = "{\"intervalsPerHour\":1,\"timestamps\":[\"2012-11-04T01:00:00-05:00\","
+			+ "\"2012-11-04T01:00:00-06:00\",\"2012-11-04T02:00:00-06:00\"],\"values\":[1.5,null,3]}";
+
+	/**
+	 * Must refer to a valid module that sources this class.
+	 */
+	@Override
+	public String getModuleName() {
+		return MODULE_NAME;
+	}
+
+	@Test
+	public void testReadInPlace() {
+		final SeriesPayloadData payload = SeriesPayloadData.parse(PAYLOAD);
+		Assert.assertEquals(1, payload.getIntervalsPerHour());
+		Assert.assertEquals(3, payload.size());
+		Assert.assertEquals("2012-11-04T01:00:00-06:00", payload.getTimestamp(1));
+		Assert.assertEquals(1.5, payload.getValue(0), 0);
+		Assert.assertTrue(Double.isNaN(payload.getValue(1)));
+
+		final MarketDaySeries series = SeriesPayloadLoader.load(MarketTime.CENTRAL, payload);
+		final int day = CivilDate.toEpochDay(2012, 11, 4);
+		Assert.assertEquals(day, series.getFirstDay());
+		Assert.assertEquals(1.5, series.get(day, "01"), 0);
+		Assert.assertTrue(Double.isNaN(series.get(day, "02")));
+		Assert.assertEquals(3, series.get(day, "02*"), 0);
+	}
+
+	@Test
+	public void testRejectsMalformed() {
+		for (final String json : new String[] { "not json", "[1,2]", "{\"timestamps\":[\"a\"],\"values\":[]}" }) {
+			try {
+				SeriesPayloadData.parse(json);
+				Assert.fail(json);
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link CalendarFile}: every day and offset read from the mapped
+ * file must match what {@link MarketTime} computes.
+ * </p>
+ *
+ */
+public class CalendarFileTest {
+
+	private static final MarketTime CENTRAL = MarketTime.CENTRAL;
+
+	/**
+	 * Fixed offset, no transitions at all
+	 */
+	private static final MarketTime TOKYO = new MarketTime(new MarketZone("Asia/Tokyo", 540, new long[0],
+			new int[0]));
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("market-calendar", ".bin");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void testMatchesMarketTime() throws IOException {
+		CalendarFile.write(file, new MarketTime[] { CENTRAL, TOKYO }, 1970, 2100);
+		final CalendarFile calendars = CalendarFile.open(file);
+		Assert.assertArrayEquals(new Object[] { "America/Chicago", "Asia/Tokyo" }, calendars.getMarkets().keySet()
+				.toArray());
+		Assert.assertTrue(String.valueOf(file.length()), file.length() < 2 * 200 * 1024);
+
+		for (final MarketTime market : new MarketTime[] { CENTRAL, TOKYO }) {
+			final MarketZone zone = market.getZone();
+			final CalendarFile.Market calendar = calendars.getMarket(zone.getId());
+			Assert.assertEquals(zone.getDataVersion(), calendar.getDataVersion());
+			Assert.assertEquals(zone.getDataVersion(), calendar.toZone().getDataVersion());
+			Assert.assertEquals(CivilDate.toEpochDay(1970, 1, 1), calendar.getFirstDay());
+			for (int day = calendar.getFirstDay(); day < calendar.getFirstDay() + calendar.getDayCount(); day++) {
+				Assert.assertEquals(market.dayProfile(day), calendar.dayProfile(day));
+				Assert.assertEquals(market.startOfDay(day), calendar.startOfDay(day));
+				Assert.assertEquals(market.hoursInDay(day), calendar.hoursInDay(day));
+			}
+			for (int i = 0; i < zone.getTransitionCount(); i++) {
+				final long transition = zone.getTransition(i);
+				Assert.assertEquals(zone.getOffset(transition - 1), calendar.getOffset(transition - 1));
+				Assert.assertEquals(zone.getOffset(transition), calendar.getOffset(transition));
+			}
+			Assert.assertEquals(zone.getStandardOffset(), calendar.getOffset(Long.MIN_VALUE));
+			Assert.assertEquals(zone.getTransitionCount(), calendar.getTransitionCount());
+			for (int i = 0; i < zone.getTransitionCount(); i++) {
+				Assert.assertEquals(zone.getTransition(i), calendar.getTransition(i));
+				Assert.assertEquals(zone.getOffsetAfter(i), calendar.getOffsetAfter(i));
+				Assert.assertEquals(i + 1, calendar.transitionIndex(zone.getTransition(i)));
+			}
+		}
+	}
+
+	@Test
+	public void testOutOfRange() throws IOException {
+		CalendarFile.write(file, new MarketTime[] { CENTRAL }, 2013, 2013);
+		final CalendarFile.Market calendar = CalendarFile.open(file).getMarket("America/Chicago");
+		Assert.assertEquals(365, calendar.getDayCount());
+		Assert.assertEquals(24, calendar.hoursInDay(CivilDate.toEpochDay(2013, 12, 31)));
+		try {
+			calendar.dayProfile(CivilDate.toEpochDay(2014, 1, 1));
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			CalendarFile.open(file).getMarket("Europe/London");
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testFailedWriteLeavesNoFile() throws IOException {
+		final MarketTime longId = new MarketTime(new MarketZone("America/Argentina/ComodRivadavia/Too/Long", -180,
+				new long[0], new int[0]));
+		try {
+			CalendarFile.write(file, new MarketTime[] { CENTRAL, longId }, 2013, 2013);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertFalse(new File(file.getPath() + ".tmp").exists());
+		Assert.assertEquals(0, file.length());
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsOtherFiles() throws IOException {
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write("<html></html>\n".getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+		CalendarFile.open(file);
+	}
+}
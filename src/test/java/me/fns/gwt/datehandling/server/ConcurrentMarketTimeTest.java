@@ -0,0 +1,150 @@
+package me.fns.gwt.datehandling.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfile;
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Concurrency stress tests for {@link ConcurrentMarketTime}.
+ * </p>
+ * <p>
+ * Many threads hammer a deliberately tiny profile cache so that entries are
+ * constantly replaced under contention, and every answer is checked against
+ * an uncached computation. A second run labels the same amount of work per
+ * thread at 1, 2, 4... up to twice the number of cores and reports throughput
+ * and scaling efficiency; with no shared mutable state beyond single-word
+ * cache writes, throughput should grow roughly linearly up to the core count.
+ * </p>
+ *
+ */
+public class ConcurrentMarketTimeTest {
+
+	private static final int FIRST_DAY = CivilDate.toEpochDay(1970, 1, 1);
+
+	private static final int DAYS = CivilDate.toEpochDay(2100, 12, 31) - FIRST_DAY + 1;
+
+	private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+	@Test
+	public void testCachedProfilesMatch() {
+		final ConcurrentMarketTime subject = new ConcurrentMarketTime(MarketTime.CENTRAL, 16);
+		final MarketTime market = subject.getMarket();
+		final long mismatches = run(Math.max(4, CORES * 2), new Work() {
+			@Override
+			public long perform(final int thread) {
+				long wrong = 0;
+				// each thread strides differently so threads collide on slots
+				for (int i = 0; i < 200000; i++) {
+					final int day = FIRST_DAY + (int) ((i * (long) (2 * thread + 1) * 7919) % DAYS);
+					final DayProfile profile = subject.dayProfile(day);
+					if (!profile.equals(market.dayProfile(day))) {
+						wrong++;
+					}
+				}
+				return wrong;
+			}
+		});
+		Assert.assertEquals(0, mismatches);
+	}
+
+	@Test
+	public void testHourOfDay() {
+		final ConcurrentMarketTime subject = ConcurrentMarketTime.CENTRAL;
+		final int day = CivilDate.toEpochDay(2012, 11, 4);
+		Assert.assertEquals(MarketTime.CENTRAL.hourOfDay(day, "02*"), subject.hourOfDay(day, "02*"));
+		Assert.assertEquals(25, subject.hoursInDay(day));
+		Assert.assertEquals("02*", subject.hourLabel(subject.hourOfDay(day, "02*")));
+		try {
+			subject.hourOfDay(day + 1, "02*");
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testScaling() {
+		final int operations = 500000;
+		final ConcurrentMarketTime subject = ConcurrentMarketTime.CENTRAL;
+		final Work work = new Work() {
+			@Override
+			public long perform(final int thread) {
+				long sink = 0;
+				long instant = subject.startOfDay(FIRST_DAY + thread * 365);
+				for (int i = 0; i < operations; i++) {
+					final DayProfile profile = subject.labelProfile(instant);
+					sink += profile.getHours() + subject.hourLabel(instant).length();
+					instant += 15 * MarketTime.MILLIS_PER_MINUTE;
+				}
+				return sink;
+			}
+		};
+		// warm up
+		for (int i = 0; i < 3; i++) {
+			run(1, work);
+		}
+
+		double single = 0;
+		for (int threads = 1; threads <= CORES * 2; threads *= 2) {
+			final long started = System.nanoTime();
+			final long sink = run(threads, work);
+			final long elapsed = System.nanoTime() - started;
+			Assert.assertTrue(sink > 0);
+
+			final double opsPerSecond = threads * (double) operations * 1e9 / elapsed;
+			if (threads == 1) {
+				single = opsPerSecond;
+			}
+			System.out.println(String.format("%d thread(s) on %d core(s): %,.0f ops/s, %.2fx, efficiency %.0f%%",
+					threads, CORES, opsPerSecond, opsPerSecond / single,
+					100 * opsPerSecond / single / Math.min(threads, CORES)));
+		}
+	}
+
+	private interface Work {
+		long perform(int thread);
+	}
+
+	/**
+	 * Starts all threads at once and sums their results
+	 */
+	private static long run(final int threads, final Work work) {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<Long>> results = new ArrayList<Future<Long>>();
+			for (int t = 0; t < threads; t++) {
+				final int thread = t;
+				results.add(executor.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws InterruptedException {
+						start.await();
+						return work.perform(thread);
+					}
+				}));
+			}
+			start.countDown();
+			long total = 0;
+			for (final Future<Long> result : results) {
+				total += result.get();
+			}
+			return total;
+		} catch (final Exception e) {
+			throw new IllegalStateException(e);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package me.fns.gwt.datehandling.server;
+
+import javax.servlet.ServletException;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.DayProfileCache;
+import me.fns.gwt.datehandling.shared.DayProfileCodec;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for the market calendar inlined into the host page.
+ * </p>
+ *
+ */
+public class HostPageServletTest {
+
+	private static final ConcurrentMarketTime MARKET = ConcurrentMarketTime.CENTRAL;
+
+	@Test
+	public void testCalendarJson() {
+		final MarketZone zone = MARKET.getMarket().getZone();
+		final String json = HostPageServlet.calendarJson(MARKET, CivilDate.toEpochDay(2013, 3, 1), 6);
+		Assert.assertTrue(json, json.startsWith("{\"zone\":\"America/Chicago\",\"dataVersion\":\""
+				+ zone.getDataVersion() + "\",\"years\":[\""));
+
+		// 2012-09 through 2013-09
+		final String[] years = section(json, "years").split(",");
+		Assert.assertEquals(2, years.length);
+		final DayProfileCache cache = new DayProfileCache(MARKET.getMarket(), null, 2);
+		for (int i = 0; i < years.length; i++) {
+			Assert.assertTrue(cache.preload(DayProfileCodec.decode(years[i].substring(1, years[i].length() - 1))));
+		}
+		for (int day = CivilDate.toEpochDay(2012, 1, 1); day < CivilDate.toEpochDay(2014, 1, 1); day++) {
+			Assert.assertEquals(MARKET.dayProfile(day), cache.dayProfile(day));
+		}
+
+		final String[] transitions = section(json, "transitions").split(",");
+		final String[] offsets = section(json, "offsets").split(",");
+		Assert.assertEquals(4, transitions.length);
+		Assert.assertEquals(4, offsets.length);
+		final int first = zone.transitionIndex(MARKET.startOfDay(CivilDate.toEpochDay(2012, 1, 1)));
+		for (int i = 0; i < transitions.length; i++) {
+			Assert.assertEquals(zone.getTransition(first + i), Long.parseLong(transitions[i]));
+			Assert.assertEquals(zone.getOffsetAfter(first + i), Integer.parseInt(offsets[i]));
+		}
+
+		// the window may span three years
+		final String wide = HostPageServlet.calendarJson(MARKET, CivilDate.toEpochDay(2013, 6, 15), 12);
+		Assert.assertEquals(3, section(wide, "years").split(",").length);
+		Assert.assertEquals(6, section(wide, "transitions").split(",").length);
+	}
+
+	@Test
+	public void testCalendarJsonEscaped() {
+		final MarketZone zone = new MarketZone("</script>\"", -360, new long[0], new int[0]);
+		final ConcurrentMarketTime market = new ConcurrentMarketTime(new MarketTime(zone), 16);
+		final String json = HostPageServlet.calendarJson(market, CivilDate.toEpochDay(2013, 6, 15), 0);
+		Assert.assertTrue(json, json.startsWith("{\"zone\":\"\\u003c/script\\u003e\\\"\""));
+		Assert.assertTrue(json, json.endsWith("\"],\"transitions\":[],\"offsets\":[]}"));
+	}
+
+	@Test
+	public void testMonthsParameter() throws ServletException {
+		Assert.assertEquals(6, HostPageServlet.parseMonths(null));
+		Assert.assertEquals(0, HostPageServlet.parseMonths(" 0 "));
+		Assert.assertEquals(12, HostPageServlet.parseMonths("12"));
+		for (final String months : new String[] { "-1", "six", "" }) {
+			try {
+				HostPageServlet.parseMonths(months);
+				Assert.fail(months);
+			} catch (final ServletException e) {
+				Assert.assertTrue(e.getMessage(), e.getMessage().contains("months"));
+			}
+		}
+	}
+
+	@Test
+	public void testRender() {
+		final String page = "<head>\n" + HostPageServlet.MARKER + "\n<script src=\"x.nocache.js\"></script>";
+		Assert.assertEquals("<head>\n<script type=\"text/javascript\" language=\"javascript\">"
+				+ "window.marketCalendar = {};</script>\n<script src=\"x.nocache.js\"></script>",
+				HostPageServlet.render(page, "{}"));
+		Assert.assertEquals("<head></head>", HostPageServlet.render("<head></head>", "{}"));
+	}
+
+	private static String section(final String json, final String name) {
+		final int start = json.indexOf("\"" + name + "\":[") + name.length() + 4;
+		return json.substring(start, json.indexOf(']', start));
+	}
+}
@@ -0,0 +1,148 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.SequentialLabeller;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Server-side tests for bulk hour labelling.
+ * </p>
+ *
+ */
+public class HourLabelServletTest {
+
+	@Test
+	public void testConvertTransitionDay() throws IOException {
+		final String in = "2012-11-04T00:00:00-05:00\n2012-11-04T01:00:00-05:00\r\n2012-11-04T01:00:00GMT-06:00\n"
+				+ "\n2012-11-04T02:00:00-06:00\n2012-11-05T00:00:00-06:00\n";
+		final StringWriter out = new StringWriter();
+		final long rows = HourLabelServlet.convert(new BufferedReader(new StringReader(in)), out,
+				ConcurrentMarketTime.CENTRAL);
+
+		Assert.assertEquals(5, rows);
+		Assert.assertEquals("2012-11-04T00:00:00-05:00,24,2012-11-03,24\n"
+				+ "2012-11-04T01:00:00-05:00,01,2012-11-04,25\n" + "2012-11-04T01:00:00GMT-06:00,02,2012-11-04,25\n"
+				+ "2012-11-04T02:00:00-06:00,02*,2012-11-04,25\n" + "2012-11-05T00:00:00-06:00,24,2012-11-04,25\n",
+				out.toString());
+	}
+
+	@Test
+	public void testConvertBadData() throws IOException {
+		final StringWriter out = new StringWriter();
+		HourLabelServlet.convert(new BufferedReader(new StringReader("2013-03-10T03:00:00-05:00\nnot a date\n")), out,
+				ConcurrentMarketTime.CENTRAL);
+		Assert.assertEquals("2013-03-10T03:00:00-05:00,03,2013-03-10,23\nnot a date,,,-1\n", out.toString());
+	}
+
+	@Test
+	public void testConvertQuotesBadData() throws IOException {
+		final StringWriter out = new StringWriter();
+		HourLabelServlet.convert(new BufferedReader(new StringReader("a,b\n  say \"when\"\t\n")), out,
+				ConcurrentMarketTime.CENTRAL);
+		Assert.assertEquals("\"a,b\",,,-1\n\"say \"\"when\"\"\",,,-1\n", out.toString());
+	}
+
+	@Test
+	public void testLabelsFromSharedProfiles() {
+		final ConcurrentMarketTime market = new ConcurrentMarketTime(MarketTime.CENTRAL, 16);
+		final SequentialLabeller labeller = new SequentialLabeller(market);
+		Assert.assertEquals("02*", labeller.isoHourLabel("2012-11-04T02:00:00-06:00"));
+		Assert.assertSame(market.dayProfile(CivilDate.toEpochDay(2012, 11, 4)), labeller.getProfile());
+		Assert.assertEquals("24", labeller.isoHourLabel("2012-11-05T00:00:00-06:00"));
+		Assert.assertEquals("01", labeller.isoHourLabel("2012-11-05T01:00:00-06:00"));
+		Assert.assertSame(market.dayProfile(CivilDate.toEpochDay(2012, 11, 5)), labeller.getProfile());
+	}
+
+	@Test
+	public void testConvertStreams() throws IOException {
+		// a year of 5-minute intervals, generated and consumed line by line
+		final int count = 366 * 24 * 12;
+		final CountingWriter out = new CountingWriter();
+		final long rows = HourLabelServlet.convert(new BufferedReader(new IntervalReader(count)), out,
+				ConcurrentMarketTime.CENTRAL);
+		Assert.assertEquals(count, rows);
+		Assert.assertEquals(count, out.lines);
+		Assert.assertTrue(out.flushes > count / 1024);
+	}
+
+	/**
+	 * Produces ISO timestamps on demand, never holding more than one line
+	 */
+	private static class IntervalReader extends Reader {
+
+		private final int count;
+
+		private int produced;
+
+		private String line = "";
+
+		private int pos;
+
+		IntervalReader(final int count) {
+			this.count = count;
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) {
+			if (pos == line.length()) {
+				if (produced == count) {
+					return -1;
+				}
+				final long instant = 1325397600000L + produced++ * 5 * MarketTime.MILLIS_PER_MINUTE;
+				line = MarketTime.CENTRAL.toIsoNoMillis(instant) + "\n";
+				pos = 0;
+			}
+			final int n = Math.min(len, line.length() - pos);
+			line.getChars(pos, pos + n, cbuf, off);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static class CountingWriter extends Writer {
+
+		private long lines;
+
+		private long flushes;
+
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) {
+			for (int i = off; i < off + len; i++) {
+				if (cbuf[i] == '\n') {
+					lines++;
+				}
+			}
+		}
+
+		@Override
+		public void write(final int c) {
+			if (c == '\n') {
+				lines++;
+			}
+		}
+
+		@Override
+		public void flush() {
+			flushes++;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package me.fns.gwt.datehandling.server;
+
+import me.fns.gwt.datehandling.client.feed.IntervalFeedService;
+import me.fns.gwt.datehandling.client.feed.IntervalFeedServiceAsync;
+import me.fns.gwt.datehandling.client.feed.IntervalRefresher;
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.IntervalChanges;
+import me.fns.gwt.datehandling.shared.IntervalDelta;
+import me.fns.gwt.datehandling.shared.MarketDaySeries;
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/**
+ * <p>
+ * End-to-end tests of the interval delta feed, with an in-process stand-in
+ * for the RPC service answering straight from an {@link IntervalStore}.
+ * </p>
+ *
+ */
+public class IntervalFeedTest {
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	private static final int DAY = CivilDate.toEpochDay(2012, 11, 4);
+
+	private final IntervalStore store = new IntervalStore(ConcurrentMarketTime.CENTRAL, 12);
+
+	private final LocalFeed feed = new LocalFeed();
+
+	private final MarketDaySeries series = new MarketDaySeries(MARKET, DAY, 12);
+
+	private final IntervalRefresher refresher = new IntervalRefresher(feed, series);
+
+	@Test
+	public void testFirstRefreshLoadsEverything() {
+		series.addDays(2);
+		for (int slot = 0; slot < 25 * 12; slot++) {
+			store.put(DAY, slot, slot);
+		}
+		Assert.assertEquals(300, refresh());
+		Assert.assertEquals(300, refresher.getVersion());
+		for (int slot = 0; slot < 25 * 12; slot++) {
+			Assert.assertEquals(slot, series.get(DAY, slot), 0);
+		}
+		Assert.assertTrue(Double.isNaN(series.get(DAY + 1, 0)));
+	}
+
+	@Test
+	public void testLaterRefreshSendsOnlyChanges() {
+		series.addDays(2);
+		for (int slot = 0; slot < 25 * 12; slot++) {
+			store.put(DAY, slot, 1.0);
+		}
+		refresh();
+
+		// the latest 5-minute interval, 02:05 CST (label 02*), changes twice
+		final long latest = MARKET.hourOfDay(DAY, "02*") + 5 * MarketTime.MILLIS_PER_MINUTE;
+		store.put(latest, 2.0);
+		store.put(latest, 3.0);
+		// and one on the following day
+		store.put(DAY + 1, 0, 4.0);
+		Assert.assertEquals(2, refresh());
+		Assert.assertEquals(303, refresher.getVersion());
+
+		Assert.assertEquals(3.0, series.get(latest), 0);
+		Assert.assertEquals(3.0, series.get(DAY, 2 * 12 + 1), 0);
+		Assert.assertEquals(1.0, series.get(latest - 5 * MarketTime.MILLIS_PER_MINUTE), 0);
+		Assert.assertEquals(4.0, series.get(DAY + 1, "01"), 0);
+
+		// nothing changed
+		Assert.assertEquals(0, refresh());
+		Assert.assertEquals(303, refresher.getVersion());
+	}
+
+	@Test
+	public void testDaysNotHeldAreSkipped() {
+		series.addDays(1);
+		store.put(DAY + 1, 0, 1.0);
+		store.put(DAY, 0, 2.0);
+		Assert.assertEquals(1, refresh());
+		final IntervalChanges changes = store.changesSince(DAY - 1, DAY + 1, 0);
+		Assert.assertEquals(2, changes.getDeltas().length);
+		Assert.assertEquals(1, new IntervalChanges(2, 12, changes.getDeltas()).applyTo(series));
+
+		// the skipped write still arrives once its day is added
+		series.addDays(1);
+		Assert.assertEquals(1, refresh());
+		Assert.assertEquals(1.0, series.get(DAY + 1, 0), 0);
+		Assert.assertEquals(2, refresher.getVersion());
+		Assert.assertEquals(0, refresh());
+	}
+
+	@Test
+	public void testDaysAddedLaterConverge() {
+		series.addDays(1);
+		store.put(DAY, 0, 1.0);
+		refresh();
+		store.put(DAY + 1, 5, 2.0);
+		series.addDays(1);
+		store.put(DAY, 1, 3.0);
+		// DAY since version 1, DAY + 1 from the start
+		Assert.assertEquals(2, refresh());
+		Assert.assertEquals(3.0, series.get(DAY, 1), 0);
+		Assert.assertEquals(2.0, series.get(DAY + 1, 5), 0);
+		Assert.assertEquals(3, refresher.getVersion());
+		// both days now refreshed together
+		store.put(DAY + 1, 6, 4.0);
+		feed.requests = 0;
+		Assert.assertEquals(1, refresh());
+		Assert.assertEquals(1, feed.requests);
+		Assert.assertEquals(4, refresher.getVersion());
+	}
+
+	@Test
+	public void testLongSeriesIsFetchedInRuns() {
+		final int dayCount = IntervalFeedService.MAX_DAYS + 34;
+		final IntervalStore kept = new IntervalStore(ConcurrentMarketTime.CENTRAL, 12, dayCount);
+		final IntervalRefresher longRefresher = new IntervalRefresher(new LocalFeed(kept), series);
+		series.addDays(dayCount);
+		kept.put(DAY, 0, 1.0);
+		kept.put(DAY + dayCount - 1, 0, 2.0);
+		final Count count = new Count();
+		Assert.assertTrue(longRefresher.refresh(count));
+		Assert.assertEquals(2, count.applied);
+		Assert.assertEquals(2.0, series.get(DAY + dayCount - 1, 0), 0);
+		Assert.assertEquals(2, longRefresher.getVersion());
+
+		kept.put(DAY + IntervalFeedService.MAX_DAYS, 1, 3.0);
+		Assert.assertTrue(longRefresher.refresh(count));
+		Assert.assertEquals(1, count.applied);
+		Assert.assertEquals(3.0, series.get(DAY + IntervalFeedService.MAX_DAYS, 1), 0);
+	}
+
+	@Test
+	public void testMismatchedChangesAreRejected() {
+		series.addDays(1);
+		store.put(DAY, 0, 1.0);
+		final IntervalChanges changes = store.changesSince(DAY, DAY, 0);
+		try {
+			new IntervalChanges(1, 4, changes.getDeltas()).applyTo(series);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		// a 25 hour day has 300 5-minute slots
+		final IntervalDelta[] outOfDay = new IntervalDelta[] { new IntervalDelta(DAY, new int[] { 0, 300 },
+				new double[] { 5.0, 6.0 }) };
+		try {
+			new IntervalChanges(2, 12, outOfDay).applyTo(series);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertTrue(Double.isNaN(series.get(DAY, 0)));
+	}
+
+	@Test
+	public void testOldDaysAreEvicted() {
+		final IntervalStore kept = new IntervalStore(ConcurrentMarketTime.CENTRAL, 12, 3);
+		kept.put(DAY, 0, 1.0);
+		kept.put(DAY + 2, 0, 1.0);
+		Assert.assertEquals(2, kept.getDayCount());
+		kept.put(DAY + 3, 0, 1.0);
+		Assert.assertEquals(2, kept.getDayCount());
+		Assert.assertEquals(0, kept.changesSince(DAY, DAY, 0).getDeltas().length);
+		kept.put(DAY + 1, 0, 1.0);
+		try {
+			kept.put(DAY, 0, 1.0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testOverlappingRefreshIsSkipped() {
+		series.addDays(1);
+		feed.deferred = true;
+		Assert.assertTrue(refresher.refresh(new Count()));
+		Assert.assertFalse(refresher.refresh(new Count()));
+		feed.complete();
+		Assert.assertTrue(refresher.refresh(new Count()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRangeIsLimited() {
+		store.changesSince(DAY, DAY + IntervalFeedService.MAX_DAYS, 0);
+	}
+
+	private int refresh() {
+		final Count count = new Count();
+		Assert.assertTrue(refresher.refresh(count));
+		return count.applied;
+	}
+
+	/**
+	 * Answers synchronously from the store, or on demand when deferred
+	 */
+	private class LocalFeed implements IntervalFeedServiceAsync {
+
+		private final IntervalStore source;
+
+		private boolean deferred;
+
+		private Runnable pending;
+
+		private int requests;
+
+		LocalFeed() {
+			this(store);
+		}
+
+		LocalFeed(final IntervalStore source) {
+			this.source = source;
+		}
+
+		@Override
+		public void changesSince(final int firstDay, final int lastDay, final long since,
+				final AsyncCallback<IntervalChanges> callback) {
+			requests++;
+			final Runnable answer = new Runnable() {
+				@Override
+				public void run() {
+					callback.onSuccess(source.changesSince(firstDay, lastDay, since));
+				}
+			};
+			if (deferred) {
+				pending = answer;
+			} else {
+				answer.run();
+			}
+		}
+
+		void complete() {
+			deferred = false;
+			pending.run();
+		}
+	}
+
+	private static class Count implements AsyncCallback<Integer> {
+
+		private int applied = -1;
+
+		@Override
+		public void onSuccess(final Integer result) {
+			applied = result;
+		}
+
+		@Override
+		public void onFailure(final Throwable caught) {
+			throw new AssertionError(caught);
+		}
+	}
+}
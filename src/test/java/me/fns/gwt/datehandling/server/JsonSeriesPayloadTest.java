@@ -0,0 +1,87 @@
+package me.fns.gwt.datehandling.server;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.MarketDaySeries;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.SeriesPayloadLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link JsonSeriesPayload} and, through it, for loading payloads
+ * into a {@link MarketDaySeries}.
+ * </p>
+ *
+ */
+public class JsonSeriesPayloadTest {
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	@Test
+	public void testRoundTripAndLoad() {
+		// every hour from 2012-11-03 01 through 2012-11-05 24, one value missing
+		final long from = MARKET.startOfDay(CivilDate.toEpochDay(2012, 11, 3)) + MarketTime.MILLIS_PER_HOUR;
+		final int hours = 24 + 25 + 24;
+		final String[] timestamps = new String[hours];
+		final double[] values = new double[hours];
+		for (int i = 0; i < hours; i++) {
+			timestamps[i] = MARKET.toIsoNoMillis(from + i * MarketTime.MILLIS_PER_HOUR);
+			values[i] = i == 30 ? Double.NaN : i * 0.5;
+		}
+		final String json = new JsonSeriesPayload(1, timestamps, values).toJson();
+		Assert.assertTrue(json, json.startsWith("{\"intervalsPerHour\":1,\"timestamps\":[\"2012-11-03T01:00:00-05:00\","));
+		Assert.assertTrue(json, json.contains(",14.5,null,15.5,"));
+
+		final JsonSeriesPayload payload = JsonSeriesPayload.parse(json);
+		Assert.assertEquals(hours, payload.size());
+		for (int i = 0; i < hours; i++) {
+			Assert.assertEquals(timestamps[i], payload.getTimestamp(i));
+			Assert.assertEquals(values[i], payload.getValue(i), 0);
+		}
+
+		final MarketDaySeries series = SeriesPayloadLoader.load(MARKET, payload);
+		Assert.assertEquals(CivilDate.toEpochDay(2012, 11, 3), series.getFirstDay());
+		Assert.assertEquals(3, series.getDayCount());
+		Assert.assertArrayEquals(values, series.toArray(), 0);
+		final int longDay = CivilDate.toEpochDay(2012, 11, 4);
+		Assert.assertEquals(13, series.get(longDay, "02*"), 0);
+		Assert.assertTrue(Double.isNaN(series.get(longDay, "06")));
+	}
+
+	@Test
+	public void testParseLeniency() {
+		final JsonSeriesPayload payload = JsonSeriesPayload.parse(" { \"source\" : {\"feed\":[1,\"a\\\"b\",true]},"
+				+ "\"values\":[ -1.5e2 , null ], \"intervalsPerHour\":12,"
+				+ "\"timestamps\":[\"2013-07-01T10:00:00-05:00\",\"2013-07-01T10:05:00\\u002d05:00\"] } ");
+		Assert.assertEquals(12, payload.getIntervalsPerHour());
+		Assert.assertEquals("2013-07-01T10:05:00-05:00", payload.getTimestamp(1));
+		Assert.assertEquals(-150, payload.getValue(0), 0);
+		Assert.assertTrue(Double.isNaN(payload.getValue(1)));
+
+		final MarketDaySeries series = SeriesPayloadLoader.load(MARKET, payload);
+		Assert.assertEquals(12, series.getIntervalsPerHour());
+		Assert.assertEquals(-150, series.get(CivilDate.toEpochDay(2013, 7, 1), "10"), 0);
+	}
+
+	@Test
+	public void testRejectsMalformed() {
+		for (final String json : new String[] { "", "[]", "{\"timestamps\":[]}", "{\"timestamps\":[\"a\"],\"values\":[]}",
+				"{\"timestamps\":[],\"values\":[]", "{\"timestamps\":[],\"values\":[x]}",
+				"{\"timestamps\":[],\"values\":[]} trailing" }) {
+			try {
+				JsonSeriesPayload.parse(json);
+				Assert.fail(json);
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+		try {
+			SeriesPayloadLoader.load(MARKET, JsonSeriesPayload.parse("{\"timestamps\":[],\"values\":[]}"));
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
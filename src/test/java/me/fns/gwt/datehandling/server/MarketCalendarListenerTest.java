@@ -0,0 +1,96 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.MarketTime;
+import me.fns.gwt.datehandling.shared.MarketZone;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link MarketCalendarListener}: a matching calendar file is read
+ * from, and anything else falls back to computing with {@link MarketTime}.
+ * </p>
+ *
+ */
+public class MarketCalendarListenerTest {
+
+	private static final MarketTime CENTRAL = MarketTime.CENTRAL;
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("market-calendar", ".bin");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void testReadsCalendar() throws IOException {
+		CalendarFile.write(file, new MarketTime[] { CENTRAL }, 2012, 2013);
+		final ConcurrentMarketTime market = MarketCalendarListener.open(file, CENTRAL);
+		Assert.assertNotNull(market.getCalendar());
+		final MarketZone zone = CENTRAL.getZone();
+		// covered by the calendar, and either side of it
+		for (int day = CivilDate.toEpochDay(2011, 12, 1); day < CivilDate.toEpochDay(2014, 2, 1); day++) {
+			Assert.assertEquals(CENTRAL.dayProfile(day), market.dayProfile(day));
+			Assert.assertEquals(CENTRAL.startOfDay(day), market.startOfDay(day));
+		}
+		final int first = zone.transitionIndex(CENTRAL.startOfDay(CivilDate.toEpochDay(2012, 1, 1)));
+		Assert.assertEquals(zone.getTransitionCount(), market.getTransitionCount());
+		for (int i = first; i < first + 4; i++) {
+			Assert.assertEquals(zone.getTransition(i), market.getTransition(i));
+			Assert.assertEquals(zone.getOffsetAfter(i), market.getOffsetAfter(i));
+			Assert.assertEquals(zone.getOffset(zone.getTransition(i) - 1), market.getOffset(zone.getTransition(i) - 1));
+		}
+		Assert.assertEquals(HostPageServlet.calendarJson(ConcurrentMarketTime.CENTRAL, CivilDate.toEpochDay(2013, 3,
+				1), 6), HostPageServlet.calendarJson(market, CivilDate.toEpochDay(2013, 3, 1), 6));
+	}
+
+	@Test
+	public void testFallsBack() throws IOException {
+		Assert.assertNull(MarketCalendarListener.open(null, CENTRAL).getCalendar());
+		Assert.assertNull(MarketCalendarListener.open(new File(file.getPath() + ".missing"), CENTRAL).getCalendar());
+
+		// not a calendar file
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write("<html></html>\n".getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+		Assert.assertNull(MarketCalendarListener.open(file, CENTRAL).getCalendar());
+
+		// no calendar of the zone
+		final MarketTime tokyo = new MarketTime(new MarketZone("Asia/Tokyo", 540, new long[0], new int[0]));
+		CalendarFile.write(file, new MarketTime[] { tokyo }, 2013, 2013);
+		Assert.assertNull(MarketCalendarListener.open(file, CENTRAL).getCalendar());
+
+		// built from other zone data
+		final MarketTime noDaylightSavings = new MarketTime(new MarketZone(CENTRAL.getZone().getId(), -360,
+				new long[0], new int[0]));
+		CalendarFile.write(file, new MarketTime[] { noDaylightSavings }, 2013, 2013);
+		final ConcurrentMarketTime market = MarketCalendarListener.open(file, CENTRAL);
+		Assert.assertNull(market.getCalendar());
+		Assert.assertEquals(25, market.hoursInDay(CivilDate.toEpochDay(2013, 11, 3)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsOtherZoneData() throws IOException {
+		CalendarFile.write(file, new MarketTime[] { CENTRAL }, 2013, 2013);
+		final MarketTime noDaylightSavings = new MarketTime(new MarketZone(CENTRAL.getZone().getId(), -360,
+				new long[0], new int[0]));
+		new ConcurrentMarketTime(noDaylightSavings, CalendarFile.open(file).getMarket(CENTRAL.getZone().getId()), 16);
+	}
+}
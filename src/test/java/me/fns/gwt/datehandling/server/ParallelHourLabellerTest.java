@@ -0,0 +1,122 @@
+package me.fns.gwt.datehandling.server;
+
+import java.util.Random;
+
+import me.fns.gwt.datehandling.shared.CivilDate;
+import me.fns.gwt.datehandling.shared.MarketTime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests and benchmark for {@link ParallelHourLabeller}.
+ * </p>
+ * <p>
+ * Labels are compared with the sequential {@link MarketTime#hourLabel(long)}
+ * for ordered, shuffled and bad input. The benchmark labels the same batch at
+ * parallelism 1, 2, 4... up to twice the number of cores and reports
+ * throughput against a plain sequential loop.
+ * </p>
+ *
+ */
+public class ParallelHourLabellerTest {
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+	@Test
+	public void testOrderedInput() {
+		// two years of 5-minute intervals, spanning four transitions
+		final String[] isos = intervals(CivilDate.toEpochDay(2012, 1, 1), 2 * 366 * 24 * 12,
+				5 * MarketTime.MILLIS_PER_MINUTE);
+		assertLabels(isos, 4);
+	}
+
+	@Test
+	public void testShuffledInput() {
+		final String[] isos = intervals(CivilDate.toEpochDay(1999, 10, 1), 60000, 17 * MarketTime.MILLIS_PER_MINUTE);
+		final Random random = new Random(42);
+		for (int i = isos.length - 1; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			final String swap = isos[i];
+			isos[i] = isos[j];
+			isos[j] = swap;
+		}
+		assertLabels(isos, 3);
+	}
+
+	@Test
+	public void testBadData() {
+		final String[] isos = new String[] { "2012-11-04T01:00:00-06:00", null, "", "not a date",
+				"2013-03-10T03:00:00-05:00" };
+		final ParallelHourLabeller labeller = new ParallelHourLabeller(ConcurrentMarketTime.CENTRAL, 2);
+		try {
+			Assert.assertArrayEquals(new String[] { "02", "", "", "", "03" }, labeller.label(isos));
+			Assert.assertEquals(0, labeller.label(new String[0]).length);
+		} finally {
+			labeller.shutdown();
+		}
+	}
+
+	@Test
+	public void testScaling() {
+		// a year of 1-minute intervals
+		final String[] isos = intervals(CivilDate.toEpochDay(2012, 1, 1), 366 * 24 * 60, MarketTime.MILLIS_PER_MINUTE);
+
+		long sequential = Long.MAX_VALUE;
+		for (int run = 0; run < 3; run++) {
+			final long started = System.nanoTime();
+			final String[] labels = new String[isos.length];
+			for (int i = 0; i < isos.length; i++) {
+				labels[i] = MARKET.hourLabel(MarketTime.parseIsoNoMillis(isos[i]));
+			}
+			sequential = Math.min(sequential, System.nanoTime() - started);
+		}
+		report("sequential loop", isos.length, sequential, sequential);
+
+		for (int parallelism = 1; parallelism <= CORES * 2; parallelism *= 2) {
+			final ParallelHourLabeller labeller = new ParallelHourLabeller(ConcurrentMarketTime.CENTRAL, parallelism);
+			try {
+				long best = Long.MAX_VALUE;
+				for (int run = 0; run < 3; run++) {
+					final long started = System.nanoTime();
+					Assert.assertEquals(isos.length, labeller.label(isos).length);
+					best = Math.min(best, System.nanoTime() - started);
+				}
+				report("parallelism " + parallelism, isos.length, best, sequential);
+			} finally {
+				labeller.shutdown();
+			}
+		}
+	}
+
+	private static void assertLabels(final String[] isos, final int parallelism) {
+		final ParallelHourLabeller labeller = new ParallelHourLabeller(ConcurrentMarketTime.CENTRAL, parallelism);
+		try {
+			Assert.assertEquals(parallelism, labeller.getParallelism());
+			final String[] labels = labeller.label(isos);
+			Assert.assertEquals(isos.length, labels.length);
+			for (int i = 0; i < isos.length; i++) {
+				Assert.assertEquals(isos[i], MARKET.hourLabel(MarketTime.parseIsoNoMillis(isos[i])), labels[i]);
+			}
+		} finally {
+			labeller.shutdown();
+		}
+	}
+
+	private static String[] intervals(final int firstDay, final int count, final long step) {
+		final String[] result = new String[count];
+		final long start = MARKET.startOfDay(firstDay);
+		for (int i = 0; i < count; i++) {
+			result[i] = MARKET.toIsoNoMillis(start + i * step);
+		}
+		return result;
+	}
+
+	private static void report(final String what, final int count, final long nanos, final long sequentialNanos) {
+		System.out.println(String.format("%s on %d core(s): %,d labels, %,.0f labels/s, %.2fx sequential", what,
+				CORES, count, count * 1e9 / nanos, (double) sequentialNanos / nanos));
+	}
+}
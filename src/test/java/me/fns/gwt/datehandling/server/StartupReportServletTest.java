@@ -0,0 +1,106 @@
+package me.fns.gwt.datehandling.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import me.fns.gwt.datehandling.shared.StartupTimeline;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for startup reports, from lightweight metrics events through to
+ * server-side percentiles.
+ * </p>
+ *
+ */
+public class StartupReportServletTest {
+
+	@Test
+	public void testTimelineReport() {
+		final StartupTimeline timeline = new StartupTimeline();
+		timeline.event(StartupTimeline.BOOTSTRAP, "begin", 1000);
+		timeline.event(StartupTimeline.BOOTSTRAP, "selectingPermutation", 1010);
+		timeline.event(StartupTimeline.BOOTSTRAP, "end", 1100);
+		timeline.event(StartupTimeline.MODULE_STARTUP, "moduleRequested", 1100);
+		timeline.event(StartupTimeline.MODULE_STARTUP, "moduleEvalStart", 1400);
+		timeline.event(StartupTimeline.MODULE_STARTUP, "moduleEvalEnd", 1440.4);
+		timeline.event(StartupTimeline.CS_TIME_UTIL_INIT, "begin", 1450);
+		timeline.event(StartupTimeline.CS_TIME_UTIL_INIT, "end", 1453);
+		timeline.event(StartupTimeline.FIRST_RENDER, "begin", 1453);
+		timeline.event(StartupTimeline.FIRST_RENDER, "end", 1500);
+		// repeats (e.g. a second module on the page) are ignored
+		timeline.event(StartupTimeline.BOOTSTRAP, "begin", 2000);
+
+		Assert.assertEquals("bootstrap=100\ndownload=300\nmoduleEval=40\ncsTimeUtilInit=3\nfirstRender=47\ntotal=500\n",
+				timeline.report());
+	}
+
+	@Test
+	public void testIncompletePhasesOmitted() {
+		final StartupTimeline timeline = new StartupTimeline();
+		timeline.event(StartupTimeline.FIRST_RENDER, "begin", 10);
+		Assert.assertEquals("", timeline.report());
+		timeline.event(StartupTimeline.FIRST_RENDER, "end", 12);
+		Assert.assertEquals("firstRender=2\n", timeline.report());
+	}
+
+	@Test
+	public void testRecord() throws IOException {
+		final StartupStats stats = new StartupStats();
+		final String report = "bootstrap=100\n download=300 \nbad line\n=5\ntotal=-1\ntotal=12345678901\nx=1\n";
+		Assert.assertEquals(3, StartupReportServlet.record(new BufferedReader(new StringReader(report)), stats));
+		Assert.assertEquals(1, stats.count("bootstrap"));
+		Assert.assertEquals(300, stats.percentile("download", 50));
+		Assert.assertEquals(-1, stats.percentile("total", 50));
+	}
+
+	@Test
+	public void testPercentiles() {
+		final StartupStats stats = new StartupStats();
+		for (int millis = 1; millis <= 100; millis++) {
+			stats.record("firstRender", millis);
+		}
+		Assert.assertEquals(50, stats.percentile("firstRender", 50));
+		Assert.assertEquals(90, stats.percentile("firstRender", 90));
+		Assert.assertEquals(99, stats.percentile("firstRender", 99));
+		Assert.assertEquals(1, stats.percentile("firstRender", 0));
+
+		// coarser above a second, open-ended above a minute
+		stats.record("download", 1234);
+		Assert.assertEquals(1239, stats.percentile("download", 50));
+		stats.record("download", 61000);
+		Assert.assertEquals(StartupStats.OVERFLOW, stats.percentile("download", 100));
+		stats.record("download", 60000);
+		Assert.assertEquals(StartupStats.OVERFLOW, stats.percentile("download", 50));
+		stats.record("download", 59999);
+
+		Assert.assertEquals("download count=4 p50=59999 p90=>60000 p99=>60000"
+				+ "\nfirstRender count=100 p50=50 p90=90 p99=99\n", stats.report());
+	}
+
+	@Test
+	public void testStatisticsLocalOnly() {
+		Assert.assertTrue(StartupReportServlet.isLocal("127.0.0.1"));
+		Assert.assertTrue(StartupReportServlet.isLocal("0:0:0:0:0:0:0:1"));
+		Assert.assertTrue(StartupReportServlet.isLocal("::1"));
+		Assert.assertFalse(StartupReportServlet.isLocal("10.0.0.127"));
+		Assert.assertFalse(StartupReportServlet.isLocal("fe80::1"));
+		Assert.assertFalse(StartupReportServlet.isLocal(null));
+		Assert.assertTrue(StartupReportServlet.allowsStatistics(true, "127.0.0.1"));
+		Assert.assertFalse(StartupReportServlet.allowsStatistics(false, "127.0.0.1"));
+		Assert.assertFalse(StartupReportServlet.allowsStatistics(true, "10.0.0.127"));
+	}
+
+	@Test
+	public void testPhasesLimited() {
+		final StartupStats stats = new StartupStats();
+		for (int i = 0; i < StartupStats.MAX_PHASES; i++) {
+			Assert.assertTrue(stats.record("phase" + i, i));
+		}
+		Assert.assertFalse(stats.record("oneTooMany", 1));
+		Assert.assertTrue(stats.record("phase0", 1));
+	}
+}
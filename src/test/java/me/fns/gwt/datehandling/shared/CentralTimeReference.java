@@ -0,0 +1,105 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * <p>
+ * Reference implementation of the "market time" rules, backed by the JVM's
+ * own America/Chicago zone data and {@link GregorianCalendar} field
+ * arithmetic.
+ * </p>
+ * <p>
+ * Deliberately shares no code with {@link MarketTime}, so that a disagreement
+ * between the two points at either the transition table or the offset
+ * arithmetic. Not thread-safe.
+ * </p>
+ *
+ */
+class CentralTimeReference {
+
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	private final TimeZone zone = TimeZone.getTimeZone("America/Chicago");
+
+	private final GregorianCalendar calendar = new GregorianCalendar(zone);
+
+	private final GregorianCalendar utc = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+
+	CentralTimeReference() {
+		// proleptic Gregorian, matching the ISO8601 calendar
+		calendar.setGregorianChange(new java.util.Date(Long.MIN_VALUE));
+		utc.setGregorianChange(new java.util.Date(Long.MIN_VALUE));
+	}
+
+	int offsetMinutes(final long instant) {
+		return zone.getOffset(instant) / 60000;
+	}
+
+	boolean isDaylightTime(final long instant) {
+		return zone.inDaylightTime(new java.util.Date(instant));
+	}
+
+	String hourLabel(final long instant) {
+		calendar.setTimeInMillis(instant);
+		// not via set(MINUTE, 0), which resolves the repeated 1:00AM to Standard Time
+		final long hour = instant - calendar.get(Calendar.MINUTE) * 60000L - calendar.get(Calendar.SECOND) * 1000L
+				- calendar.get(Calendar.MILLISECOND);
+		final int hourOfDay = calendar.get(Calendar.HOUR_OF_DAY);
+		String result = pad(hourOfDay == 0 ? 24 : hourOfDay);
+		if (hourOfDay == 1 && offsetMinutes(hour - HOUR) != offsetMinutes(hour)) {
+			result = "02";
+		}
+		if (isDaylightTime(hour - 2 * HOUR) && !isDaylightTime(hour - HOUR) && !isDaylightTime(hour)) {
+			result = "02*";
+		}
+		return result;
+	}
+
+	String minuteLabel(final long instant) {
+		calendar.setTimeInMillis(instant);
+		return pad(calendar.get(Calendar.MINUTE));
+	}
+
+	/**
+	 * @return epoch millis of midnight, in market time, of year/month/day
+	 */
+	long midnight(final int year, final int month, final int day) {
+		calendar.clear();
+		calendar.set(year, month - 1, day, 0, 0, 0);
+		return calendar.getTimeInMillis();
+	}
+
+	int hoursInDay(final int year, final int month, final int day) {
+		final long start = midnight(year, month, day);
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+		return (int) ((calendar.getTimeInMillis() - start) / HOUR);
+	}
+
+	/**
+	 * @return days since 1970-01-01 of the market day containing instant
+	 */
+	int epochDay(final long instant) {
+		calendar.setTimeInMillis(instant);
+		utc.clear();
+		utc.set(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
+		return (int) (utc.getTimeInMillis() / (24 * HOUR));
+	}
+
+	String toIsoNoMillis(final long instant) {
+		calendar.setTimeInMillis(instant);
+		final int offset = offsetMinutes(instant);
+		final StringBuilder buf = new StringBuilder();
+		buf.append(calendar.get(Calendar.YEAR)).append('-').append(pad(calendar.get(Calendar.MONTH) + 1)).append('-')
+		.append(pad(calendar.get(Calendar.DAY_OF_MONTH))).append('T').append(pad(calendar.get(Calendar.HOUR_OF_DAY)))
+		.append(':').append(pad(calendar.get(Calendar.MINUTE))).append(':').append(pad(calendar.get(Calendar.SECOND)))
+		.append(offset < 0 ? '-' : '+').append(pad(Math.abs(offset) / 60)).append(':')
+		.append(pad(Math.abs(offset) % 60));
+		return buf.toString();
+	}
+
+	private static String pad(final int value) {
+		return value < 10 ? "0" + value : String.valueOf(value);
+	}
+}
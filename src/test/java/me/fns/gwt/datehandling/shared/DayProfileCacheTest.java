@@ -0,0 +1,212 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link DayProfileCodec} and {@link DayProfileCache}, with an
+ * in-memory stand-in for HTML5 Storage.
+ * </p>
+ *
+ */
+public class DayProfileCacheTest {
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	private static final String PREFIX = DayProfileCache.KEY_PREFIX + "America/Chicago/"
+			+ MARKET.getZone().getDataVersion() + "/";
+
+	@Test
+	public void testCodecRoundTrip() {
+		for (int year = 1970; year <= 2100; year++) {
+			final int first = CivilDate.toEpochDay(year, 1, 1);
+			final DayProfile[] profiles = new DayProfile[CivilDate.toEpochDay(year + 1, 1, 1) - first];
+			for (int i = 0; i < profiles.length; i++) {
+				profiles[i] = MARKET.dayProfile(first + i);
+			}
+			final String encoded = DayProfileCodec.encode(profiles);
+			Assert.assertTrue(encoded, encoded.length() < 400);
+			Assert.assertArrayEquals(profiles, DayProfileCodec.decode(encoded));
+		}
+	}
+
+	@Test
+	public void testCodecRejectsMalformed() {
+		final String[] malformed = new String[] { "", "1:2:3:", "1:2:N", "a:2:3:N", "1:2:3:X" };
+		for (final String encoded : malformed) {
+			try {
+				DayProfileCodec.decode(encoded);
+				Assert.fail(encoded);
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testProfilesMatch() {
+		final FakeStorage storage = new FakeStorage();
+		final DayProfileCache cache = new DayProfileCache(MARKET, storage, 3);
+		final int first = CivilDate.toEpochDay(2012, 1, 1);
+		final int last = CivilDate.toEpochDay(2013, 12, 31);
+		for (int day = first; day <= last; day++) {
+			Assert.assertEquals(MARKET.dayProfile(day), cache.dayProfile(day));
+		}
+		Assert.assertTrue(cache.isPersistent());
+		Assert.assertNotNull(storage.getItem(PREFIX + 2012));
+		Assert.assertEquals("2012,2013", storage.getItem(PREFIX + "index"));
+		// a span across the year end, copied from both years
+		Assert.assertArrayEquals(MARKET.dayProfilesBetween(first + 300, last - 10),
+				cache.dayProfilesBetween(first + 300, last - 10));
+		Assert.assertEquals(0, cache.dayProfilesBetween(first, first).length);
+	}
+
+	@Test
+	public void testWarmReloadReadsStore() {
+		final FakeStorage storage = new FakeStorage();
+		final int day = CivilDate.toEpochDay(2012, 7, 4);
+		new DayProfileCache(MARKET, storage, 3).dayProfile(day);
+
+		// doctor the stored year; a cache that recomputed would not see it
+		final String stored = storage.getItem(PREFIX + 2012);
+		final int position = stored.lastIndexOf(':') + 1 + day - CivilDate.toEpochDay(2012, 1, 1);
+		storage.setItem(PREFIX + 2012, stored.substring(0, position) + "L" + stored.substring(position + 1));
+		Assert.assertEquals(25, new DayProfileCache(MARKET, storage, 3).hoursInDay(day));
+	}
+
+	@Test
+	public void testEviction() {
+		final FakeStorage storage = new FakeStorage();
+		DayProfileCache cache = new DayProfileCache(MARKET, storage, 2);
+		cache.dayProfile(CivilDate.toEpochDay(2010, 6, 1));
+		cache.dayProfile(CivilDate.toEpochDay(2011, 6, 1));
+		cache.dayProfile(CivilDate.toEpochDay(2012, 6, 1));
+		Assert.assertNull(storage.getItem(PREFIX + 2010));
+		Assert.assertEquals("2011,2012", storage.getItem(PREFIX + "index"));
+
+		// the index survives reloads; loading 2011 again makes 2012 the oldest
+		cache = new DayProfileCache(MARKET, storage, 2);
+		cache.dayProfile(CivilDate.toEpochDay(2011, 6, 1));
+		cache.dayProfile(CivilDate.toEpochDay(2013, 6, 1));
+		Assert.assertNull(storage.getItem(PREFIX + 2012));
+		Assert.assertNotNull(storage.getItem(PREFIX + 2011));
+		Assert.assertEquals(3, storage.getLength());
+	}
+
+	@Test
+	public void testOtherVersionsRemoved() {
+		final FakeStorage storage = new FakeStorage();
+		storage.setItem(DayProfileCache.KEY_PREFIX + "America/Chicago/old/2012", "15340:0:-360:N");
+		storage.setItem(DayProfileCache.KEY_PREFIX + "America/New_York/1/2012", "15340:0:-300:N");
+		storage.setItem("unrelated", "kept");
+		new DayProfileCache(MARKET, storage, 2);
+		Assert.assertNull(storage.getItem(DayProfileCache.KEY_PREFIX + "America/Chicago/old/2012"));
+		Assert.assertNotNull(storage.getItem(DayProfileCache.KEY_PREFIX + "America/New_York/1/2012"));
+		Assert.assertEquals("kept", storage.getItem("unrelated"));
+	}
+
+	@Test
+	public void testPreload() {
+		final FakeStorage storage = new FakeStorage();
+		final DayProfileCache cache = new DayProfileCache(MARKET, storage, 3);
+		final int first = CivilDate.toEpochDay(2012, 1, 1);
+		final DayProfile[] year = new DayProfile[366];
+		for (int i = 0; i < year.length; i++) {
+			year[i] = MARKET.dayProfile(first + i);
+		}
+		final DayProfile[] partial = new DayProfile[365];
+		System.arraycopy(year, 1, partial, 0, partial.length);
+		Assert.assertFalse(cache.preload(partial));
+		Assert.assertFalse(cache.preload(new DayProfile[0]));
+
+		// a year disagreeing with the rules is refused
+		final DayProfile day = year[100];
+		year[100] = new DayProfile(first + 100, day.getStart(), 25, -300, -360);
+		Assert.assertFalse(cache.preload(year));
+		year[100] = new DayProfile(first + 100, day.getStart(), 24, -360, -360);
+		Assert.assertFalse(cache.preload(year));
+		year[100] = null;
+		Assert.assertFalse(cache.preload(year));
+
+		// a seeded year is served as is, and not persisted
+		year[100] = day;
+		Assert.assertTrue(cache.preload(year));
+		Assert.assertSame(day, cache.dayProfile(first + 100));
+		Assert.assertEquals(25, cache.hoursInDay(CivilDate.toEpochDay(2012, 11, 4)));
+		Assert.assertNull(storage.getItem(PREFIX + 2012));
+	}
+
+	@Test
+	public void testCorruptEntryRecomputed() {
+		final FakeStorage storage = new FakeStorage();
+		storage.setItem(PREFIX + 2012, "garbage");
+		final int day = CivilDate.toEpochDay(2012, 11, 4);
+		Assert.assertEquals(25, new DayProfileCache(MARKET, storage, 2).hoursInDay(day));
+		Assert.assertEquals(MARKET.dayProfile(day), DayProfileCodec.decode(storage.getItem(PREFIX + 2012))[308]);
+	}
+
+	@Test
+	public void testFallsBackWhenStoreFails() {
+		final FakeStorage storage = new FakeStorage();
+		storage.full = true;
+		final DayProfileCache cache = new DayProfileCache(MARKET, storage, 2);
+		final int day = CivilDate.toEpochDay(2013, 3, 10);
+		Assert.assertEquals(23, cache.hoursInDay(day));
+		Assert.assertFalse(cache.isPersistent());
+		Assert.assertEquals(24, cache.hoursInDay(day + 1));
+
+		final DayProfileCache memoryOnly = new DayProfileCache(MARKET, null, 2);
+		Assert.assertFalse(memoryOnly.isPersistent());
+		Assert.assertEquals(MARKET.dayProfile(day), memoryOnly.dayProfile(day));
+	}
+
+	/**
+	 * Stand-in for HTML5 Storage, optionally refusing writes as when over
+	 * quota
+	 */
+	private static class FakeStorage implements DayProfileCache.Store {
+
+		private final Map<String, String> items = new HashMap<String, String>();
+
+		private final List<String> keys = new ArrayList<String>();
+
+		private boolean full;
+
+		@Override
+		public String getItem(final String key) {
+			return items.get(key);
+		}
+
+		@Override
+		public void setItem(final String key, final String value) {
+			if (full) {
+				throw new IllegalStateException("QUOTA_EXCEEDED_ERR");
+			}
+			if (items.put(key, value) == null) {
+				keys.add(key);
+			}
+		}
+
+		@Override
+		public void removeItem(final String key) {
+			items.remove(key);
+			keys.remove(key);
+		}
+
+		@Override
+		public int getLength() {
+			return keys.size();
+		}
+
+		@Override
+		public String key(final int index) {
+			return keys.get(index);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package me.fns.gwt.datehandling.shared;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link InstantIndex}: every query must agree with a linear scan
+ * that parses and labels each timestamp, across transition days.
+ * </p>
+ *
+ */
+public class InstantIndexTest {
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	private static final long STEP = 5 * MarketTime.MILLIS_PER_MINUTE;
+
+	/**
+	 * 2013-03-09 through 2013-03-12 and 2013-11-02 through 2013-11-05, in 5
+	 * minute intervals
+	 */
+	private static final String[] ISOS = join(intervals(2013, 3, 9, 4), intervals(2013, 11, 2, 4));
+
+	private final InstantIndex index = new InstantIndex(MARKET, ISOS);
+
+	@Test
+	public void testLabels() {
+		final int[][] days = new int[][] { { 2013, 3, 9 }, { 2013, 3, 10 }, { 2013, 11, 3 }, { 2013, 11, 4 } };
+		final String[][] ranges = new String[][] { { "07", "22" }, { "01", "24" }, { "01", "03" }, { "02", "02" },
+				{ "02*", "04" }, { "24", "24" } };
+		for (final int[] date : days) {
+			final int day = CivilDate.toEpochDay(date[0], date[1], date[2]);
+			final String[] labels = MarketTime.labelsForHours(MARKET.hoursInDay(day));
+			for (final String[] range : ranges) {
+				final int first = MarketTime.labelSlot(labels.length, range[0]);
+				final int last = MarketTime.labelSlot(labels.length, range[1]);
+				if (first < 0 || last < 0) {
+					continue;
+				}
+				final int[] bounds = index.labels(day, range[0], range[1]);
+				int expectedFrom = -1;
+				int expectedTo = -1;
+				for (int i = 0; i < ISOS.length; i++) {
+					final long instant = MarketTime.parseIsoNoMillis(ISOS[i]);
+					final int slot = MarketTime.labelSlot(labels.length, MARKET.hourLabel(instant));
+					if (MARKET.labelDay(instant) == day && slot >= first && slot <= last) {
+						expectedFrom = expectedFrom < 0 ? i : expectedFrom;
+						expectedTo = i + 1;
+					}
+				}
+				final String what = day + " " + range[0] + "-" + range[1];
+				Assert.assertEquals(what, expectedFrom, bounds[0]);
+				Assert.assertEquals(what, expectedTo, bounds[1]);
+				Assert.assertEquals(what, 12 * (last - first + 1), bounds[1] - bounds[0]);
+			}
+		}
+	}
+
+	@Test
+	public void testDay() {
+		final int day = CivilDate.toEpochDay(2013, 11, 3);
+		final int[] bounds = index.day(day);
+		Assert.assertEquals(25 * 12, bounds[1] - bounds[0]);
+		Assert.assertEquals("2013-11-03T00:00:00-05:00", ISOS[bounds[0]]);
+		Assert.assertEquals("2013-11-03T23:55:00-06:00", ISOS[bounds[1] - 1]);
+
+		// not loaded
+		final int[] missing = index.day(CivilDate.toEpochDay(2013, 6, 1));
+		Assert.assertEquals(missing[0], missing[1]);
+
+		// the same answers filled into a reused array
+		final int[] reused = new int[2];
+		Assert.assertSame(reused, index.day(day, reused));
+		Assert.assertArrayEquals(bounds, reused);
+		Assert.assertSame(reused, index.labels(day, "02", "02*", reused));
+		Assert.assertArrayEquals(index.labels(day, "02", "02*"), reused);
+		Assert.assertSame(reused, index.range(index.instantAt(1), index.instantAt(4), reused));
+		Assert.assertArrayEquals(new int[] { 1, 4 }, reused);
+	}
+
+	@Test
+	public void testRangeAndNearest() {
+		final long first = index.instantAt(0);
+		Assert.assertEquals(0, index.lowerBound(first - 1));
+		Assert.assertEquals(1, index.lowerBound(first + 1));
+		Assert.assertEquals(ISOS.length, index.lowerBound(Long.MAX_VALUE));
+		Assert.assertEquals(-1, index.indexOf(first + 1));
+		Assert.assertEquals(5, index.indexOf(first + 5 * STEP));
+
+		final int[] range = index.range(first + STEP, first + 4 * STEP);
+		Assert.assertArrayEquals(new int[] { 1, 4 }, range);
+		Assert.assertArrayEquals(new int[] { 4, 4 }, index.range(first + 4 * STEP, first));
+
+		Assert.assertEquals(0, index.nearest(Long.MIN_VALUE));
+		Assert.assertEquals(ISOS.length - 1, index.nearest(Long.MAX_VALUE));
+		Assert.assertEquals(2, index.nearest(first + 2 * STEP + STEP / 2));
+		Assert.assertEquals(3, index.nearest(first + 2 * STEP + STEP / 2 + 1));
+
+		// 01:29 rounds down to 01:00, 01:30 up to 02:00
+		final long oneAm = MARKET.hourOfDay(CivilDate.toEpochDay(2013, 3, 9), "01");
+		Assert.assertEquals(oneAm, index.instantAt(index.nearestHour(oneAm + 29 * MarketTime.MILLIS_PER_MINUTE)));
+		Assert.assertEquals(oneAm + MarketTime.MILLIS_PER_HOUR,
+				index.instantAt(index.nearestHour(oneAm + 30 * MarketTime.MILLIS_PER_MINUTE)));
+		Assert.assertEquals(-1, new InstantIndex(MARKET, new long[0]).nearestHour(oneAm));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsorted() {
+		new InstantIndex(MARKET, new String[] { "2013-03-10T03:00:00-05:00", "2013-03-10T01:00:00-06:00" });
+	}
+
+	private static String[] intervals(final int year, final int month, final int day, final int days) {
+		final int first = CivilDate.toEpochDay(year, month, day);
+		final long start = MARKET.startOfDay(first);
+		final String[] result = new String[(int) ((MARKET.startOfDay(first + days) - start) / STEP)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = MARKET.toIsoNoMillis(start + i * STEP);
+		}
+		return result;
+	}
+
+	private static String[] join(final String[] first, final String[] second) {
+		final String[] result = new String[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+}
@@ -0,0 +1,73 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SimpleTimeZone;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link IsoNoMillis}: both forms must write what the JVM's own
+ * formatter writes for the same instant and offset, and read back through
+ * {@link MarketTime#parseIsoNoMillis(String)}.
+ * </p>
+ *
+ */
+public class IsoNoMillisTest {
+
+	private static final int[] OFFSETS = new int[] { -600, -360, -300, -210, 0, 330, 345, 840 };
+
+	@Test
+	public void testAgreesWithJvm() {
+		final Random random = new Random(7);
+		final long from = -2208988800000L; // 1900-01-01T00:00:00Z
+		final long span = 4102444800000L - from; // to 2100-01-01T00:00:00Z
+		final StringBuilder buf = new StringBuilder(IsoNoMillis.LENGTH);
+		final char[] chars = new char[IsoNoMillis.LENGTH + 3];
+		for (final int offset : OFFSETS) {
+			final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.ROOT);
+			format.setTimeZone(new SimpleTimeZone(offset * 60 * 1000, "test"));
+			for (int i = 0; i < 20000; i++) {
+				final long instant = from + (long) (random.nextDouble() * span) / 1000 * 1000;
+				final String expected = format.format(new Date(instant)).replace("Z", "+00:00");
+				buf.setLength(0);
+				Assert.assertEquals(expected, IsoNoMillis.append(buf, instant, offset).toString());
+				Assert.assertEquals(3 + IsoNoMillis.LENGTH, IsoNoMillis.write(chars, 3, instant, offset));
+				Assert.assertEquals(expected, new String(chars, 3, IsoNoMillis.LENGTH));
+				Assert.assertEquals(instant, MarketTime.parseIsoNoMillis(expected));
+			}
+		}
+	}
+
+	@Test
+	public void testAppendsInPlace() {
+		final StringBuilder buf = new StringBuilder("[");
+		final MarketTime market = MarketTime.CENTRAL;
+		final long repeated = MarketTime.parseIsoNoMillis("2012-11-04T01:00:00-06:00");
+		market.appendIsoNoMillis(buf, repeated - MarketTime.MILLIS_PER_HOUR).append(',');
+		market.appendIsoNoMillis(buf, repeated).append(']');
+		Assert.assertEquals("[2012-11-04T01:00:00-05:00,2012-11-04T01:00:00-06:00]", buf.toString());
+		Assert.assertEquals("0999-12-31T23:59:59+00:00", IsoNoMillis.append(new StringBuilder(),
+				MarketTime.parseIsoNoMillis("1000-01-01T00:00:00Z") - 1000, 0).toString());
+	}
+
+	@Test
+	public void testRejects() {
+		try {
+			IsoNoMillis.append(new StringBuilder(), 0, 24 * 60);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			IsoNoMillis.write(new char[IsoNoMillis.LENGTH], 1, 0, 0);
+			Assert.fail();
+		} catch (final ArrayIndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+}
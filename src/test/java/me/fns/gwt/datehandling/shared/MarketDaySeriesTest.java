@@ -0,0 +1,160 @@
+package me.fns.gwt.datehandling.shared;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link MarketDaySeries}: every way of addressing a value must
+ * reach the same slot as {@link MarketTime}'s labels, across transition days.
+ * </p>
+ *
+ */
+public class MarketDaySeriesTest {
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	@Test
+	public void testAddressingAgrees() {
+		// all of 2012 and 2013, four transitions
+		final int first = CivilDate.toEpochDay(2012, 1, 1);
+		final int last = CivilDate.toEpochDay(2013, 12, 31);
+		final MarketDaySeries series = new MarketDaySeries(MARKET, first);
+		Assert.assertEquals(last + 1, series.addDays(last - first + 1));
+
+		int index = 0;
+		for (int day = first; day <= last; day++) {
+			final String[] labels = MarketTime.labelsForHours(MARKET.hoursInDay(day));
+			Assert.assertEquals(labels.length, series.hoursInDay(day));
+			Assert.assertEquals(index, series.indexOf(day));
+			for (int slot = 0; slot < labels.length; slot++) {
+				final long hour = MARKET.hourOfDay(day, labels[slot]);
+				Assert.assertEquals(index, series.index(day, slot));
+				Assert.assertEquals(index, series.index(day, labels[slot]));
+				Assert.assertEquals(index, series.index(hour));
+				Assert.assertEquals(index, series.index(hour + 59 * MarketTime.MILLIS_PER_MINUTE));
+				Assert.assertEquals(hour, series.instantAt(index));
+				Assert.assertEquals(day, series.dayAt(index));
+				index++;
+			}
+		}
+		Assert.assertEquals(index, series.size());
+		Assert.assertEquals(366 * 24 + 365 * 24, series.size());
+	}
+
+	@Test
+	public void testFiveMinuteIntervals() {
+		final int day = CivilDate.toEpochDay(2012, 11, 4);
+		final MarketDaySeries series = new MarketDaySeries(MARKET, day, 12);
+		series.addDays(1);
+		Assert.assertEquals(25, series.hoursInDay(day));
+		Assert.assertEquals(25 * 12, series.size());
+
+		for (int slot = 0; slot < series.size(); slot++) {
+			final long instant = MARKET.startOfDay(day) + MarketTime.MILLIS_PER_HOUR + slot * 5
+					* MarketTime.MILLIS_PER_MINUTE;
+			Assert.assertEquals(slot, series.index(instant));
+			Assert.assertEquals(slot, series.index(instant + 4 * MarketTime.MILLIS_PER_MINUTE));
+			Assert.assertEquals(instant, series.instantAt(slot));
+			// each interval lies within the hour of its label
+			Assert.assertEquals(MARKET.hourLabel(instant), MarketTime.labelsForHours(25)[slot / 12]);
+		}
+		Assert.assertEquals(2 * 12, series.index(day, "02*"));
+		Assert.assertEquals(24 * 12, series.index(day, "24"));
+	}
+
+	@Test
+	public void testGetAndSet() {
+		final int day = CivilDate.toEpochDay(2012, 11, 4);
+		final MarketDaySeries series = new MarketDaySeries(MARKET, day);
+		series.addDays(2);
+		Assert.assertTrue(Double.isNaN(series.get(day, "02*")));
+
+		series.set(day, "02*", 2.5);
+		Assert.assertEquals(2.5, series.get(day, 2), 0);
+		Assert.assertEquals(2.5, series.get(MARKET.hourOfDay(day, "02*")), 0);
+
+		series.set(MARKET.startOfDay(day + 1), 24.0);
+		Assert.assertEquals(24.0, series.get(day, "24"), 0);
+		Assert.assertEquals(24.0, series.valueAt(24), 0);
+
+		series.set(day + 1, 0, 1.0);
+		Assert.assertEquals(1.0, series.get(day + 1, "01"), 0);
+		Assert.assertEquals(25, series.toArray(day).length);
+		Assert.assertEquals(49, series.toArray().length);
+	}
+
+	@Test
+	public void testAppendAcrossDays() {
+		final int day = CivilDate.toEpochDay(2013, 3, 9);
+		final MarketDaySeries series = new MarketDaySeries(MARKET, day);
+		final double[] values = new double[30];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i;
+		}
+		series.append(values);
+		Assert.assertEquals(2, series.getDayCount());
+		series.append(values, 0, 20);
+		Assert.assertEquals(3, series.getDayCount());
+
+		Assert.assertEquals(23, series.get(day, "24"), 0);
+		Assert.assertEquals(24, series.get(day + 1, "01"), 0);
+		// 2013-03-10 has no 02
+		Assert.assertEquals(25, series.get(day + 1, "03"), 0);
+		Assert.assertEquals(0, series.get(day + 1, "08"), 0);
+		Assert.assertEquals(19, series.valueAt(49), 0);
+		Assert.assertEquals(19, series.get(day + 2, "03"), 0);
+		Assert.assertTrue(Double.isNaN(series.get(day + 2, "04")));
+		Assert.assertEquals(24 + 23 + 24, series.size());
+	}
+
+	@Test
+	public void testNotHeld() {
+		final int day = CivilDate.toEpochDay(2013, 3, 10);
+		final MarketDaySeries series = new MarketDaySeries(MARKET, day);
+		try {
+			series.get(day, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// no days yet
+		}
+		series.addDays(1);
+		try {
+			series.get(day, "02");
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			series.get(MARKET.startOfDay(day));
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// 12:00AM is the 24th hour of the previous day
+		}
+		try {
+			series.get(day, 23);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testLabelSlot() {
+		final String[] others = new String[] { null, "", "0", "00", "25", "2*", "02+", "03*", "1a", "024" };
+		for (int hours = 22; hours <= 26; hours++) {
+			final String[] labels = MarketTime.labelsForHours(hours);
+			for (int slot = 0; slot < labels.length; slot++) {
+				Assert.assertEquals(labels[slot], slot, MarketTime.labelSlot(hours, labels[slot]));
+			}
+			for (final String label : MarketTime.labelsForHours(25)) {
+				if (MarketTime.labelSlot(hours, label) >= 0) {
+					Assert.assertEquals(label, labels[MarketTime.labelSlot(hours, label)]);
+				}
+			}
+			for (final String label : others) {
+				Assert.assertEquals(label, -1, MarketTime.labelSlot(hours, label));
+			}
+		}
+	}
+}
@@ -0,0 +1,349 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Differential verification of {@link MarketTime} against the JVM's own
+ * America/Chicago zone data (see {@link CentralTimeReference}).
+ * </p>
+ * <p>
+ * Walks every day, every hour and every 5-minute interval from 1970 through
+ * 2100 comparing hour labels, minute labels, hours in day and ISO8601 (no
+ * millis) round-trips. Each walk reports its mismatches together with the
+ * throughput of both implementations, so that an optimised code path can be
+ * verified and measured in one run.
+ * </p>
+ *
+ */
+public class MarketTimeDifferentialTest {
+
+	private static final int FIRST_YEAR = 1970;
+
+	private static final int LAST_YEAR = 2100;
+
+	private static final long INTERVAL = 5 * MarketTime.MILLIS_PER_MINUTE;
+
+	private final MarketTime subject = MarketTime.CENTRAL;
+
+	private final CentralTimeReference reference = new CentralTimeReference();
+
+	/**
+	 * Formats the same instants in other offsets, which must still label as
+	 * market time
+	 */
+	private final MarketTime utc = new MarketTime(new MarketZone("UTC", 0, new long[0], new int[0]));
+
+	private final MarketTime standard = new MarketTime(new MarketZone("CST", -360, new long[0], new int[0]));
+
+	@Test
+	public void testEveryDay() {
+		final Mismatches mismatches = new Mismatches("days");
+		final int firstDay = CivilDate.toEpochDay(FIRST_YEAR, 1, 1);
+		final int lastDay = CivilDate.toEpochDay(LAST_YEAR, 12, 31);
+		final DayProfile[] span = subject.dayProfilesBetween(firstDay, lastDay + 1);
+		int monthHours = 0;
+		long totalHours = 0;
+
+		for (int day = firstDay; day <= lastDay; day++) {
+			final int date = CivilDate.fromEpochDay(day);
+			final int year = CivilDate.year(date);
+			final int month = CivilDate.month(date);
+			final int dayOfMonth = CivilDate.day(date);
+
+			final long midnight = reference.midnight(year, month, dayOfMonth);
+			mismatches.check("startOfDay", day, midnight, subject.startOfDay(day));
+
+			final int hours = reference.hoursInDay(year, month, dayOfMonth);
+			mismatches.check("hoursInDay", day, hours, subject.hoursInDay(day));
+
+			final DayProfile profile = subject.dayProfile(day);
+			mismatches.check("profileStart", day, midnight, profile.getStart());
+			mismatches.check("profileHours", day, hours, profile.getHours());
+			mismatches.check("profileStartOffset", day, reference.offsetMinutes(midnight), profile.getStartOffset());
+			mismatches.check("profileEndOffset", day, reference.offsetMinutes(profile.getEnd()), profile.getEndOffset());
+			mismatches.check("dayProfilesBetween", day, profile, span[day - firstDay]);
+			monthHours += hours;
+			totalHours += hours;
+			if (dayOfMonth == CivilDate.lengthOfMonth(year, month)) {
+				mismatches.check("hoursInMonth", day, monthHours, subject.hoursInMonth(year, month));
+				monthHours = 0;
+			}
+
+			// labels of each hour of the day, in order, must be the pre-defined set
+			final String[] labels = MarketTime.labelsForHours(hours);
+			mismatches.check("labelCount", day, hours, labels.length);
+			int rows = 0;
+			for (int row = 0; row < 25; row++) {
+				rows += MarketTime.alignedSlot(hours, row) >= 0 ? 1 : 0;
+			}
+			mismatches.check("alignedRows", day, hours, rows);
+			for (int slot = 0; slot < labels.length; slot++) {
+				final long hour = midnight + (slot + 1) * MarketTime.MILLIS_PER_HOUR;
+				mismatches.check("label", hour, reference.hourLabel(hour), labels[slot]);
+				mismatches.check("hourOfDay", hour, hour, subject.hourOfDay(day, labels[slot]));
+				mismatches.check("profileSlot", hour, slot, profile.slotOf(hour + 59 * MarketTime.MILLIS_PER_MINUTE));
+				mismatches.check("profileLabel", hour, labels[slot], profile.getLabel(slot));
+				final int row = MarketTime.alignedRow(hours, slot);
+				mismatches.check("alignedRow", hour, labels[slot], MarketTime.labelsForHours(25)[row]);
+				mismatches.check("alignedSlot", hour, slot, MarketTime.alignedSlot(hours, row));
+			}
+		}
+		mismatches.check("totalHours", lastDay, totalHours, subject.totalHours(firstDay, lastDay + 1));
+		mismatches.report(lastDay - firstDay + 1);
+
+		final long subjectNanos = time(new Walk() {
+			@Override
+			public int visit(final long instant) {
+				return subject.hoursInDay(subject.epochDay(instant));
+			}
+		}, MarketTime.MILLIS_PER_DAY);
+		final long referenceNanos = time(new Walk() {
+			@Override
+			public int visit(final long instant) {
+				final int date = CivilDate.fromEpochDay((int) (instant / MarketTime.MILLIS_PER_DAY));
+				return reference.hoursInDay(CivilDate.year(date), CivilDate.month(date), CivilDate.day(date));
+			}
+		}, MarketTime.MILLIS_PER_DAY);
+		throughput("hoursInDay", lastDay - firstDay + 1, subjectNanos, referenceNanos);
+
+		mismatches.assertNone();
+	}
+
+	@Test
+	public void testDayProfilesBetweenAnyStart() {
+		// spans starting on, just before and just after each transition day
+		final int from = CivilDate.toEpochDay(2012, 1, 1);
+		final int to = CivilDate.toEpochDay(2014, 1, 1);
+		for (int day = from; day < to; day++) {
+			final DayProfile[] span = subject.dayProfilesBetween(day, day + 3);
+			for (int i = 0; i < span.length; i++) {
+				Assert.assertEquals(subject.dayProfile(day + i), span[i]);
+			}
+		}
+		Assert.assertEquals(0, subject.dayProfilesBetween(from, from).length);
+		Assert.assertEquals(31 * 24 - 1, subject.hoursInMonth(2013, 3));
+		Assert.assertEquals(30 * 24 + 1, subject.hoursInMonth(2013, 11));
+		Assert.assertEquals(-(365 * 24 + 366 * 24), subject.totalHours(to, from));
+	}
+
+	@Test
+	public void testEveryHour() {
+		final Mismatches mismatches = walk("hours", MarketTime.MILLIS_PER_HOUR);
+		final long subjectNanos = time(new Walk() {
+			@Override
+			public int visit(final long instant) {
+				return subject.hourLabel(instant).length();
+			}
+		}, MarketTime.MILLIS_PER_HOUR);
+		final long referenceNanos = time(new Walk() {
+			@Override
+			public int visit(final long instant) {
+				return reference.hourLabel(instant).length();
+			}
+		}, MarketTime.MILLIS_PER_HOUR);
+		throughput("hourLabel", steps(MarketTime.MILLIS_PER_HOUR), subjectNanos, referenceNanos);
+		mismatches.assertNone();
+	}
+
+	@Test
+	public void testIsoHourLabel() {
+		final int count = (int) steps(MarketTime.MILLIS_PER_HOUR);
+		final String[] isos = new String[count];
+		for (int i = 0; i < count; i++) {
+			isos[i] = subject.toIsoNoMillis(start() + i * MarketTime.MILLIS_PER_HOUR);
+		}
+		int sink = 0;
+		long started = System.nanoTime();
+		for (final String iso : isos) {
+			sink += subject.hourLabel(MarketTime.parseIsoNoMillis(iso)).length();
+		}
+		final long parsingNanos = System.nanoTime() - started;
+		started = System.nanoTime();
+		for (final String iso : isos) {
+			sink -= subject.isoHourLabel(iso).length();
+		}
+		final long directNanos = System.nanoTime() - started;
+		Assert.assertEquals(0, sink);
+		System.out.println(String.format("isoHourLabel: %,d ops, direct %.1f ns/op, parse then label %.1f ns/op",
+				count, (double) directNanos / count, (double) parsingNanos / count));
+
+		// malformed input fails just as parsing does
+		final String[] malformed = new String[] { "2013-07-01T25:00:00-05:00", "2013-02-29T10:00:00-06:00",
+				"2013-07-01T10:60:00-05:00", "2013-07-01T1x:00:00-05:00", "2013-07-01T10:00:00*05:00", "2013-07-01" };
+		for (final String iso : malformed) {
+			try {
+				subject.isoHourLabel(iso);
+				Assert.fail(iso);
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+		Assert.assertEquals("24", subject.isoHourLabel("2013-07-01T24:00:00-05:00"));
+	}
+
+	@Test
+	public void testNextBoundaryAcrossHalfHourShift() {
+		final long hour = MarketTime.MILLIS_PER_HOUR;
+		final long minute = MarketTime.MILLIS_PER_MINUTE;
+		final long shift = CivilDate.toEpochDay(2013, 10, 6) * MarketTime.MILLIS_PER_DAY;
+		// 10:00 becomes 10:30, ending the hour from 09:00
+		final MarketTime forward = new MarketTime(new MarketZone("Forward", 600, new long[] { shift },
+				new int[] { 630 }));
+		Assert.assertEquals(shift, forward.nextBoundary(shift - 10 * minute, 1));
+		Assert.assertEquals(shift + 30 * minute, forward.nextBoundary(shift, 1));
+		Assert.assertEquals(shift, forward.nextBoundary(shift - 10 * minute, 2));
+		// 10:30 becomes 10:00, still within the hour from 10:00
+		final MarketTime back = new MarketTime(new MarketZone("Back", 630, new long[] { shift }, new int[] { 600 }));
+		Assert.assertEquals(shift + hour, back.nextBoundary(shift - 10 * minute, 1));
+		Assert.assertEquals(shift, back.nextBoundary(shift - 10 * minute, 2));
+		Assert.assertEquals(shift + 30 * minute, back.nextBoundary(shift, 2));
+	}
+
+	@Test
+	public void testEveryInterval() {
+		final Mismatches mismatches = walk("5-minute intervals", INTERVAL);
+		final long subjectNanos = time(new Walk() {
+			@Override
+			public int visit(final long instant) {
+				return MarketTime.parseIsoNoMillis(subject.toIsoNoMillis(instant)) == instant ? 1 : 0;
+			}
+		}, INTERVAL);
+		final long referenceNanos = time(new Walk() {
+			@Override
+			public int visit(final long instant) {
+				return reference.toIsoNoMillis(instant).length();
+			}
+		}, INTERVAL);
+		throughput("ISO round-trip", steps(INTERVAL), subjectNanos, referenceNanos);
+		mismatches.assertNone();
+	}
+
+	/**
+	 * Compares labels and ISO8601 round-trips at every step from the first
+	 * until the last year
+	 */
+	private Mismatches walk(final String what, final long step) {
+		final Mismatches mismatches = new Mismatches(what);
+		final long end = end();
+		final int stepsPerHour = (int) (MarketTime.MILLIS_PER_HOUR / step);
+		long steps = 0;
+		for (long instant = start(); instant < end; instant += step, steps++) {
+			mismatches.check("intervalsBetween", instant, steps, subject.intervalsBetween(start(), instant,
+					stepsPerHour));
+			mismatches.check("intervalsBack", instant, -steps, subject.intervalsBetween(instant, start(), stepsPerHour));
+			final String label = subject.hourLabel(instant);
+			mismatches.check("hourLabel", instant, reference.hourLabel(instant), label);
+			mismatches.check("minuteLabel", instant, reference.minuteLabel(instant), subject.minuteLabel(instant));
+			mismatches.check("offset", instant, reference.offsetMinutes(instant), subject.getOffset(instant));
+
+			final String iso = subject.toIsoNoMillis(instant);
+			mismatches.check("toIsoNoMillis", instant, reference.toIsoNoMillis(instant), iso);
+			mismatches.check("parseIsoNoMillis", instant, instant, MarketTime.parseIsoNoMillis(iso));
+			mismatches.check("isoHourLabel", instant, label, subject.isoHourLabel(iso));
+			mismatches.check("isoHourLabelGmt", instant, label,
+					subject.isoHourLabel(iso.substring(0, 19) + "GMT" + iso.substring(19)));
+			mismatches.check("isoHourLabelUtc", instant, label, subject.isoHourLabel(utc.toIsoNoMillis(instant)));
+			mismatches.check("isoHourLabelCst", instant, label, subject.isoHourLabel(standard.toIsoNoMillis(instant)));
+			// America/Chicago offsets are whole hours, so boundaries are whole hours (or intervals) of UTC
+			mismatches.check("nextHour", instant, (CivilDate.floorDiv(instant, MarketTime.MILLIS_PER_HOUR) + 1)
+					* MarketTime.MILLIS_PER_HOUR, subject.nextBoundary(instant, 1));
+			mismatches.check("nextInterval", instant, (CivilDate.floorDiv(instant, INTERVAL) + 1) * INTERVAL,
+					subject.nextBoundary(instant, 12));
+
+			if (instant % MarketTime.MILLIS_PER_HOUR == 0) {
+				// the label of the previous hour's day leads back to the same hour
+				final int day = subject.labelDay(instant);
+				mismatches.check("labelDay", instant, reference.epochDay(instant - 1), day);
+				mismatches.check("hourOfDay", instant, instant, subject.hourOfDay(day, label));
+			}
+		}
+		mismatches.report(steps(step));
+		return mismatches;
+	}
+
+	private long start() {
+		return reference.midnight(FIRST_YEAR, 1, 1);
+	}
+
+	private long end() {
+		return reference.midnight(LAST_YEAR + 1, 1, 1);
+	}
+
+	private long steps(final long step) {
+		return (end() - start() + step - 1) / step;
+	}
+
+	private long time(final Walk walk, final long step) {
+		final long end = end();
+		int sink = 0;
+		final long started = System.nanoTime();
+		for (long instant = start(); instant < end; instant += step) {
+			sink += walk.visit(instant);
+		}
+		final long elapsed = System.nanoTime() - started;
+		Assert.assertTrue(sink > 0);
+		return elapsed;
+	}
+
+	private static void throughput(final String what, final long count, final long subjectNanos,
+			final long referenceNanos) {
+		System.out.println(String.format("%s: %,d ops, MarketTime %.1f ns/op (%,.0f ops/s), reference %.1f ns/op",
+				what, count, (double) subjectNanos / count, count * 1e9 / subjectNanos, (double) referenceNanos / count));
+	}
+
+	private interface Walk {
+		int visit(long instant);
+	}
+
+	/**
+	 * Counts (and remembers the first few) disagreements with the reference
+	 */
+	private static class Mismatches {
+
+		private static final int MAX_REPORTED = 20;
+
+		private final String what;
+
+		private final List<String> reported = new ArrayList<String>();
+
+		private long checked;
+
+		private long count;
+
+		Mismatches(final String what) {
+			this.what = what;
+		}
+
+		void check(final String check, final long key, final Object expected, final Object actual) {
+			checked++;
+			if (!expected.equals(actual)) {
+				count++;
+				if (reported.size() < MAX_REPORTED) {
+					reported.add(check + "(" + key + "): expected " + expected + " but was " + actual);
+				}
+			}
+		}
+
+		void report(final long walked) {
+			System.out.println(String.format("Completed... %,d %s (%,d checks), %,d mismatches", walked, what,
+					checked, count));
+		}
+
+		void assertNone() {
+			if (count > 0) {
+				final StringBuilder buf = new StringBuilder();
+				buf.append(count).append(" mismatches walking ").append(what).append(", first ")
+				.append(reported.size()).append(":");
+				for (final String mismatch : reported) {
+					buf.append("\n  ").append(mismatch);
+				}
+				Assert.fail(buf.toString());
+			}
+		}
+	}
+}
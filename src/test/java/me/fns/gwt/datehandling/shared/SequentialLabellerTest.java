@@ -0,0 +1,84 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link SequentialLabeller}: labels must match
+ * {@link MarketTime#hourLabel(long)} whatever the order of the input, and
+ * sorted input must take the full path only once per day.
+ * </p>
+ *
+ */
+public class SequentialLabellerTest {
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	private static final long START = MARKET.startOfDay(CivilDate.toEpochDay(1970, 1, 1));
+
+	private static final long END = MARKET.startOfDay(CivilDate.toEpochDay(2101, 1, 1));
+
+	@Test
+	public void testHourlyStream() {
+		final SequentialLabeller labeller = new SequentialLabeller(MARKET);
+		for (long instant = START; instant < END; instant += MarketTime.MILLIS_PER_HOUR) {
+			final String iso = MARKET.toIsoNoMillis(instant);
+			Assert.assertEquals(iso, instant, labeller.toInstant(iso));
+			Assert.assertEquals(iso, MARKET.hourLabel(instant), labeller.hourLabel(instant));
+			Assert.assertEquals(iso, MARKET.labelDay(instant), labeller.getProfile().getEpochDay());
+		}
+		// one profile per day, the first being the last of 1969
+		Assert.assertEquals(CivilDate.toEpochDay(2101, 1, 1) - CivilDate.toEpochDay(1969, 12, 31),
+				labeller.getFullPaths());
+	}
+
+	@Test
+	public void testIntervalStream() {
+		final SequentialLabeller labeller = new SequentialLabeller(MARKET);
+		final long step = 5 * MarketTime.MILLIS_PER_MINUTE;
+		final long from = MARKET.startOfDay(CivilDate.toEpochDay(2012, 1, 1));
+		final long to = MARKET.startOfDay(CivilDate.toEpochDay(2014, 1, 1));
+		for (long instant = from; instant < to; instant += step) {
+			final String iso = MARKET.toIsoNoMillis(instant);
+			Assert.assertEquals(iso, MARKET.hourLabel(instant), labeller.isoHourLabel(iso));
+		}
+	}
+
+	@Test
+	public void testAnyOrder() {
+		final SequentialLabeller labeller = new SequentialLabeller(MARKET);
+		final Random random = new Random(42);
+		long instant = MARKET.startOfDay(CivilDate.toEpochDay(2012, 11, 3));
+		for (int i = 0; i < 200000; i++) {
+			// mostly small steps either way, now and then a jump of up to a year
+			final long minutes = random.nextInt(10) == 0 ? random.nextInt(2 * 366 * 24 * 60) - 366 * 24 * 60
+					: random.nextInt(6 * 60) - 3 * 60;
+			instant += minutes * MarketTime.MILLIS_PER_MINUTE + random.nextInt(60) * MarketTime.MILLIS_PER_SECOND;
+			final String iso = MARKET.toIsoNoMillis(instant);
+			Assert.assertEquals(iso, instant, labeller.toInstant(iso));
+			Assert.assertEquals(iso, MARKET.hourLabel(instant), labeller.hourLabel(instant));
+		}
+		for (final String iso : new String[] { "2012-11-04T01:00:00GMT-05:00", "2012-11-04T07:00:00Z",
+				"2012-11-04T01:00:00-06:00", "2012-11-04T24:00:00-06:00", "2012-11-04T02:00:00-06:00" }) {
+			Assert.assertEquals(iso, MARKET.isoHourLabel(iso), labeller.isoHourLabel(iso));
+		}
+	}
+
+	@Test
+	public void testMalformed() {
+		final SequentialLabeller labeller = new SequentialLabeller(MARKET);
+		labeller.isoHourLabel("2013-07-01T10:00:00-05:00");
+		for (final String iso : new String[] { "2013-07-01T25:00:00-05:00", "2013-07-01T10:60:00-05:00",
+				"2013-07-01T1x:00:00-05:00", "2013-07-01" }) {
+			try {
+				labeller.isoHourLabel(iso);
+				Assert.fail(iso);
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}
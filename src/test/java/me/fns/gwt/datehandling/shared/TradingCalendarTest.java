@@ -0,0 +1,147 @@
+package me.fns.gwt.datehandling.shared;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests for {@link TradingCalendar}: every query must agree with stepping
+ * through the days one at a time.
+ * </p>
+ *
+ */
+public class TradingCalendarTest {
+
+	private static final MarketTime MARKET = MarketTime.CENTRAL;
+
+	private static final String HOLIDAYS = "# sample holidays\n" + "2012-01-02 New Year's Day (observed)\n"
+			+ "2012-12-25 Christmas Day\n" + "\n" + "2013-01-01 New Year's Day\n" + "2013-03-29 Good Friday\n"
+			+ "2013-07-04\n" + "2013-11-28 Thanksgiving Day\n" + "2013-12-25 Christmas Day\n"
+			+ "2014-01-01 New Year's Day\n" + "2015-01-01 outside the years covered\n";
+
+	private final TradingCalendar calendar = TradingCalendar.parse(MARKET, 2012, 2014, HOLIDAYS);
+
+	private final int first = CivilDate.toEpochDay(2012, 1, 1);
+
+	private final int end = CivilDate.toEpochDay(2015, 1, 1);
+
+	@Test
+	public void testAgreesWithDayByDay() {
+		final Set<Integer> holidays = new HashSet<Integer>();
+		for (final String line : HOLIDAYS.split("\n")) {
+			if (line.length() >= 10 && Character.isDigit(line.charAt(0))) {
+				holidays.add(CivilDate.toEpochDay(Integer.parseInt(line.substring(0, 4)),
+						Integer.parseInt(line.substring(5, 7)), Integer.parseInt(line.substring(8, 10))));
+			}
+		}
+		final boolean[] trading = new boolean[end - first];
+		int total = 0;
+		for (int day = first; day < end; day++) {
+			final int dayOfWeek = CivilDate.dayOfWeek(day);
+			trading[day - first] = dayOfWeek != 0 && dayOfWeek != 6 && !holidays.contains(day);
+			Assert.assertEquals(String.valueOf(day), trading[day - first], calendar.isTradingDay(day));
+			total += trading[day - first] ? 1 : 0;
+		}
+		Assert.assertEquals(total, calendar.countTradingDays(first, end));
+
+		for (int day = first; day < end; day++) {
+			int next = day + 1;
+			while (next < end && !trading[next - first]) {
+				next++;
+			}
+			if (next < end) {
+				Assert.assertEquals(next, calendar.nextTradingDay(day));
+				Assert.assertEquals(next, calendar.addTradingDays(day, 1));
+			}
+			int previous = day - 1;
+			while (previous >= first && !trading[previous - first]) {
+				previous--;
+			}
+			if (previous >= first) {
+				Assert.assertEquals(previous, calendar.previousTradingDay(day));
+				Assert.assertEquals(previous, calendar.addTradingDays(day, -1));
+			}
+
+			// 20 trading days either side, and the counts between
+			int forward = day;
+			int back = day;
+			for (int n = 1; n <= 20; n++) {
+				do {
+					forward++;
+				} while (forward < end && !trading[forward - first]);
+				do {
+					back--;
+				} while (back >= first && !trading[back - first]);
+				if (forward < end) {
+					Assert.assertEquals(forward, calendar.addTradingDays(day, n));
+					Assert.assertEquals(n - (trading[day - first] ? 0 : 1),
+							calendar.countTradingDays(day, forward));
+				}
+				if (back >= first) {
+					Assert.assertEquals(back, calendar.addTradingDays(day, -n));
+					Assert.assertEquals(n, calendar.countTradingDays(back, day));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTradingHours() {
+		int expected = 0;
+		for (int day = first; day < end; day++) {
+			expected += calendar.isTradingDay(day) ? MARKET.hoursInDay(day) : 0;
+		}
+		Assert.assertEquals(expected, calendar.countTradingHours(first, end));
+
+		// US transitions fall on Sundays; move them to Wednesdays 2013-03-13 and 2013-11-06
+		final MarketZone midweek = new MarketZone("Midweek", -360, new long[] {
+				MARKET.startOfDay(CivilDate.toEpochDay(2013, 3, 13)) + 2 * MarketTime.MILLIS_PER_HOUR,
+				MARKET.startOfDay(CivilDate.toEpochDay(2013, 11, 6)) + 2 * MarketTime.MILLIS_PER_HOUR },
+				new int[] { -300, -360 });
+		final MarketTime midweekMarket = new MarketTime(midweek);
+		final TradingCalendar weekdays = new TradingCalendar(midweekMarket, 2013, 2013, new int[0]);
+		final int january = CivilDate.toEpochDay(2013, 1, 1);
+		final int march = CivilDate.toEpochDay(2013, 3, 1);
+		final int november = CivilDate.toEpochDay(2013, 11, 1);
+		final int days = weekdays.countTradingDays(january, january + 365);
+		Assert.assertEquals(24 * days, weekdays.countTradingHours(january, january + 365));
+		Assert.assertEquals(24 * weekdays.countTradingDays(march, march + 31) - 1,
+				weekdays.countTradingHours(march, march + 31));
+		Assert.assertEquals(24 * weekdays.countTradingDays(november, november + 30) + 1,
+				weekdays.countTradingHours(november, november + 30));
+		Assert.assertArrayEquals(MarketTime.labelsForHours(25),
+				weekdays.tradingHourLabels(CivilDate.toEpochDay(2013, 11, 6)));
+		Assert.assertEquals(0, weekdays.tradingHourLabels(CivilDate.toEpochDay(2013, 11, 9)).length);
+	}
+
+	@Test
+	public void testOutOfRange() {
+		try {
+			calendar.isTradingDay(first - 1);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			calendar.previousTradingDay(first);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			calendar.addTradingDays(end - 1, 1);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertEquals(1, calendar.countTradingDays(end - 1, end));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseRejectsBadDate() {
+		TradingCalendar.parse(MARKET, 2013, 2013, "2013-02-29 not a day\n");
+	}
+}
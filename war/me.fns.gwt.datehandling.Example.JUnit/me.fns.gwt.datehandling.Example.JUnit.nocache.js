@@ -0,0 +1,19 @@
+function me_fns_gwt_datehandling_Example_JUnit(){var Q='',yb='" for "gwt:onLoadErrorFn"',wb='" for "gwt:onPropertyErrorFn"',jb='"><\/script>',$='#',Gb='&',Fc='.cache.html',ab='/',mb='//',Zb='050C3E9A858F94A4009AE8EA35F17A69',_b='08B511A54EF85194F9A0ED0F9A2541C2',ac='098EE327B48525F13A962C2F9047340A',cc='0CA8F2AEBCA7BE37AE33A7DF236B4350',ec='10E17C497732C6286DB2D954CD601B63',fc='23DD86D95F0475D608B90449F98FCDFF',gc='2B21574B37F1C8036A53117E6996B8B9',hc='32A38B1AED2E919E05065EA7F956128C',ic='4320D53FA3D68A983DFD95FFFDAAFB60',jc='4FA38C034D9D1942F617F16ACD99D17F',kc='7458CD8C528DD1FE2FC1C3A4874E8D70',lc='74FD73F13BCC87152A15A78B3590CF22',mc='7CFADA7072BDBE03C5E7058CBC2F62C5',nc='891D259180FBBE6B435D1F4F8D59E0CB',oc='9041C8E98B01D23A28FF18B57CB96B0A',pc='975BEC49D8576985D9CA2320F0C477B4',Ec=':',qb='::',Nc='<script defer="defer">me_fns_gwt_datehandling_Example_JUnit.onInjectionDone(\'me.fns.gwt.datehandling.Example.JUnit\')<\/script>',ib='<script id="',tb='=',_='?',qc='A1762E934C755FFD04D61E4EDCC94F7F',rc='ADF01C30EF5FEFE4E0A0445B0FD54739',sc='AE10F3EEF49977B283B47641E992D41A',tc='B454BE318E332B2C3DD9E94FC9B5A32D',uc='BD9216FD0EB3AF885D393087A7C065AC',vc='BEA4846D5DDD9411E876568AAC836220',vb='Bad handler "',wc='C028DA5188EE38A4A0A1D6E6E351A123',xc='C71931D0C14543D35A74F5AB3D93620B',yc='D1D8DE79D75D6E072C79BD1201B5666A',zc='D4B9148D210ECE3EA3417C709CC25751',Mc='DOMContentLoaded',Ac='E8E47EB010409FB94B73482CDCE5FCE9',Bc='ECBB533C2A1475AEC2469A36621C9006',Cc='F40AEAB3CE55AF7E7C64682A8FE4CB7D',Dc='F67036CDD0836DC14AA08147E911988C',kb='SCRIPT',Jb='Unexpected exception in locale detection, using default: ',Ib='_',Hb='__gwt_Locale',hb='__gwt_marker_me.fns.gwt.datehandling.Example.JUnit',lb='base',db='baseUrl',U='begin',T='bootstrap',cb='clear.cache.gif',sb='content',Yb='de',Eb='en',Z='end',dc='es',bc='fr',Sb='gecko',Tb='gecko1_8',V='gwt.codesvr=',W='gwt.hosted=',X='gwt.hybrid',Gc='gwt/clean/clean.css',xb='gwt:onLoadErrorFn',ub='gwt:onPropertyErrorFn',rb='gwt:property',Lc='head',Wb='hosted.html?me_fns_gwt_datehandling_Example_JUnit',Kc='href',Rb='ie6',Qb='ie8',Pb='ie9',zb='iframe',bb='img',Ab="javascript:''",Hc='link',Vb='loadExternalRefs',Db='locale',Fb='locale=',R='me.fns.gwt.datehandling.Example.JUnit',fb='me.fns.gwt.datehandling.Example.JUnit.nocache.js',pb='me.fns.gwt.datehandling.Example.JUnit::',nb='meta',Cb='moduleRequested',Y='moduleStartup',Ob='msie',ob='name',Lb='opera',Bb='position:absolute;width:0;height:0;border:none',Ic='rel',Nb='safari',eb='script',Xb='selectingPermutation',S='startup',Jc='stylesheet',gb='undefined',Ub='unknown',Kb='user.agent',Mb='webkit',$b='zh_TW';var m=window,n=document,o=m.__gwtStatsEvent?function(a){return m.__gwtStatsEvent(a)}:null,p=m.__gwtStatsSessionId?m.__gwtStatsSessionId:null,q,r,s,t=Q,u={},v=[],w=[],x=[],y=0,z,A;o&&o({moduleName:R,sessionId:p,subSystem:S,evtGroup:T,millis:(new Date).getTime(),type:U});if(!m.__gwt_stylesLoaded){m.__gwt_stylesLoaded={}}if(!m.__gwt_scriptsLoaded){m.__gwt_scriptsLoaded={}}function B(){var b=false;try{var c=m.location.search;return (c.indexOf(V)!=-1||(c.indexOf(W)!=-1||m.external&&m.external.gwtOnLoad))&&c.indexOf(X)==-1}catch(a){}B=function(){return b};return b}
+function C(){if(q&&r){var b=n.getElementById(R);var c=b.contentWindow;if(B()){c.__gwt_getProperty=function(a){return I(a)}}me_fns_gwt_datehandling_Example_JUnit=null;c.gwtOnLoad(z,R,t,y);o&&o({moduleName:R,sessionId:p,subSystem:S,evtGroup:Y,millis:(new Date).getTime(),type:Z})}}
+function D(){function e(a){var b=a.lastIndexOf($);if(b==-1){b=a.length}var c=a.indexOf(_);if(c==-1){c=a.length}var d=a.lastIndexOf(ab,Math.min(c,b));return d>=0?a.substring(0,d+1):Q}
+function f(a){if(a.match(/^\w+:\/\//)){}else{var b=n.createElement(bb);b.src=a+cb;a=e(b.src)}return a}
+function g(){var a=G(db);if(a!=null){return a}return Q}
+function h(){var a=n.getElementsByTagName(eb);for(var b=0;b<a.length;++b){if(a[b].src.indexOf(fb)!=-1){return e(a[b].src)}}return Q}
+function i(){var a;if(typeof isBodyLoaded==gb||!isBodyLoaded()){var b=hb;var c;n.write(ib+b+jb);c=n.getElementById(b);a=c&&c.previousSibling;while(a&&a.tagName!=kb){a=a.previousSibling}if(c){c.parentNode.removeChild(c)}if(a&&a.src){return e(a.src)}}return Q}
+function j(){var a=n.getElementsByTagName(lb);if(a.length>0){return a[a.length-1].href}return Q}
+function k(){var a=n.location;return a.href==a.protocol+mb+a.host+a.pathname+a.search+a.hash}
+var l=g();if(l==Q){l=h()}if(l==Q){l=i()}if(l==Q){l=j()}if(l==Q&&k()){l=e(n.location.href)}l=f(l);t=l;return l}
+function E(){var b=document.getElementsByTagName(nb);for(var c=0,d=b.length;c<d;++c){var e=b[c],f=e.getAttribute(ob),g;if(f){f=f.replace(pb,Q);if(f.indexOf(qb)>=0){continue}if(f==rb){g=e.getAttribute(sb);if(g){var h,i=g.indexOf(tb);if(i>=0){f=g.substring(0,i);h=g.substring(i+1)}else{f=g;h=Q}u[f]=h}}else if(f==ub){g=e.getAttribute(sb);if(g){try{A=eval(g)}catch(a){alert(vb+g+wb)}}}else if(f==xb){g=e.getAttribute(sb);if(g){try{z=eval(g)}catch(a){alert(vb+g+yb)}}}}}}
+function F(a,b){return b in v[a]}
+function G(a){var b=u[a];return b==null?null:b}
+function H(a,b){var c=x;for(var d=0,e=a.length-1;d<e;++d){c=c[a[d]]||(c[a[d]]=[])}c[a[e]]=b}
+function I(a){var b=w[a](),c=v[a];if(b in c){return b}var d=[];for(var e in c){d[c[e]]=e}if(A){A(a,d,b)}throw null}
+var J;function K(){if(!J){J=true;var a=n.createElement(zb);a.src=Ab;a.id=R;a.style.cssText=Bb;a.tabIndex=-1;n.body.appendChild(a);o&&o({moduleName:R,sessionId:p,subSystem:S,evtGroup:Y,millis:(new Date).getTime(),type:Cb});a.contentWindow.location.replace(t+M)}}
+w[Db]=function(){var b=null;var c=Eb;try{if(!b){var d=location.search;var e=d.indexOf(Fb);if(e>=0){var f=d.substring(e+7);var g=d.indexOf(Gb,e);if(g<0){g=d.length}b=d.substring(e+7,g)}}if(!b){b=G(Db)}if(!b){b=m[Hb]}if(b){c=b}while(b&&!F(Db,b)){var h=b.lastIndexOf(Ib);if(h<0){b=null;break}b=b.substring(0,h)}}catch(a){alert(Jb+a)}m[Hb]=c;return b||Eb};v[Db]={de:0,'default':1,en:2,es:3,fr:4,zh_TW:5};w[Kb]=function(){var b=navigator.userAgent.toLowerCase();var c=function(a){return parseInt(a[1])*1000+parseInt(a[2])};if(function(){return b.indexOf(Lb)!=-1}())return Lb;if(function(){return b.indexOf(Mb)!=-1}())return Nb;if(function(){return b.indexOf(Ob)!=-1&&n.documentMode>=9}())return Pb;if(function(){return b.indexOf(Ob)!=-1&&n.documentMode>=8}())return Qb;if(function(){var a=/msie ([0-9]+)\.([0-9]+)/.exec(b);if(a&&a.length==3)return c(a)>=6000}())return Rb;if(function(){return b.indexOf(Sb)!=-1}())return Tb;return Ub};v[Kb]={gecko1_8:0,ie6:1,ie8:2,ie9:3,opera:4,safari:5};me_fns_gwt_datehandling_Example_JUnit.onScriptLoad=function(){if(J){r=true;C()}};me_fns_gwt_datehandling_Example_JUnit.onInjectionDone=function(){q=true;o&&o({moduleName:R,sessionId:p,subSystem:S,evtGroup:Vb,millis:(new Date).getTime(),type:Z});C()};E();D();var L;var M;if(B()){if(m.external&&(m.external.initModule&&m.external.initModule(R))){m.location.reload();return}M=Wb;L=Q}o&&o({moduleName:R,sessionId:p,subSystem:S,evtGroup:T,millis:(new Date).getTime(),type:Xb});if(!B()){try{H([Yb,Pb],Zb);H([$b,Nb],_b);H([Eb,Nb],ac);H([bc,Qb],cc);H([dc,Qb],ec);H([Yb,Qb],fc);H([Eb,Rb],gc);H([$b,Rb],hc);H([dc,Tb],ic);H([bc,Pb],jc);H([Yb,Lb],kc);H([Eb,Lb],lc);H([Eb,Pb],mc);H([dc,Nb],nc);H([bc,Tb],oc);H([$b,Tb],pc);H([bc,Lb],qc);H([$b,Lb],rc);H([Eb,Tb],sc);H([Eb,Qb],tc);H([$b,Qb],uc);H([bc,Rb],vc);H([Yb,Tb],wc);H([$b,Pb],xc);H([bc,Nb],yc);H([dc,Pb],zc);H([dc,Rb],Ac);H([dc,Lb],Bc);H([Yb,Rb],Cc);H([Yb,Nb],Dc);L=x[I(Db)][I(Kb)];var N=L.indexOf(Ec);if(N!=-1){y=Number(L.substring(N+1));L=L.substring(0,N)}M=L+Fc}catch(a){return}}var O;function P(){if(!s){s=true;if(!__gwt_stylesLoaded[Gc]){var a=n.createElement(Hc);__gwt_stylesLoaded[Gc]=a;a.setAttribute(Ic,Jc);a.setAttribute(Kc,t+Gc);n.getElementsByTagName(Lc)[0].appendChild(a)}C();if(n.removeEventListener){n.removeEventListener(Mc,P,false)}if(O){clearInterval(O)}}}
+if(n.addEventListener){n.addEventListener(Mc,function(){K();P()},false)}var O=setInterval(function(){if(/loaded|complete/.test(n.readyState)){K();P()}},50);o&&o({moduleName:R,sessionId:p,subSystem:S,evtGroup:T,millis:(new Date).getTime(),type:Z});o&&o({moduleName:R,sessionId:p,subSystem:S,evtGroup:Vb,millis:(new Date).getTime(),type:U});n.write(Nc)}
+me_fns_gwt_datehandling_Example_JUnit();
\ No newline at end of file